@@ -0,0 +1,144 @@
+package com.maskdetector.adapter;
+
+import com.maskdetector.database.SearchIndex;
+import com.maskdetector.database.models.City;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Filters the city list for the search box off the calling thread. Queries are debounced, a new
+ * query or data set supersedes any pending or running one, and results of superseded queries are
+ * never delivered. By default the cities are searched through a {@link SearchIndex}, where typing
+ * more letters narrows the previous matches instead of searching again.
+ * <p>
+ * {@link #setData}, {@link #filter} and {@link #close} must be called from the thread that
+ * {@code callbackExecutor} runs on, usually the main thread.
+ */
+public final class CityFilter {
+    public interface Listener {
+        void onFiltered(List<City> cities);
+    }
+
+    /**
+     * Finds the cities matching a non-empty query, called on the filter's own thread.
+     */
+    public interface Searcher {
+        List<City> search(List<City> cities, String query);
+    }
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Executor callbackExecutor;
+    private final long debounceMillis;
+    private final Listener listener;
+    private final Searcher searcher;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private List<City> cities = new ArrayList<>();
+    private String query = "";
+    private ScheduledFuture<?> pending;
+
+    public CityFilter(Executor callbackExecutor, long debounceMillis, Listener listener) {
+        this(callbackExecutor, debounceMillis, listener, newIndexSearcher());
+    }
+
+    /**
+     * Filters with {@code searcher} instead of the in-memory search index.
+     */
+    public CityFilter(Executor callbackExecutor, long debounceMillis, Listener listener, Searcher searcher) {
+        this.callbackExecutor = callbackExecutor;
+        this.debounceMillis = debounceMillis;
+        this.listener = listener;
+        this.searcher = searcher;
+    }
+
+    /**
+     * Replaces the cities and filters them again with the current query, without debouncing.
+     */
+    public void setData(List<City> cities) {
+        this.cities = cities;
+        submit(0);
+    }
+
+    public void filter(String query) {
+        this.query = query;
+        submit(debounceMillis);
+    }
+
+    public void close() {
+        generation.incrementAndGet();
+        executor.shutdownNow();
+    }
+
+    private void submit(long delayMillis) {
+        final int request = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+
+        final List<City> data = cities;
+        final String text = query;
+        if (text.trim().isEmpty()) {
+            listener.onFiltered(data);
+            return;
+        }
+
+        pending = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (generation.get() != request) {
+                    return;
+                }
+
+                final List<City> filtered = searcher.search(data, text);
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation.get() == request) {
+                            listener.onFiltered(filtered);
+                        }
+                    }
+                });
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns a searcher that indexes the cities it is given and returns those matching the query
+     * by name or through one of their centers, best first. Not thread-safe.
+     */
+    public static Searcher newIndexSearcher() {
+        return new Searcher() {
+            private List<City> indexedCities;
+            private SearchIndex searchIndex;
+            private final SearchIndex.Results results = new SearchIndex.Results();
+
+            @Override
+            public List<City> search(List<City> data, String text) {
+                if (data != indexedCities) {
+                    searchIndex = SearchIndex.build(data);
+                    indexedCities = data;
+                }
+                searchIndex.search(text, results);
+
+                List<City> filtered = new ArrayList<>();
+                boolean[] added = new boolean[data.size()];
+                for (int rank = 0; rank < results.size(); rank++) {
+                    int city = results.getCity(rank);
+                    if (!added[city]) {
+                        added[city] = true;
+                        filtered.add(data.get(city));
+                    }
+                }
+                return filtered;
+            }
+        };
+    }
+}
@@ -0,0 +1,121 @@
+package com.maskdetector.adapter;
+
+import com.maskdetector.database.models.City;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the city list a page at a time on {@code executor} as the user scrolls, delivering the
+ * growing list on {@code callbackExecutor}. {@link #reset} drops the loaded pages, and a page
+ * still loading from before a reset is never delivered. A page that fails to load is reported
+ * and can be requested again.
+ * <p>
+ * {@link #reset} and {@link #loadMore} must be called from the thread that
+ * {@code callbackExecutor} runs on, usually the main thread.
+ */
+public final class CityPager {
+    public interface PageSource {
+        /**
+         * Returns up to {@code limit} cities starting at {@code offset}, fewer only at the end.
+         */
+        List<City> loadPage(int offset, int limit);
+    }
+
+    public interface Listener {
+        void onCitiesLoaded(List<City> cities, boolean complete);
+
+        void onError(RuntimeException exception);
+    }
+
+    private final Executor executor;
+    private final Executor callbackExecutor;
+    private final int pageSize;
+    private final PageSource source;
+    private final Listener listener;
+
+    private List<City> cities = Collections.emptyList();
+    private int generation;
+    private boolean loading;
+    private boolean complete;
+
+    public CityPager(Executor executor, Executor callbackExecutor, int pageSize, PageSource source, Listener listener) {
+        this.executor = executor;
+        this.callbackExecutor = callbackExecutor;
+        this.pageSize = pageSize;
+        this.source = source;
+        this.listener = listener;
+    }
+
+    public List<City> getCities() {
+        return cities;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Forgets the loaded pages and loads the first one again.
+     */
+    public void reset() {
+        generation++;
+        cities = Collections.emptyList();
+        loading = false;
+        complete = false;
+        loadMore();
+    }
+
+    /**
+     * Loads the next page unless one is already loading or the last page has been loaded.
+     */
+    public void loadMore() {
+        if (loading || complete) {
+            return;
+        }
+
+        loading = true;
+        final int request = generation;
+        final int offset = cities.size();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<City> page;
+                try {
+                    page = source.loadPage(offset, pageSize);
+                } catch (final RuntimeException exception) {
+                    callbackExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (request != generation) {
+                                return;
+                            }
+
+                            loading = false;
+                            listener.onError(exception);
+                        }
+                    });
+                    return;
+                }
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (request != generation) {
+                            return;
+                        }
+
+                        List<City> loaded = new ArrayList<>(cities.size() + page.size());
+                        loaded.addAll(cities);
+                        loaded.addAll(page);
+                        cities = Collections.unmodifiableList(loaded);
+                        loading = false;
+                        complete = page.size() < pageSize;
+                        listener.onCitiesLoaded(cities, complete);
+                    }
+                });
+            }
+        });
+    }
+}
@@ -7,7 +7,7 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncDifferConfig;
 import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
@@ -15,12 +15,10 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.maskdetector.R;
 import com.maskdetector.database.models.City;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 public class MainAdapter extends ListAdapter<City, MainAdapter.MainViewHolder> {
-    private List<City> originalList = new ArrayList<>();
-
     public interface OnItemClickListener {
         void onItemClicked(City city);
     }
@@ -28,7 +26,9 @@ public class MainAdapter extends ListAdapter<City, MainAdapter.MainViewHolder> {
     private final OnItemClickListener clickListener;
 
     public MainAdapter(OnItemClickListener clickListener) {
-        super(DIFF_CALLBACK);
+        super(new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                .setBackgroundThreadExecutor(DIFF_EXECUTOR)
+                .build());
 
         this.clickListener = clickListener;
     }
@@ -46,21 +46,6 @@ public class MainAdapter extends ListAdapter<City, MainAdapter.MainViewHolder> {
         holder.bindTo(getItem(position));
     }
 
-    public void setData(@Nullable List<City> list) {
-        originalList = list;
-        super.submitList(list);
-    }
-
-    public void filter(String query) {
-        List<City> filteredList = new ArrayList<>();
-        for (City city : originalList) {
-            if (city.getCity_name().toLowerCase().contains(query.toLowerCase())) {
-                filteredList.add(city);
-            }
-        }
-        submitList(filteredList);
-    }
-
     static class MainViewHolder extends RecyclerView.ViewHolder {
         private final TextView textTitle;
         private final TextView textCount;
@@ -78,7 +63,7 @@ public class MainAdapter extends ListAdapter<City, MainAdapter.MainViewHolder> {
             this.city = city;
 
             textTitle.setText(city.getCity_name());
-            textCount.setText(String.valueOf(city.getCenters().size()));
+            textCount.setText(String.valueOf(city.getCenterCount()));
         }
     }
 
@@ -89,11 +74,13 @@ public class MainAdapter extends ListAdapter<City, MainAdapter.MainViewHolder> {
                                                @NonNull City newData) {
                     return oldData.getId().equals(newData.getId());
                 }
-                @SuppressLint("DiffUtilEquals")
                 @Override
                 public boolean areContentsTheSame(@NonNull City oldData,
                                                   @NonNull City newData) {
-                    return oldData.equals(newData);
+                    return oldData == newData || oldData.getContentHash() == newData.getContentHash();
                 }
             };
+
+    // One thread is enough: a newer list supersedes a diff still running for an older one.
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
 }
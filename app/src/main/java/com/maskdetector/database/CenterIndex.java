@@ -0,0 +1,287 @@
+package com.maskdetector.database;
+
+import com.maskdetector.database.models.BoundingBox;
+
+/**
+ * A uniform latitude/longitude grid over the center coordinates, answering nearest-neighbour,
+ * radius and bounding-box queries by haversine distance. Centers are identified by their position
+ * in the coordinate arrays. The cells are stored as one sorted index array with per-cell start
+ * offsets, so the whole index is three primitive arrays.
+ * <p>
+ * Immutable and safe for concurrent queries as long as every thread uses its own {@link Results}.
+ * The grid does not wrap around the antimeridian.
+ */
+public final class CenterIndex {
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private static final int TARGET_CENTERS_PER_CELL = 4;
+    private static final double MIN_CELL_SIZE_DEGREES = 0.005;
+
+    /**
+     * Query output, reused between queries to avoid allocations. Nearest-neighbour results are
+     * ordered by distance, the others are unordered; box results have a {@code NaN} distance.
+     */
+    public static final class Results {
+        private int[] centers = new int[16];
+        private double[] distances = new double[16];
+        private int size;
+
+        public int size() {
+            return size;
+        }
+
+        public int getCenter(int index) {
+            return centers[index];
+        }
+
+        public double getDistanceMeters(int index) {
+            return distances[index];
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        void add(int center, double distance) {
+            if (size == centers.length) {
+                int[] grownCenters = new int[size * 2];
+                double[] grownDistances = new double[size * 2];
+                System.arraycopy(centers, 0, grownCenters, 0, size);
+                System.arraycopy(distances, 0, grownDistances, 0, size);
+                centers = grownCenters;
+                distances = grownDistances;
+            }
+            centers[size] = center;
+            distances[size] = distance;
+            size++;
+        }
+
+        /**
+         * Keeps the {@code limit} closest centers seen so far, sorted by distance.
+         */
+        void offer(int center, double distance, int limit) {
+            if (size == limit && distance >= distances[size - 1]) {
+                return;
+            }
+            if (size < limit) {
+                add(center, distance);
+            }
+
+            int position = size - 1;
+            while (position > 0 && distances[position - 1] > distance) {
+                centers[position] = centers[position - 1];
+                distances[position] = distances[position - 1];
+                position--;
+            }
+            centers[position] = center;
+            distances[position] = distance;
+        }
+    }
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final int count;
+
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double maxAbsLatitude;
+    private final double cellSize;
+    private final int rows;
+    private final int columns;
+    private final int[] cellStarts;
+    private final int[] cellCenters;
+
+    /**
+     * Indexes the first {@code count} coordinates, which must stay unchanged while the index is
+     * used. A cell size of {@code 0} picks one that puts a few centers in each cell.
+     */
+    public CenterIndex(double[] latitudes, double[] longitudes, int count, double cellSizeDegrees) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.count = count;
+
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minLat = Math.min(minLat, latitudes[i]);
+            maxLat = Math.max(maxLat, latitudes[i]);
+            minLon = Math.min(minLon, longitudes[i]);
+            maxLon = Math.max(maxLon, longitudes[i]);
+        }
+        if (count == 0) {
+            minLat = maxLat = minLon = maxLon = 0;
+        }
+
+        if (cellSizeDegrees <= 0) {
+            double area = Math.max(maxLat - minLat, MIN_CELL_SIZE_DEGREES) * Math.max(maxLon - minLon, MIN_CELL_SIZE_DEGREES);
+            cellSizeDegrees = Math.sqrt(area * TARGET_CENTERS_PER_CELL / Math.max(count, 1));
+        }
+        cellSizeDegrees = Math.max(cellSizeDegrees, MIN_CELL_SIZE_DEGREES);
+
+        this.minLatitude = minLat;
+        this.minLongitude = minLon;
+        this.maxAbsLatitude = Math.max(Math.abs(minLat), Math.abs(maxLat));
+        this.cellSize = cellSizeDegrees;
+        this.rows = (int) ((maxLat - minLat) / cellSizeDegrees) + 1;
+        this.columns = (int) ((maxLon - minLon) / cellSizeDegrees) + 1;
+
+        // Counting sort of the centers by cell.
+        cellStarts = new int[rows * columns + 1];
+        for (int i = 0; i < count; i++) {
+            cellStarts[cellOf(i) + 1]++;
+        }
+        for (int cell = 0; cell < rows * columns; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+        cellCenters = new int[count];
+        int[] fill = new int[rows * columns];
+        for (int i = 0; i < count; i++) {
+            int cell = cellOf(i);
+            cellCenters[cellStarts[cell] + fill[cell]++] = i;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Writes the {@code k} centers closest to the point into {@code results}, nearest first.
+     */
+    public void findNearest(double latitude, double longitude, int k, Results results) {
+        results.clear();
+        if (count == 0 || k <= 0) {
+            return;
+        }
+
+        int queryRow = (int) Math.floor((latitude - minLatitude) / cellSize);
+        int queryColumn = (int) Math.floor((longitude - minLongitude) / cellSize);
+        int firstRing = Math.max(Math.max(-queryRow, queryRow - (rows - 1)), Math.max(-queryColumn, queryColumn - (columns - 1)));
+        firstRing = Math.max(firstRing, 0);
+        int lastRing = Math.max(Math.max(queryRow, rows - 1 - queryRow), Math.max(queryColumn, columns - 1 - queryColumn));
+        double cosMaxLatitude = Math.cos(Math.toRadians(Math.min(90, Math.max(maxAbsLatitude, Math.abs(latitude)))));
+
+        for (int ring = firstRing; ring <= lastRing; ring++) {
+            int rowFrom = Math.max(queryRow - ring, 0);
+            int rowTo = Math.min(queryRow + ring, rows - 1);
+            for (int row = rowFrom; row <= rowTo; row++) {
+                if (row == queryRow - ring || row == queryRow + ring) {
+                    int columnFrom = Math.max(queryColumn - ring, 0);
+                    int columnTo = Math.min(queryColumn + ring, columns - 1);
+                    for (int column = columnFrom; column <= columnTo; column++) {
+                        offerCell(row * columns + column, latitude, longitude, k, results);
+                    }
+                } else {
+                    if (queryColumn - ring >= 0 && queryColumn - ring < columns) {
+                        offerCell(row * columns + queryColumn - ring, latitude, longitude, k, results);
+                    }
+                    if (ring > 0 && queryColumn + ring >= 0 && queryColumn + ring < columns) {
+                        offerCell(row * columns + queryColumn + ring, latitude, longitude, k, results);
+                    }
+                }
+            }
+
+            // Everything outside this ring is at least `ring` whole cells away from the query.
+            if (results.size() == k && results.getDistanceMeters(k - 1) <= minDistanceMeters(ring * cellSize, cosMaxLatitude)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes every center within {@code radiusMeters} of the point into {@code results}.
+     */
+    public void findWithinRadius(double latitude, double longitude, double radiusMeters, Results results) {
+        results.clear();
+        if (count == 0 || radiusMeters < 0) {
+            return;
+        }
+
+        double angle = radiusMeters / EARTH_RADIUS_METERS;
+        double latitudeDelta = Math.toDegrees(angle);
+        double cosMaxLatitude = Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + latitudeDelta)));
+        double sine = Math.sin(Math.min(angle, Math.PI) / 2) / cosMaxLatitude;
+        double longitudeDelta = sine >= 1 || angle >= Math.PI ? 360 : Math.toDegrees(2 * Math.asin(sine));
+
+        visitBox(latitude - latitudeDelta, longitude - longitudeDelta, latitude + latitudeDelta, longitude + longitudeDelta,
+            latitude, longitude, radiusMeters, results);
+    }
+
+    /**
+     * Writes every center inside {@code bounds} into {@code results}.
+     */
+    public void findInBounds(BoundingBox bounds, Results results) {
+        results.clear();
+        if (count == 0) {
+            return;
+        }
+
+        visitBox(bounds.getMinLatitude(), bounds.getMinLongitude(), bounds.getMaxLatitude(), bounds.getMaxLongitude(),
+            Double.NaN, Double.NaN, Double.NaN, results);
+    }
+
+    public static double haversineMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double phi1 = Math.toRadians(latitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double sinLatitude = Math.sin((phi2 - phi1) / 2);
+        double sinLongitude = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double h = sinLatitude * sinLatitude + Math.cos(phi1) * Math.cos(phi2) * sinLongitude * sinLongitude;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    /**
+     * Lower bound of the distance between two points at most {@link #maxAbsLatitude} away from the
+     * equator whose latitude or longitude differs by at least {@code degrees}.
+     */
+    private static double minDistanceMeters(double degrees, double cosMaxLatitude) {
+        double angle = Math.toRadians(Math.min(degrees, 180));
+        double alongMeridian = angle * EARTH_RADIUS_METERS;
+        double alongParallel = 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.max(0, cosMaxLatitude) * Math.sin(angle / 2)));
+        return Math.min(alongMeridian, alongParallel);
+    }
+
+    private void offerCell(int cell, double latitude, double longitude, int k, Results results) {
+        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+            int center = cellCenters[i];
+            results.offer(center, haversineMeters(latitude, longitude, latitudes[center], longitudes[center]), k);
+        }
+    }
+
+    /**
+     * Adds the centers inside the box; with a radius, only those within it of the query point.
+     */
+    private void visitBox(double minLat, double minLon, double maxLat, double maxLon,
+                          double latitude, double longitude, double radiusMeters, Results results) {
+        int rowFrom = Math.max(0, (int) Math.floor((minLat - minLatitude) / cellSize));
+        int rowTo = Math.min(rows - 1, (int) Math.floor((maxLat - minLatitude) / cellSize));
+        int columnFrom = Math.max(0, (int) Math.floor((minLon - minLongitude) / cellSize));
+        int columnTo = Math.min(columns - 1, (int) Math.floor((maxLon - minLongitude) / cellSize));
+        boolean byRadius = !Double.isNaN(radiusMeters);
+
+        for (int row = rowFrom; row <= rowTo; row++) {
+            for (int column = columnFrom; column <= columnTo; column++) {
+                int cell = row * columns + column;
+                for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                    int center = cellCenters[i];
+                    double centerLatitude = latitudes[center];
+                    double centerLongitude = longitudes[center];
+                    if (byRadius) {
+                        double distance = haversineMeters(latitude, longitude, centerLatitude, centerLongitude);
+                        if (distance <= radiusMeters) {
+                            results.add(center, distance);
+                        }
+                    } else if (centerLatitude >= minLat && centerLatitude <= maxLat
+                        && centerLongitude >= minLon && centerLongitude <= maxLon) {
+                        results.add(center, Double.NaN);
+                    }
+                }
+            }
+        }
+    }
+
+    private int cellOf(int center) {
+        int row = Math.min(rows - 1, (int) ((latitudes[center] - minLatitude) / cellSize));
+        int column = Math.min(columns - 1, (int) ((longitudes[center] - minLongitude) / cellSize));
+        return row * columns + column;
+    }
+}
@@ -0,0 +1,250 @@
+package com.maskdetector.database;
+
+import com.maskdetector.database.models.BoundingBox;
+import com.maskdetector.database.models.Center;
+import com.maskdetector.database.models.City;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.maskdetector.database.CentersSnapshotFormat.*;
+
+/**
+ * Read-only view of a {@link CentersSnapshotFormat binary snapshot}, usually memory-mapped.
+ * Opening it only validates the header; strings are decoded and {@link City}/{@link Center}
+ * objects created the first time they are accessed.
+ * <p>
+ * Safe for concurrent readers: the buffer is only read with absolute gets. Decoded strings are
+ * immutable, so racing fills of their cache are harmless; the mutable {@link City} and
+ * {@link Center} objects are published through atomic arrays, and the first one stored wins so
+ * every reader shares the same instance. Callers must not modify them.
+ */
+public final class CentersSnapshot {
+    private final ByteBuffer buffer;
+    private final int cityCount;
+    private final int centerCount;
+    private final int citiesOffset;
+    private final int latitudesOffset;
+    private final int longitudesOffset;
+    private final int centersOffset;
+    private final int stringIndexOffset;
+    private final int stringDataOffset;
+
+    private final String[] strings;
+    private final AtomicReferenceArray<City> cities;
+    private final AtomicReferenceArray<Center> centers;
+    private final List<City> cityList = new AbstractList<City>() {
+        @Override
+        public City get(int index) {
+            return getCity(index);
+        }
+
+        @Override
+        public int size() {
+            return cityCount;
+        }
+    };
+
+    private CentersSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(HEADER_MAGIC) != MAGIC) {
+            throw new IOException("Not a centers snapshot.");
+        }
+        if (buffer.getInt(HEADER_VERSION) != VERSION) {
+            throw new IOException("Unsupported centers snapshot version " + buffer.getInt(HEADER_VERSION) + ".");
+        }
+
+        cityCount = buffer.getInt(HEADER_CITY_COUNT);
+        centerCount = buffer.getInt(HEADER_CENTER_COUNT);
+        citiesOffset = buffer.getInt(HEADER_CITIES_OFFSET);
+        latitudesOffset = buffer.getInt(HEADER_LATITUDES_OFFSET);
+        longitudesOffset = buffer.getInt(HEADER_LONGITUDES_OFFSET);
+        centersOffset = buffer.getInt(HEADER_CENTERS_OFFSET);
+        stringIndexOffset = buffer.getInt(HEADER_STRING_INDEX_OFFSET);
+        stringDataOffset = buffer.getInt(HEADER_STRING_DATA_OFFSET);
+
+        strings = new String[buffer.getInt(HEADER_STRING_COUNT)];
+        cities = new AtomicReferenceArray<>(cityCount);
+        centers = new AtomicReferenceArray<>(centerCount);
+    }
+
+    public static CentersSnapshot wrap(ByteBuffer buffer) throws IOException {
+        return new CentersSnapshot(buffer.duplicate());
+    }
+
+    /**
+     * Maps {@code length} bytes of the channel starting at {@code offset}; the mapping stays valid
+     * after the channel is closed.
+     */
+    public static CentersSnapshot map(FileChannel channel, long offset, long length) throws IOException {
+        return new CentersSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    /**
+     * CRC-32 of the snapshot recorded when it was written, identifying the dataset it holds.
+     */
+    public long getChecksum() {
+        return buffer.getInt(HEADER_CHECKSUM) & 0xffffffffL;
+    }
+
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    public int getCenterCount() {
+        return centerCount;
+    }
+
+    public int getCityId(int city) {
+        return buffer.getInt(cityPosition(city) + CITY_ID);
+    }
+
+    public String getCityName(int city) {
+        return getString(buffer.getInt(cityPosition(city) + CITY_NAME));
+    }
+
+    /**
+     * Centers of a city occupy the index range {@code [getFirstCenter(city), getFirstCenter(city) + getCityCenterCount(city))}.
+     */
+    public int getFirstCenter(int city) {
+        return buffer.getInt(cityPosition(city) + CITY_FIRST_CENTER);
+    }
+
+    public int getCityCenterCount(int city) {
+        return buffer.getInt(cityPosition(city) + CITY_CENTER_COUNT);
+    }
+
+    public double getLatitude(int center) {
+        return buffer.getDouble(latitudesOffset + checkCenter(center) * 8);
+    }
+
+    public double getLongitude(int center) {
+        return buffer.getDouble(longitudesOffset + checkCenter(center) * 8);
+    }
+
+    public String getCenterName(int center) {
+        return getString(buffer.getInt(centersOffset + checkCenter(center) * CENTER_SIZE + CENTER_NAME));
+    }
+
+    public String getCenterAddress(int center) {
+        return getString(buffer.getInt(centersOffset + checkCenter(center) * CENTER_SIZE + CENTER_ADDRESS));
+    }
+
+    /**
+     * All cities as a list whose elements (and their centers) are created on first access.
+     */
+    public List<City> getCities() {
+        return cityList;
+    }
+
+    public City getCity(int city) {
+        City value = cities.get(checkCity(city));
+        if (value == null) {
+            value = new City();
+            value.setId(getCityId(city));
+            value.setCity_name(getCityName(city));
+            int position = cityPosition(city);
+            BoundingBox bounds = null;
+            if (getCityCenterCount(city) > 0) {
+                bounds = new BoundingBox(
+                    buffer.getDouble(position + CITY_MIN_LATITUDE),
+                    buffer.getDouble(position + CITY_MIN_LONGITUDE),
+                    buffer.getDouble(position + CITY_MAX_LATITUDE),
+                    buffer.getDouble(position + CITY_MAX_LONGITUDE)
+                );
+            }
+            value.setCenters(
+                new CenterList(getFirstCenter(city), getCityCenterCount(city)),
+                bounds,
+                buffer.getDouble(position + CITY_CENTROID_LATITUDE),
+                buffer.getDouble(position + CITY_CENTROID_LONGITUDE),
+                buffer.getLong(position + CITY_CONTENT_HASH)
+            );
+            if (!cities.compareAndSet(city, null, value)) {
+                value = cities.get(city);
+            }
+        }
+        return value;
+    }
+
+    public Center getCenter(int center) {
+        Center value = centers.get(checkCenter(center));
+        if (value == null) {
+            value = new Center();
+            value.setName(getCenterName(center));
+            value.setAddress(getCenterAddress(center));
+            value.setLatitude(getLatitude(center));
+            value.setLongitude(getLongitude(center));
+            if (!centers.compareAndSet(center, null, value)) {
+                value = centers.get(center);
+            }
+        }
+        return value;
+    }
+
+    private String getString(int index) {
+        if (index == NO_STRING) {
+            return null;
+        }
+
+        String value = strings[index];
+        if (value == null) {
+            int start = buffer.getInt(stringIndexOffset + index * 4);
+            int end = buffer.getInt(stringIndexOffset + index * 4 + 4);
+            byte[] bytes = new byte[end - start];
+            ByteBuffer data = buffer.duplicate();
+            data.position(stringDataOffset + start);
+            data.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    private int cityPosition(int city) {
+        return citiesOffset + checkCity(city) * CITY_SIZE;
+    }
+
+    private int checkCity(int city) {
+        if (city < 0 || city >= cityCount) {
+            throw new IndexOutOfBoundsException("City " + city + " of " + cityCount);
+        }
+        return city;
+    }
+
+    private int checkCenter(int center) {
+        if (center < 0 || center >= centerCount) {
+            throw new IndexOutOfBoundsException("Center " + center + " of " + centerCount);
+        }
+        return center;
+    }
+
+    private final class CenterList extends AbstractList<Center> {
+        private final int firstCenter;
+        private final int size;
+
+        CenterList(int firstCenter, int size) {
+            this.firstCenter = firstCenter;
+            this.size = size;
+        }
+
+        @Override
+        public Center get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Center " + index + " of " + size);
+            }
+            return getCenter(firstCenter + index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
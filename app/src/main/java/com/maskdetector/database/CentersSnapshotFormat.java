@@ -0,0 +1,64 @@
+package com.maskdetector.database;
+
+/**
+ * Layout of the binary centers snapshot compiled from {@code centersdata.json} at build time.
+ * All values are little-endian; sections are 8-byte aligned so the coordinate columns can be read
+ * as {@code double}s straight from the mapped file.
+ * <pre>
+ * header        magic, format version, city count, center count, string count,
+ *               then the byte offset of every following section, then the CRC-32 of the
+ *               snapshot written with this field zero (ints)
+ * cities        per city: id, name string, first center, center count (ints), then centroid
+ *               latitude and longitude, min latitude, min longitude, max latitude and max
+ *               longitude (doubles, NaN for a city without centers), content hash (long)
+ * latitudes     double per center, grouped by city
+ * longitudes    double per center, grouped by city
+ * centers       per center: name string, address string (ints, -1 for none)
+ * string index  string count + 1 byte offsets into the string data
+ * string data   deduplicated UTF-8 strings
+ * </pre>
+ */
+final class CentersSnapshotFormat {
+    static final int MAGIC = 0x5343444d; // "MDCS"
+    static final int VERSION = 4;
+
+    static final int HEADER_MAGIC = 0;
+    static final int HEADER_VERSION = 4;
+    static final int HEADER_CITY_COUNT = 8;
+    static final int HEADER_CENTER_COUNT = 12;
+    static final int HEADER_STRING_COUNT = 16;
+    static final int HEADER_CITIES_OFFSET = 20;
+    static final int HEADER_LATITUDES_OFFSET = 24;
+    static final int HEADER_LONGITUDES_OFFSET = 28;
+    static final int HEADER_CENTERS_OFFSET = 32;
+    static final int HEADER_STRING_INDEX_OFFSET = 36;
+    static final int HEADER_STRING_DATA_OFFSET = 40;
+    static final int HEADER_CHECKSUM = 44;
+    static final int HEADER_SIZE = 48;
+
+    static final int CITY_ID = 0;
+    static final int CITY_NAME = 4;
+    static final int CITY_FIRST_CENTER = 8;
+    static final int CITY_CENTER_COUNT = 12;
+    static final int CITY_CENTROID_LATITUDE = 16;
+    static final int CITY_CENTROID_LONGITUDE = 24;
+    static final int CITY_MIN_LATITUDE = 32;
+    static final int CITY_MIN_LONGITUDE = 40;
+    static final int CITY_MAX_LATITUDE = 48;
+    static final int CITY_MAX_LONGITUDE = 56;
+    static final int CITY_CONTENT_HASH = 64;
+    static final int CITY_SIZE = 72;
+
+    static final int CENTER_NAME = 0;
+    static final int CENTER_ADDRESS = 4;
+    static final int CENTER_SIZE = 8;
+
+    static final int NO_STRING = -1;
+
+    private CentersSnapshotFormat() {
+    }
+
+    static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+}
@@ -0,0 +1,163 @@
+package com.maskdetector.database;
+
+import com.maskdetector.database.models.BoundingBox;
+import com.maskdetector.database.models.Center;
+import com.maskdetector.database.models.City;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static com.maskdetector.database.CentersSnapshotFormat.*;
+
+/**
+ * Compiles the JSON dataset into the {@link CentersSnapshotFormat binary snapshot}. Runs as part
+ * of the build (see {@code compileCentersSnapshot} in the app's build.gradle).
+ */
+public final class CentersSnapshotWriter {
+    private CentersSnapshotWriter() {
+    }
+
+    /**
+     * Compiles {@code json} into {@code snapshot} and returns the reasons for every center left out.
+     */
+    public static List<String> write(File json, File snapshot) throws IOException {
+        File parent = snapshot.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+
+        try (InputStream inputStream = new FileInputStream(json);
+             OutputStream outputStream = new FileOutputStream(snapshot)) {
+            return write(inputStream, outputStream);
+        }
+    }
+
+    public static List<String> write(InputStream json, OutputStream snapshot) throws IOException {
+        List<String> rejections = new ArrayList<>();
+        ByteBuffer buffer = toSnapshot(CitiesJsonReader.readAll(json, rejections));
+        snapshot.write(buffer.array(), 0, buffer.limit());
+        return rejections;
+    }
+
+    static ByteBuffer toSnapshot(List<City> cities) {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int centerCount = 0;
+        for (City city : cities) {
+            centerCount += city.getCenters().size();
+        }
+
+        int citiesOffset = HEADER_SIZE;
+        int latitudesOffset = align(citiesOffset + cities.size() * CITY_SIZE);
+        int longitudesOffset = latitudesOffset + centerCount * 8;
+        int centersOffset = longitudesOffset + centerCount * 8;
+        int stringIndexOffset = align(centersOffset + centerCount * CENTER_SIZE);
+
+        // Interning needs the string count before the string index can be placed, so the fixed
+        // sections are written to a scratch buffer first.
+        ByteBuffer body = ByteBuffer.allocate(stringIndexOffset).order(ByteOrder.LITTLE_ENDIAN);
+        int center = 0;
+        for (int i = 0; i < cities.size(); i++) {
+            City city = cities.get(i);
+            int cityPosition = citiesOffset + i * CITY_SIZE;
+            body.putInt(cityPosition + CITY_ID, city.getId() != null ? city.getId() : i);
+            body.putInt(cityPosition + CITY_NAME, intern(city.getCity_name(), stringIds, strings));
+            body.putInt(cityPosition + CITY_FIRST_CENTER, center);
+            body.putInt(cityPosition + CITY_CENTER_COUNT, city.getCenters().size());
+            BoundingBox bounds = city.getBounds();
+            body.putDouble(cityPosition + CITY_CENTROID_LATITUDE, city.getCentroidLatitude());
+            body.putDouble(cityPosition + CITY_CENTROID_LONGITUDE, city.getCentroidLongitude());
+            body.putDouble(cityPosition + CITY_MIN_LATITUDE, bounds != null ? bounds.getMinLatitude() : Double.NaN);
+            body.putDouble(cityPosition + CITY_MIN_LONGITUDE, bounds != null ? bounds.getMinLongitude() : Double.NaN);
+            body.putDouble(cityPosition + CITY_MAX_LATITUDE, bounds != null ? bounds.getMaxLatitude() : Double.NaN);
+            body.putDouble(cityPosition + CITY_MAX_LONGITUDE, bounds != null ? bounds.getMaxLongitude() : Double.NaN);
+            body.putLong(cityPosition + CITY_CONTENT_HASH, city.getContentHash());
+
+            for (Center value : city.getCenters()) {
+                body.putDouble(latitudesOffset + center * 8, value.getLatitude());
+                body.putDouble(longitudesOffset + center * 8, value.getLongitude());
+                int centerPosition = centersOffset + center * CENTER_SIZE;
+                body.putInt(centerPosition + CENTER_NAME, intern(value.getName(), stringIds, strings));
+                body.putInt(centerPosition + CENTER_ADDRESS, intern(value.getAddress(), stringIds, strings));
+                center++;
+            }
+        }
+
+        int stringDataOffset = stringIndexOffset + (strings.size() + 1) * 4;
+        int stringDataSize = 0;
+        for (byte[] string : strings) {
+            stringDataSize += string.length;
+        }
+
+        ByteBuffer snapshot = ByteBuffer.allocate(stringDataOffset + stringDataSize).order(ByteOrder.LITTLE_ENDIAN);
+        body.limit(stringIndexOffset).position(0);
+        snapshot.put(body);
+
+        snapshot.putInt(HEADER_MAGIC, MAGIC);
+        snapshot.putInt(HEADER_VERSION, VERSION);
+        snapshot.putInt(HEADER_CITY_COUNT, cities.size());
+        snapshot.putInt(HEADER_CENTER_COUNT, centerCount);
+        snapshot.putInt(HEADER_STRING_COUNT, strings.size());
+        snapshot.putInt(HEADER_CITIES_OFFSET, citiesOffset);
+        snapshot.putInt(HEADER_LATITUDES_OFFSET, latitudesOffset);
+        snapshot.putInt(HEADER_LONGITUDES_OFFSET, longitudesOffset);
+        snapshot.putInt(HEADER_CENTERS_OFFSET, centersOffset);
+        snapshot.putInt(HEADER_STRING_INDEX_OFFSET, stringIndexOffset);
+        snapshot.putInt(HEADER_STRING_DATA_OFFSET, stringDataOffset);
+
+        snapshot.position(stringIndexOffset);
+        int stringOffset = 0;
+        for (byte[] string : strings) {
+            snapshot.putInt(stringOffset);
+            stringOffset += string.length;
+        }
+        snapshot.putInt(stringOffset);
+        for (byte[] string : strings) {
+            snapshot.put(string);
+        }
+
+        // Covers the whole snapshot while the checksum field is still zero.
+        CRC32 crc = new CRC32();
+        crc.update(snapshot.array(), 0, snapshot.position());
+        snapshot.putInt(HEADER_CHECKSUM, (int) crc.getValue());
+
+        snapshot.flip();
+        return snapshot;
+    }
+
+    private static int intern(String value, Map<String, Integer> stringIds, List<byte[]> strings) {
+        if (value == null) {
+            return NO_STRING;
+        }
+
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(value, id);
+            strings.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CentersSnapshotWriter <centersdata.json> <snapshot>");
+            System.exit(2);
+        }
+        for (String rejection : write(new File(args[0]), new File(args[1]))) {
+            System.err.println(rejection);
+        }
+    }
+}
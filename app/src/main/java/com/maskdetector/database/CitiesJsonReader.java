@@ -0,0 +1,182 @@
+package com.maskdetector.database;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.maskdetector.database.models.Center;
+import com.maskdetector.database.models.City;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the {@code {"data": [city, ...]}} dataset and hands every city to a {@link Handler} as
+ * soon as it is parsed, so only one city is held by the reader at a time.
+ * <p>
+ * Coordinates are parsed here, once; centers with a missing, malformed or out of range
+ * coordinate are left out of their city and reported to the handler.
+ */
+public final class CitiesJsonReader {
+    public interface Handler {
+        void onCity(City city);
+
+        void onCenterRejected(String reason);
+    }
+
+    private CitiesJsonReader() {
+    }
+
+    /**
+     * Reads all cities from the stream, which is not closed. Stops with an
+     * {@link InterruptedIOException} when the calling thread is interrupted between two cities.
+     */
+    public static void read(InputStream inputStream, Handler handler) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"data".equals(reader.nextName()) || reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Reading cities was interrupted.");
+                }
+                handler.onCity(readCity(reader, handler));
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    public static List<City> readAll(InputStream inputStream) throws IOException {
+        return readAll(inputStream, null);
+    }
+
+    /**
+     * Reads all cities, adding the reason for every rejected center to {@code rejections} if it is
+     * not {@code null}.
+     */
+    public static List<City> readAll(InputStream inputStream, final List<String> rejections) throws IOException {
+        final List<City> cities = new ArrayList<>();
+        read(inputStream, new Handler() {
+            @Override
+            public void onCity(City city) {
+                cities.add(city);
+            }
+
+            @Override
+            public void onCenterRejected(String reason) {
+                if (rejections != null) {
+                    rejections.add(reason);
+                }
+            }
+        });
+        return cities;
+    }
+
+    private static City readCity(JsonReader reader, Handler handler) throws IOException {
+        City city = new City();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+
+            switch (name) {
+                case "id":
+                    city.setId(reader.nextInt());
+                    break;
+                case "city_name":
+                    city.setCity_name(reader.nextString());
+                    break;
+                case "centers":
+                    city.setCenters(readCenters(reader, city, handler));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (city.getCenters() == null) {
+            city.setCenters(new ArrayList<Center>());
+        }
+        return city;
+    }
+
+    private static List<Center> readCenters(JsonReader reader, City city, Handler handler) throws IOException {
+        List<Center> centers = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Center center = new Center();
+            String latitude = null;
+            String longitude = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                switch (name) {
+                    case "name":
+                        center.setName(reader.nextString());
+                        break;
+                    case "latitude":
+                        latitude = reader.nextString();
+                        break;
+                    case "longitude":
+                        longitude = reader.nextString();
+                        break;
+                    case "address":
+                        center.setAddress(reader.nextString());
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            double parsedLatitude = parseCoordinate(latitude, 90);
+            double parsedLongitude = parseCoordinate(longitude, 180);
+            if (Double.isNaN(parsedLatitude) || Double.isNaN(parsedLongitude)) {
+                handler.onCenterRejected("Center '" + center.getName() + "' of city " + city.getId() + " (" + city.getCity_name()
+                    + ") has invalid coordinates " + latitude + ", " + longitude + ".");
+                continue;
+            }
+            center.setLatitude(parsedLatitude);
+            center.setLongitude(parsedLongitude);
+            centers.add(center);
+        }
+        reader.endArray();
+        return centers;
+    }
+
+    /**
+     * Returns the coordinate, or {@code NaN} if it is missing, malformed or beyond {@code ±limit}.
+     */
+    private static double parseCoordinate(String value, double limit) {
+        if (value == null) {
+            return Double.NaN;
+        }
+
+        try {
+            double coordinate = Double.parseDouble(value.trim());
+            return coordinate >= -limit && coordinate <= limit ? coordinate : Double.NaN;
+        } catch (NumberFormatException exception) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.maskdetector.database;
+
+import com.maskdetector.database.models.City;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the parsed dataset as an immutable snapshot tagged with the version of the data it was
+ * read from. Readers never lock; a new snapshot is swapped in atomically when the version
+ * changes. The cached {@link City} objects are shared and must not be modified.
+ */
+public final class CityCache {
+    public interface Loader {
+        List<City> load() throws IOException;
+    }
+
+    public static final class Snapshot {
+        private final long version;
+        private final List<City> cities;
+        private final long loadNanos;
+
+        Snapshot(long version, List<City> cities, long loadNanos) {
+            this.version = version;
+            this.cities = Collections.unmodifiableList(new ArrayList<>(cities));
+            this.loadNanos = loadNanos;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public List<City> getCities() {
+            return cities;
+        }
+
+        public long getLoadNanos() {
+            return loadNanos;
+        }
+    }
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final Object loadLock = new Object();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong totalLoadNanos = new AtomicLong();
+
+    /**
+     * Returns the snapshot for {@code version}, or {@code null} if none is cached yet.
+     */
+    public Snapshot get(long version) {
+        Snapshot current = snapshot.get();
+        if (current != null && current.version == version) {
+            hitCount.incrementAndGet();
+            return current;
+        }
+
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns the snapshot for {@code version}, running {@code loader} on a miss. Concurrent
+     * misses wait for a single load instead of parsing the data several times. A failed load
+     * caches nothing, so the next call retries it.
+     */
+    public Snapshot getOrLoad(long version, Loader loader) throws IOException {
+        Snapshot current = get(version);
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (loadLock) {
+            current = snapshot.get();
+            if (current != null && current.version == version) {
+                return current;
+            }
+
+            long startNanos = System.nanoTime();
+            List<City> cities = loader.load();
+            return put(version, cities, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Swaps in a snapshot of {@code cities}, which the caller loaded itself in {@code loadNanos}.
+     */
+    public Snapshot put(long version, List<City> cities, long loadNanos) {
+        Snapshot loaded = new Snapshot(version, cities, loadNanos);
+        snapshot.set(loaded);
+        loadCount.incrementAndGet();
+        totalLoadNanos.addAndGet(loadNanos);
+        return loaded;
+    }
+
+    public void invalidate() {
+        snapshot.set(null);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    public long getTotalLoadNanos() {
+        return totalLoadNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CityCache{hits=" + hitCount.get() + ", misses=" + missCount.get()
+            + ", loads=" + loadCount.get() + ", loadMillis=" + totalLoadNanos.get() / 1_000_000 + '}';
+    }
+}
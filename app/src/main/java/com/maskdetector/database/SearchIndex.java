@@ -0,0 +1,367 @@
+package com.maskdetector.database;
+
+import com.maskdetector.database.models.Center;
+import com.maskdetector.database.models.City;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Word-prefix search over city names, center names and center addresses, all folded by
+ * {@link TextNormalizer}. Every query word must be a prefix of some word of a match. The
+ * index is a sorted array of the distinct words with a posting list per word, i.e. a flattened
+ * prefix trie, so a query word is found with two binary searches.
+ * <p>
+ * Matches are ranked by how well each query word matched (whole word over prefix) weighted by
+ * the field it matched in (city name, then center name, then address). The index is immutable;
+ * concurrent searches need their own {@link Results}.
+ * <p>
+ * A query that extends the previous query of the same {@link Results} (more letters or more
+ * words) can only match a subset of its matches, so only those are checked again, through a
+ * per-document list of word ids.
+ */
+public final class SearchIndex {
+    // Field weights and match scores, shared with the SQLite store so both rank alike.
+    public static final int FIELD_ADDRESS = 1;
+    public static final int FIELD_CENTER_NAME = 2;
+    public static final int FIELD_CITY_NAME = 3;
+    private static final int FIELD_BITS = 2;
+    private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+
+    public static final int SCORE_PREFIX = 2;
+    public static final int SCORE_WORD = 3;
+
+    public static final int MAX_QUERY_WORDS = 8;
+    private static final int MAX_SCORE = SCORE_WORD * FIELD_CITY_NAME * MAX_QUERY_WORDS;
+
+    /**
+     * Matches of one search, best first. A match is either a city ({@link #getCenter} is -1) or a
+     * center of a city, identified by their positions in the indexed lists.
+     */
+    public static final class Results {
+        private int[] documentQuery = new int[0];
+        private int[] documentScore = new int[0];
+        private int[] wordScore = new int[0];
+        private int[] candidates = new int[16];
+        private int[] ranked = new int[16];
+        private final int[] scoreStarts = new int[MAX_SCORE + 2];
+        private int candidateCount;
+        private int size;
+        private int query;
+        private SearchIndex index;
+        private String normalizedQuery = "";
+
+        public int size() {
+            return size;
+        }
+
+        public int getCity(int rank) {
+            return index.documentCities[document(rank)];
+        }
+
+        public int getCenter(int rank) {
+            return index.documentCenters[document(rank)];
+        }
+
+        public int getScore(int rank) {
+            return documentScore[document(rank)];
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        private int document(int rank) {
+            if (rank < 0 || rank >= size) {
+                throw new IndexOutOfBoundsException("Rank " + rank + " of " + size);
+            }
+            return ranked[rank];
+        }
+
+        private void prepare(SearchIndex index) {
+            this.index = index;
+            if (documentQuery.length < index.documentCount) {
+                documentQuery = new int[index.documentCount];
+                documentScore = new int[index.documentCount];
+                wordScore = new int[index.documentCount];
+                query = 0;
+            }
+            // Stamps documents per query word so the arrays never need clearing.
+            query += MAX_QUERY_WORDS + 1;
+            if (query < 0) {
+                Arrays.fill(documentQuery, 0);
+                query = MAX_QUERY_WORDS + 1;
+            }
+            candidateCount = 0;
+            size = 0;
+        }
+
+        private void addCandidate(int document) {
+            if (candidateCount == candidates.length) {
+                candidates = Arrays.copyOf(candidates, candidateCount * 2);
+            }
+            candidates[candidateCount++] = document;
+        }
+    }
+
+    private final String[] words;
+    private final int[] postingStarts;
+    private final int[] postings;
+    private final int[] documentCities;
+    private final int[] documentCenters;
+    private final int documentCount;
+    // Word id and field of every word of every document, the inverse of the postings.
+    private final int[] documentEntryStarts;
+    private final int[] documentEntries;
+
+    private SearchIndex(String[] words, int[] postingStarts, int[] postings, int[] documentCities, int[] documentCenters) {
+        this.words = words;
+        this.postingStarts = postingStarts;
+        this.postings = postings;
+        this.documentCities = documentCities;
+        this.documentCenters = documentCenters;
+        this.documentCount = documentCities.length;
+
+        documentEntryStarts = new int[documentCount + 1];
+        for (int posting : postings) {
+            documentEntryStarts[(posting >> FIELD_BITS) + 1]++;
+        }
+        for (int document = 0; document < documentCount; document++) {
+            documentEntryStarts[document + 1] += documentEntryStarts[document];
+        }
+        documentEntries = new int[postings.length];
+        int[] fill = new int[documentCount];
+        for (int word = 0; word < words.length; word++) {
+            for (int i = postingStarts[word]; i < postingStarts[word + 1]; i++) {
+                int document = postings[i] >> FIELD_BITS;
+                documentEntries[documentEntryStarts[document] + fill[document]++] = word << FIELD_BITS | (postings[i] & FIELD_MASK);
+            }
+        }
+    }
+
+    public static SearchIndex build(List<City> cities) {
+        Map<String, List<Integer>> wordPostings = new HashMap<>();
+        int documentCount = 0;
+        for (City city : cities) {
+            documentCount += 1 + city.getCenterCount();
+        }
+        int[] documentCities = new int[documentCount];
+        int[] documentCenters = new int[documentCount];
+
+        int document = 0;
+        for (int cityIndex = 0; cityIndex < cities.size(); cityIndex++) {
+            City city = cities.get(cityIndex);
+            documentCities[document] = cityIndex;
+            documentCenters[document] = -1;
+            addWords(wordPostings, city.getCity_name(), document, FIELD_CITY_NAME);
+            document++;
+
+            List<Center> centers = city.getCenters();
+            for (int centerIndex = 0; centers != null && centerIndex < centers.size(); centerIndex++) {
+                Center center = centers.get(centerIndex);
+                documentCities[document] = cityIndex;
+                documentCenters[document] = centerIndex;
+                addWords(wordPostings, center.getName(), document, FIELD_CENTER_NAME);
+                addWords(wordPostings, center.getAddress(), document, FIELD_ADDRESS);
+                document++;
+            }
+        }
+
+        String[] words = wordPostings.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        int[] postingStarts = new int[words.length + 1];
+        for (int i = 0; i < words.length; i++) {
+            postingStarts[i + 1] = postingStarts[i] + wordPostings.get(words[i]).size();
+        }
+        int[] postings = new int[postingStarts[words.length]];
+        for (int i = 0; i < words.length; i++) {
+            List<Integer> posting = wordPostings.get(words[i]);
+            for (int j = 0; j < posting.size(); j++) {
+                postings[postingStarts[i] + j] = posting.get(j);
+            }
+        }
+
+        return new SearchIndex(words, postingStarts, postings, documentCities, documentCenters);
+    }
+
+    private static void addWords(Map<String, List<Integer>> wordPostings, String text, int document, int field) {
+        String normalized = TextNormalizer.normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+
+        for (String word : normalized.split(" ")) {
+            List<Integer> posting = wordPostings.get(word);
+            if (posting == null) {
+                posting = new ArrayList<>();
+                wordPostings.put(word, posting);
+            }
+            int entry = document << FIELD_BITS | field;
+            // Documents are added in order, so a repeated word can only repeat the last entry.
+            if (posting.isEmpty() || posting.get(posting.size() - 1) >> FIELD_BITS != document) {
+                posting.add(entry);
+            } else if ((posting.get(posting.size() - 1) & FIELD_MASK) < field) {
+                posting.set(posting.size() - 1, entry);
+            }
+        }
+    }
+
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Finds the matches of {@code query}; a query without words matches nothing. Narrows the
+     * previous matches held by {@code results} when the query extends their query.
+     */
+    public void search(String query, Results results) {
+        String normalized = TextNormalizer.normalize(query);
+        boolean narrow = results.index == this && !results.normalizedQuery.isEmpty()
+            && normalized.startsWith(results.normalizedQuery);
+        int previousSize = narrow ? results.size : 0;
+
+        results.prepare(this);
+        results.normalizedQuery = normalized;
+        if (normalized.isEmpty()) {
+            return;
+        }
+
+        String[] queryWords = normalized.split(" ");
+        int wordCount = Math.min(queryWords.length, MAX_QUERY_WORDS);
+        int base = results.query;
+        if (narrow) {
+            narrow(queryWords, wordCount, previousSize, results);
+        } else {
+            for (int q = 0; q < wordCount; q++) {
+                collect(queryWords[q], q, base, results);
+            }
+        }
+
+        rank(results, base + wordCount - 1);
+    }
+
+    private void collect(String queryWord, int q, int base, Results results) {
+        int from = lowerBound(queryWord);
+        int to = lowerBound(queryWord + Character.MAX_VALUE);
+        for (int word = from; word < to; word++) {
+            int quality = words[word].length() == queryWord.length() ? SCORE_WORD : SCORE_PREFIX;
+            for (int i = postingStarts[word]; i < postingStarts[word + 1]; i++) {
+                int document = postings[i] >> FIELD_BITS;
+                int score = quality * (postings[i] & FIELD_MASK);
+                int stamp = results.documentQuery[document];
+                if (stamp == base + q) {
+                    // Already matched this query word; keep its best match.
+                    if (score > results.wordScore[document]) {
+                        results.documentScore[document] += score - results.wordScore[document];
+                        results.wordScore[document] = score;
+                    }
+                } else if (q == 0 ? stamp < base : stamp == base + q - 1) {
+                    // First match of this query word in a document that matched all previous ones.
+                    if (q == 0) {
+                        results.documentScore[document] = 0;
+                        results.addCandidate(document);
+                    }
+                    results.documentQuery[document] = base + q;
+                    results.documentScore[document] += score;
+                    results.wordScore[document] = score;
+                }
+            }
+        }
+    }
+
+    /**
+     * Rescores the previous matches, still held in {@code results.ranked}, against the extended query.
+     */
+    private void narrow(String[] queryWords, int wordCount, int previousSize, Results results) {
+        int[] from = new int[wordCount];
+        int[] to = new int[wordCount];
+        int[] length = new int[wordCount];
+        for (int q = 0; q < wordCount; q++) {
+            from[q] = lowerBound(queryWords[q]);
+            to[q] = lowerBound(queryWords[q] + Character.MAX_VALUE);
+            length[q] = queryWords[q].length();
+        }
+
+        int completeStamp = results.query + wordCount - 1;
+        for (int i = 0; i < previousSize; i++) {
+            int document = results.ranked[i];
+            int score = 0;
+            boolean matched = true;
+            for (int q = 0; q < wordCount && matched; q++) {
+                int best = 0;
+                for (int e = documentEntryStarts[document]; e < documentEntryStarts[document + 1]; e++) {
+                    int word = documentEntries[e] >> FIELD_BITS;
+                    if (word >= from[q] && word < to[q]) {
+                        int quality = words[word].length() == length[q] ? SCORE_WORD : SCORE_PREFIX;
+                        best = Math.max(best, quality * (documentEntries[e] & FIELD_MASK));
+                    }
+                }
+                score += best;
+                matched = best > 0;
+            }
+
+            if (matched) {
+                results.documentQuery[document] = completeStamp;
+                results.documentScore[document] = score;
+                results.addCandidate(document);
+            }
+        }
+    }
+
+    /**
+     * Orders the documents that matched every query word by descending score, then by document.
+     * Scores are small, so this is a counting sort rather than a comparison sort.
+     */
+    private void rank(Results results, int completeStamp) {
+        // Compact the complete matches into the candidate array, in document order.
+        int[] matched = results.candidates;
+        int count = 0;
+        if (results.candidateCount > documentCount / 8) {
+            for (int document = 0; document < documentCount; document++) {
+                if (results.documentQuery[document] == completeStamp) {
+                    matched[count++] = document;
+                }
+            }
+        } else {
+            for (int i = 0; i < results.candidateCount; i++) {
+                if (results.documentQuery[matched[i]] == completeStamp) {
+                    matched[count++] = matched[i];
+                }
+            }
+            Arrays.sort(matched, 0, count);
+        }
+
+        if (results.ranked.length < count) {
+            results.ranked = new int[Math.max(count, results.ranked.length * 2)];
+        }
+        int[] starts = results.scoreStarts;
+        Arrays.fill(starts, 0);
+        for (int i = 0; i < count; i++) {
+            starts[MAX_SCORE - results.documentScore[matched[i]] + 1]++;
+        }
+        for (int score = 1; score < starts.length; score++) {
+            starts[score] += starts[score - 1];
+        }
+        for (int i = 0; i < count; i++) {
+            results.ranked[starts[MAX_SCORE - results.documentScore[matched[i]]]++] = matched[i];
+        }
+        results.size = count;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = words.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (words[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
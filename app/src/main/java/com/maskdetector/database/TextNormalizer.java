@@ -0,0 +1,79 @@
+package com.maskdetector.database;
+
+import java.text.Normalizer;
+
+/**
+ * Folds text for searching: lower case, no diacritics (Latin accents and Arabic harakat alike),
+ * one form per Arabic letter variant, Arabic-Indic digits as ASCII, and everything that is not a
+ * letter or digit as a single space.
+ */
+public final class TextNormalizer {
+    private TextNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = fold(decomposed.charAt(i));
+            if (c == 0) {
+                continue;
+            }
+            if (!Character.isLetterOrDigit(c)) {
+                pendingSpace = builder.length() > 0;
+                continue;
+            }
+
+            if (pendingSpace) {
+                builder.append(' ');
+                pendingSpace = false;
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the folded character, or {@code 0} for characters that are dropped.
+     */
+    private static char fold(char c) {
+        if (Character.getType(c) == Character.NON_SPACING_MARK || Character.getType(c) == Character.ENCLOSING_MARK) {
+            return 0;
+        }
+
+        switch (c) {
+            case 'آ': // alef with madda
+            case 'أ': // alef with hamza above
+            case 'إ': // alef with hamza below
+            case 'ٱ': // alef wasla
+                return 'ا';
+            case 'ى': // alef maksura
+            case 'ئ': // yeh with hamza above
+            case 'ی': // farsi yeh
+                return 'ي';
+            case 'ؤ': // waw with hamza above
+                return 'و';
+            case 'ة': // teh marbuta
+                return 'ه';
+            case 'ک': // keheh
+                return 'ك';
+            case 'ـ': // tatweel
+                return 0;
+            default:
+                break;
+        }
+
+        if (c >= '٠' && c <= '٩') {
+            return (char) ('0' + c - '٠');
+        }
+        if (c >= '۰' && c <= '۹') {
+            return (char) ('0' + c - '۰');
+        }
+        return Character.toLowerCase(c);
+    }
+}
@@ -0,0 +1,45 @@
+package com.maskdetector.database.models;
+
+/**
+ * An immutable latitude/longitude rectangle. Boxes crossing the antimeridian are not supported,
+ * which is fine for the national datasets the app ships.
+ */
+public final class BoundingBox {
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double maxLatitude;
+    private final double maxLongitude;
+
+    public BoundingBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLatitude = maxLatitude;
+        this.maxLongitude = maxLongitude;
+    }
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    public boolean contains(double latitude, double longitude) {
+        return latitude >= minLatitude && latitude <= maxLatitude
+            && longitude >= minLongitude && longitude <= maxLongitude;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundingBox{" + minLatitude + ", " + minLongitude + ", " + maxLatitude + ", " + maxLongitude + '}';
+    }
+}
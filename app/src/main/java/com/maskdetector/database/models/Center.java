@@ -2,32 +2,38 @@ package com.maskdetector.database.models;
 
 public class Center {
     private String name;
-    private String latitude;
-    private String longitude;
+    private double latitude;
+    private double longitude;
     private String address;
 
+    // Computed on first use; the model is not expected to change once loaded.
+    private volatile long contentHash;
+
     public String getName() {
         return name;
     }
 
     public void setName(String name) {
         this.name = name;
+        contentHash = 0;
     }
 
-    public String getLatitude() {
+    public double getLatitude() {
         return latitude;
     }
 
-    public void setLatitude(String latitude) {
+    public void setLatitude(double latitude) {
         this.latitude = latitude;
+        contentHash = 0;
     }
 
-    public String getLongitude() {
+    public double getLongitude() {
         return longitude;
     }
 
-    public void setLongitude(String longitude) {
+    public void setLongitude(double longitude) {
         this.longitude = longitude;
+        contentHash = 0;
     }
 
     public String getAddress() {
@@ -36,14 +42,32 @@ public class Center {
 
     public void setAddress(String address) {
         this.address = address;
+        contentHash = 0;
+    }
+
+    /**
+     * A hash of every field, equal for centers with equal content.
+     */
+    public long getContentHash() {
+        long hash = contentHash;
+        if (hash == 0) {
+            hash = ContentHash.start();
+            hash = ContentHash.add(hash, name);
+            hash = ContentHash.add(hash, Double.doubleToLongBits(latitude));
+            hash = ContentHash.add(hash, Double.doubleToLongBits(longitude));
+            hash = ContentHash.add(hash, address);
+            hash = ContentHash.finish(hash);
+            contentHash = hash;
+        }
+        return hash;
     }
 
     @Override
     public String toString() {
         return "Center{" +
                 "name='" + name + '\'' +
-                ", latitude='" + latitude + '\'' +
-                ", longitude='" + longitude + '\'' +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
                 ", address='" + address + '\'' +
                 '}';
     }
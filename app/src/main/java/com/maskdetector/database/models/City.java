@@ -1,7 +1,5 @@
 package com.maskdetector.database.models;
 
-import com.google.android.gms.maps.model.LatLng;
-
 import java.util.List;
 
 public class City {
@@ -9,12 +7,23 @@ public class City {
     private String city_name;
     private List<Center> centers;
 
+    // Aggregates over the centers, computed once when the centers are set.
+    private BoundingBox bounds;
+    private double centroidLatitude = Double.NaN;
+    private double centroidLongitude = Double.NaN;
+
+    // Kept up to date by the setters, or stored with lazily loaded centers, so that reading it
+    // never walks the centers.
+    private long contentHash = computeContentHash();
+    private boolean lazyCenters;
+
     public Integer getId() {
         return id;
     }
 
     public void setId(Integer id) {
         this.id = id;
+        updateContentHash();
     }
 
     public String getCity_name() {
@@ -23,6 +32,7 @@ public class City {
 
     public void setCity_name(String city_name) {
         this.city_name = city_name;
+        updateContentHash();
     }
 
     public List<Center> getCenters() {
@@ -31,6 +41,92 @@ public class City {
 
     public void setCenters(List<Center> centers) {
         this.centers = centers;
+        lazyCenters = false;
+        updateContentHash();
+
+        bounds = null;
+        centroidLatitude = Double.NaN;
+        centroidLongitude = Double.NaN;
+        if (centers == null || centers.isEmpty()) {
+            return;
+        }
+
+        double sumLatitude = 0, sumLongitude = 0;
+        double minLatitude = Double.POSITIVE_INFINITY, minLongitude = Double.POSITIVE_INFINITY;
+        double maxLatitude = Double.NEGATIVE_INFINITY, maxLongitude = Double.NEGATIVE_INFINITY;
+        for (Center center : centers) {
+            sumLatitude += center.getLatitude();
+            sumLongitude += center.getLongitude();
+            minLatitude = Math.min(minLatitude, center.getLatitude());
+            minLongitude = Math.min(minLongitude, center.getLongitude());
+            maxLatitude = Math.max(maxLatitude, center.getLatitude());
+            maxLongitude = Math.max(maxLongitude, center.getLongitude());
+        }
+        bounds = new BoundingBox(minLatitude, minLongitude, maxLatitude, maxLongitude);
+        centroidLatitude = sumLatitude / centers.size();
+        centroidLongitude = sumLongitude / centers.size();
+    }
+
+    /**
+     * Sets centers whose aggregates and content hash are already known, e.g. a lazily loaded list
+     * that should not be walked. The id and name must be set before.
+     */
+    public void setCenters(List<Center> centers, BoundingBox bounds, double centroidLatitude, double centroidLongitude,
+                           long contentHash) {
+        this.centers = centers;
+        this.lazyCenters = true;
+        this.contentHash = contentHash;
+        this.bounds = bounds;
+        this.centroidLatitude = centroidLatitude;
+        this.centroidLongitude = centroidLongitude;
+    }
+
+    public int getCenterCount() {
+        return centers != null ? centers.size() : 0;
+    }
+
+    /**
+     * The box around all centers, or {@code null} for a city without centers.
+     */
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Mean latitude of the centers, {@code NaN} for a city without centers.
+     */
+    public double getCentroidLatitude() {
+        return centroidLatitude;
+    }
+
+    public double getCentroidLongitude() {
+        return centroidLongitude;
+    }
+
+    /**
+     * A hash of the id, name and every center, equal for cities with equal content, so list diffs
+     * can compare two cities without walking their centers.
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    private void updateContentHash() {
+        if (lazyCenters) {
+            throw new IllegalStateException("Cannot rehash " + city_name + " without loading its centers.");
+        }
+        contentHash = computeContentHash();
+    }
+
+    private long computeContentHash() {
+        long hash = ContentHash.start();
+        hash = ContentHash.add(hash, id != null ? id : -1L);
+        hash = ContentHash.add(hash, city_name);
+        hash = ContentHash.add(hash, getCenterCount());
+        for (int i = 0; i < getCenterCount(); i++) {
+            hash = ContentHash.add(hash, centers.get(i).getContentHash());
+        }
+        return ContentHash.finish(hash);
     }
 
     @Override
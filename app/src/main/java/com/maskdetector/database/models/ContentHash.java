@@ -0,0 +1,43 @@
+package com.maskdetector.database.models;
+
+/**
+ * 64-bit FNV-1a hashing used for the content hashes of the models. Zero is reserved for "not
+ * computed yet".
+ */
+final class ContentHash {
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private ContentHash() {
+    }
+
+    static long start() {
+        return OFFSET_BASIS;
+    }
+
+    static long add(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ (value & 0xff)) * PRIME;
+            value >>>= 8;
+        }
+        return hash;
+    }
+
+    static long add(long hash, String value) {
+        if (value == null) {
+            return add(hash, -1L);
+        }
+
+        hash = add(hash, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xff)) * PRIME;
+            hash = (hash ^ (c >>> 8)) * PRIME;
+        }
+        return hash;
+    }
+
+    static long finish(long hash) {
+        return hash != 0 ? hash : 1;
+    }
+}
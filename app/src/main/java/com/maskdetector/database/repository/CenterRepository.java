@@ -1,17 +1,98 @@
 package com.maskdetector.database.repository;
 
-import com.google.gson.Gson;
+import android.content.Context;
+
+import com.maskdetector.database.CenterIndex;
+import com.maskdetector.database.models.BoundingBox;
 import com.maskdetector.database.models.Center;
+import com.maskdetector.database.models.City;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Spatial queries over the centers of every city. The index is built once per loaded dataset
+ * and shared by all instances. Methods may load the dataset and should not be called from the
+ * main thread.
+ */
 public class CenterRepository {
+    private static final class IndexedCenters {
+        final List<City> cities;
+        final List<Center> centers;
+        final CenterIndex index;
+
+        IndexedCenters(List<City> cities) {
+            this.cities = cities;
+
+            List<Center> centers = new ArrayList<>();
+            for (City city : cities) {
+                centers.addAll(city.getCenters());
+            }
+            double[] latitudes = new double[centers.size()];
+            double[] longitudes = new double[centers.size()];
+            for (int i = 0; i < centers.size(); i++) {
+                latitudes[i] = centers.get(i).getLatitude();
+                longitudes[i] = centers.get(i).getLongitude();
+            }
+
+            this.centers = Collections.unmodifiableList(centers);
+            this.index = new CenterIndex(latitudes, longitudes, centers.size(), 0);
+        }
+    }
+
+    private static volatile IndexedCenters indexedCenters;
+
+    private final CityRepository cityRepository;
+
+    public CenterRepository(Context context) {
+        this.cityRepository = new CityRepository(context);
+    }
 
     public List<Center> getAllCenters() {
-        List<Center> centers = new ArrayList<>();
-        Gson gson = new Gson();
+        return getIndexedCenters().centers;
+    }
+
+    /**
+     * Returns up to {@code count} centers closest to the point, nearest first.
+     */
+    public List<Center> findNearest(double latitude, double longitude, int count) {
+        IndexedCenters indexed = getIndexedCenters();
+        CenterIndex.Results results = new CenterIndex.Results();
+        indexed.index.findNearest(latitude, longitude, count, results);
+        return toCenters(indexed, results);
+    }
+
+    public List<Center> findWithinRadius(double latitude, double longitude, double radiusMeters) {
+        IndexedCenters indexed = getIndexedCenters();
+        CenterIndex.Results results = new CenterIndex.Results();
+        indexed.index.findWithinRadius(latitude, longitude, radiusMeters, results);
+        return toCenters(indexed, results);
+    }
+
+    public List<Center> findInBounds(BoundingBox bounds) {
+        IndexedCenters indexed = getIndexedCenters();
+        CenterIndex.Results results = new CenterIndex.Results();
+        indexed.index.findInBounds(bounds, results);
+        return toCenters(indexed, results);
+    }
+
+    private IndexedCenters getIndexedCenters() {
+        List<City> cities = cityRepository.getAllCities();
+        IndexedCenters indexed = indexedCenters;
+        // The city cache hands out the same list until the dataset changes.
+        if (indexed == null || indexed.cities != cities) {
+            indexed = new IndexedCenters(cities);
+            indexedCenters = indexed;
+        }
+        return indexed;
+    }
 
+    private static List<Center> toCenters(IndexedCenters indexed, CenterIndex.Results results) {
+        List<Center> centers = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            centers.add(indexed.centers.get(results.getCenter(i)));
+        }
         return centers;
     }
 }
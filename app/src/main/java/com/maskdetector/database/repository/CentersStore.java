@@ -0,0 +1,411 @@
+package com.maskdetector.database.repository;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.maskdetector.database.CentersSnapshot;
+import com.maskdetector.database.SearchIndex;
+import com.maskdetector.database.TextNormalizer;
+import com.maskdetector.database.models.BoundingBox;
+import com.maskdetector.database.models.Center;
+import com.maskdetector.database.models.City;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SQLite copy of the centers dataset, filled once from the bundled snapshot and refilled only
+ * when the snapshot checksum changes. Cities are read a page at a time and their centers only
+ * when first needed. Searches go through a table of normalized words and rank matches like
+ * {@link SearchIndex}; coordinate lookups go through an R*Tree, or an index on latitude and
+ * longitude where the platform SQLite lacks the rtree module.
+ */
+public final class CentersStore extends SQLiteOpenHelper {
+    private static final String TAG = "CentersStore";
+    private static final String DATABASE_NAME = "centers.db";
+    private static final int SCHEMA_VERSION = 3;
+    private static final String META_DATASET_HASH = "dataset_hash";
+    // Sorts after every word continuing a prefix, so [word, word + this) holds exactly those.
+    private static final String PREFIX_END = new String(Character.toChars(Character.MAX_CODE_POINT));
+
+    private static final String CITY_COLUMNS = "id, name, center_count, centroid_latitude, centroid_longitude, "
+        + "min_latitude, min_longitude, max_latitude, max_longitude, content_hash";
+    private static final String CENTER_COLUMNS = "name, address, latitude, longitude";
+
+    private static CentersStore instance;
+
+    private volatile boolean hasRtree;
+
+    public static synchronized CentersStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new CentersStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private CentersStore(Context context) {
+        super(context, DATABASE_NAME, null, SCHEMA_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE meta (key TEXT PRIMARY KEY, value TEXT NOT NULL)");
+        db.execSQL("CREATE TABLE cities (id INTEGER PRIMARY KEY, position INTEGER NOT NULL UNIQUE, name TEXT, "
+            + "center_count INTEGER NOT NULL, centroid_latitude REAL, centroid_longitude REAL, "
+            + "min_latitude REAL, min_longitude REAL, max_latitude REAL, max_longitude REAL, "
+            + "content_hash INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE centers (id INTEGER PRIMARY KEY, city_id INTEGER NOT NULL, name TEXT, address TEXT, "
+            + "latitude REAL NOT NULL, longitude REAL NOT NULL)");
+        db.execSQL("CREATE INDEX centers_city ON centers (city_id, id)");
+        db.execSQL("CREATE INDEX centers_location ON centers (latitude, longitude)");
+        // One row per distinct word of a document, with the best field it appears in. Documents are
+        // numbered like SearchIndex: each city, then each of its centers.
+        db.execSQL("CREATE TABLE search_words (word TEXT NOT NULL, document INTEGER NOT NULL, "
+            + "city_position INTEGER NOT NULL, field INTEGER NOT NULL, PRIMARY KEY (word, document)) WITHOUT ROWID");
+        try {
+            db.execSQL("CREATE VIRTUAL TABLE centers_rtree USING rtree "
+                + "(id, min_latitude, max_latitude, min_longitude, max_longitude)");
+        } catch (SQLiteException exception) {
+            Log.w(TAG, "No rtree module, bounds queries use the location index.", exception);
+        }
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        hasRtree = DatabaseUtils.longForQuery(db,
+            "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = 'centers_rtree'", null) > 0;
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The content is a copy of the bundled dataset, so it is simply rebuilt.
+        db.execSQL("DROP TABLE IF EXISTS meta");
+        db.execSQL("DROP TABLE IF EXISTS cities");
+        db.execSQL("DROP TABLE IF EXISTS centers");
+        db.execSQL("DROP TABLE IF EXISTS cities_fts");
+        db.execSQL("DROP TABLE IF EXISTS centers_fts");
+        db.execSQL("DROP TABLE IF EXISTS search_words");
+        db.execSQL("DROP TABLE IF EXISTS centers_rtree");
+        onCreate(db);
+    }
+
+    /**
+     * Fills the tables from {@code snapshot} unless they already hold the same dataset. Blocks, so
+     * call it off the main thread.
+     */
+    public synchronized void populate(CentersSnapshot snapshot) {
+        long datasetHash = snapshot.getChecksum();
+        SQLiteDatabase db = getWritableDatabase();
+        String stored = DatabaseUtils.stringForQuery(db,
+            "SELECT COALESCE((SELECT value FROM meta WHERE key = ?), '')", new String[]{META_DATASET_HASH});
+        if (stored.equals(Long.toString(datasetHash))) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        db.beginTransaction();
+        try {
+            db.execSQL("DELETE FROM cities");
+            db.execSQL("DELETE FROM centers");
+            db.execSQL("DELETE FROM search_words");
+            if (hasRtree) {
+                db.execSQL("DELETE FROM centers_rtree");
+            }
+
+            SQLiteStatement insertCity = db.compileStatement("INSERT INTO cities (position, " + CITY_COLUMNS
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            SQLiteStatement insertCenter = db.compileStatement("INSERT INTO centers (id, city_id, " + CENTER_COLUMNS
+                + ") VALUES (?, ?, ?, ?, ?, ?)");
+            SQLiteStatement insertWord = db.compileStatement("INSERT INTO search_words (word, document, city_position, field) "
+                + "VALUES (?, ?, ?, ?)");
+            SQLiteStatement insertBounds = hasRtree ? db.compileStatement("INSERT INTO centers_rtree "
+                + "(id, min_latitude, max_latitude, min_longitude, max_longitude) VALUES (?, ?, ?, ?, ?)") : null;
+            Map<String, Integer> words = new HashMap<>();
+            int document = 0;
+
+            for (int position = 0; position < snapshot.getCityCount(); position++) {
+                City city = snapshot.getCity(position);
+                BoundingBox bounds = city.getBounds();
+                insertCity.clearBindings();
+                insertCity.bindLong(1, position);
+                insertCity.bindLong(2, city.getId());
+                bindString(insertCity, 3, city.getCity_name());
+                insertCity.bindLong(4, city.getCenterCount());
+                if (bounds != null) {
+                    insertCity.bindDouble(5, city.getCentroidLatitude());
+                    insertCity.bindDouble(6, city.getCentroidLongitude());
+                    insertCity.bindDouble(7, bounds.getMinLatitude());
+                    insertCity.bindDouble(8, bounds.getMinLongitude());
+                    insertCity.bindDouble(9, bounds.getMaxLatitude());
+                    insertCity.bindDouble(10, bounds.getMaxLongitude());
+                }
+                insertCity.bindLong(11, city.getContentHash());
+                insertCity.executeInsert();
+
+                addWords(words, city.getCity_name(), SearchIndex.FIELD_CITY_NAME);
+                insertWords(insertWord, words, document++, position);
+
+                int firstCenter = snapshot.getFirstCenter(position);
+                for (int center = firstCenter; center < firstCenter + city.getCenterCount(); center++) {
+                    insertCenter.clearBindings();
+                    insertCenter.bindLong(1, center);
+                    insertCenter.bindLong(2, city.getId());
+                    bindString(insertCenter, 3, snapshot.getCenterName(center));
+                    bindString(insertCenter, 4, snapshot.getCenterAddress(center));
+                    insertCenter.bindDouble(5, snapshot.getLatitude(center));
+                    insertCenter.bindDouble(6, snapshot.getLongitude(center));
+                    insertCenter.executeInsert();
+
+                    if (insertBounds != null) {
+                        insertBounds.bindLong(1, center);
+                        insertBounds.bindDouble(2, snapshot.getLatitude(center));
+                        insertBounds.bindDouble(3, snapshot.getLatitude(center));
+                        insertBounds.bindDouble(4, snapshot.getLongitude(center));
+                        insertBounds.bindDouble(5, snapshot.getLongitude(center));
+                        insertBounds.executeInsert();
+                    }
+
+                    addWords(words, snapshot.getCenterName(center), SearchIndex.FIELD_CENTER_NAME);
+                    addWords(words, snapshot.getCenterAddress(center), SearchIndex.FIELD_ADDRESS);
+                    insertWords(insertWord, words, document++, position);
+                }
+            }
+
+            ContentValues meta = new ContentValues();
+            meta.put("key", META_DATASET_HASH);
+            meta.put("value", Long.toString(datasetHash));
+            db.insertWithOnConflict("meta", null, meta, SQLiteDatabase.CONFLICT_REPLACE);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.d(TAG, "Stored " + snapshot.getCityCount() + " cities and " + snapshot.getCenterCount() + " centers in "
+            + (System.nanoTime() - startNanos) / 1000000 + " ms");
+    }
+
+    public int getCityCount() {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), "cities");
+    }
+
+    /**
+     * Returns up to {@code limit} cities in dataset order, starting at {@code offset}.
+     */
+    public List<City> loadCities(int offset, int limit) {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT " + CITY_COLUMNS
+                + " FROM cities WHERE position >= ? ORDER BY position LIMIT ?",
+                new String[]{Integer.toString(offset), Integer.toString(limit)})) {
+            return readCities(cursor);
+        }
+    }
+
+    public List<Center> loadCenters(int cityId) {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT " + CENTER_COLUMNS
+                + " FROM centers WHERE city_id = ? ORDER BY id", new String[]{Integer.toString(cityId)})) {
+            return readCenters(cursor);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} cities matching every word of the query as a word prefix, in the
+     * order of their best match as ranked by {@link SearchIndex}. A query without words matches
+     * nothing.
+     */
+    public List<City> searchCities(String query, int limit) {
+        String normalized = TextNormalizer.normalize(query);
+        if (normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        String[] queryWords = normalized.split(" ");
+        int wordCount = Math.min(queryWords.length, SearchIndex.MAX_QUERY_WORDS);
+        // Best score of every query word per document, summed over the documents matching all of them.
+        StringBuilder sql = new StringBuilder("SELECT city_position FROM (");
+        String[] args = new String[wordCount * 3];
+        for (int q = 0; q < wordCount; q++) {
+            sql.append(q > 0 ? " UNION ALL " : "")
+                .append("SELECT document, city_position, MAX(field * CASE WHEN word = ? THEN ")
+                .append(SearchIndex.SCORE_WORD).append(" ELSE ").append(SearchIndex.SCORE_PREFIX)
+                .append(" END) AS score FROM search_words WHERE word >= ? AND word < ? GROUP BY document");
+            args[q * 3] = queryWords[q];
+            args[q * 3 + 1] = queryWords[q];
+            args[q * 3 + 2] = queryWords[q] + PREFIX_END;
+        }
+        sql.append(") GROUP BY document HAVING COUNT(*) = ").append(wordCount)
+            .append(" ORDER BY SUM(score) DESC, document");
+
+        SQLiteDatabase db = getReadableDatabase();
+        Set<Integer> positions = new LinkedHashSet<>();
+        try (Cursor cursor = db.rawQuery(sql.toString(), args)) {
+            while (positions.size() < limit && cursor.moveToNext()) {
+                positions.add(cursor.getInt(0));
+            }
+        }
+        if (positions.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        StringBuilder positionList = new StringBuilder();
+        for (Integer position : positions) {
+            positionList.append(positionList.length() > 0 ? "," : "").append(position);
+        }
+        Map<Integer, City> cities = new HashMap<>();
+        try (Cursor cursor = db.rawQuery("SELECT position, " + CITY_COLUMNS + " FROM cities WHERE position IN ("
+                + positionList + ")", null)) {
+            while (cursor.moveToNext()) {
+                cities.put(cursor.getInt(0), readCity(cursor, 1));
+            }
+        }
+
+        List<City> ranked = new ArrayList<>(cities.size());
+        for (Integer position : positions) {
+            ranked.add(cities.get(position));
+        }
+        return ranked;
+    }
+
+    /**
+     * Returns up to {@code limit} centers inside {@code bounds}, leaving out those of the city
+     * {@code excludedCityId}.
+     */
+    public List<Center> findCentersInBounds(BoundingBox bounds, int excludedCityId, int limit) {
+        // Opening the database first settles whether the R*Tree exists.
+        SQLiteDatabase db = getReadableDatabase();
+        String[] args = {
+            Double.toString(bounds.getMinLatitude()), Double.toString(bounds.getMaxLatitude()),
+            Double.toString(bounds.getMinLongitude()), Double.toString(bounds.getMaxLongitude()),
+            Integer.toString(excludedCityId), Integer.toString(limit)
+        };
+        String sql;
+        if (hasRtree) {
+            // The R*Tree stores 32-bit floats rounded outwards, so it only narrows the candidates down.
+            sql = "SELECT " + CENTER_COLUMNS + " FROM centers WHERE id IN (SELECT id FROM centers_rtree "
+                + "WHERE max_latitude >= ?1 AND min_latitude <= ?2 AND max_longitude >= ?3 AND min_longitude <= ?4) "
+                + "AND latitude BETWEEN ?1 AND ?2 AND longitude BETWEEN ?3 AND ?4 AND city_id != ?5 LIMIT ?6";
+        } else {
+            sql = "SELECT " + CENTER_COLUMNS + " FROM centers "
+                + "WHERE latitude BETWEEN ?1 AND ?2 AND longitude BETWEEN ?3 AND ?4 AND city_id != ?5 LIMIT ?6";
+        }
+        try (Cursor cursor = db.rawQuery(sql, args)) {
+            return readCenters(cursor);
+        }
+    }
+
+    private List<City> readCities(Cursor cursor) {
+        List<City> cities = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            cities.add(readCity(cursor, 0));
+        }
+        return cities;
+    }
+
+    /**
+     * Reads the {@link #CITY_COLUMNS} of the current row, starting at column {@code first}.
+     */
+    private City readCity(Cursor cursor, int first) {
+        City city = new City();
+        city.setId(cursor.getInt(first));
+        city.setCity_name(cursor.getString(first + 1));
+        BoundingBox bounds = cursor.isNull(first + 5) ? null : new BoundingBox(cursor.getDouble(first + 5),
+            cursor.getDouble(first + 6), cursor.getDouble(first + 7), cursor.getDouble(first + 8));
+        city.setCenters(new CenterList(city.getId(), cursor.getInt(first + 2)),
+            bounds,
+            cursor.isNull(first + 3) ? Double.NaN : cursor.getDouble(first + 3),
+            cursor.isNull(first + 4) ? Double.NaN : cursor.getDouble(first + 4),
+            cursor.getLong(first + 9));
+        return city;
+    }
+
+    private static void addWords(Map<String, Integer> words, String text, int field) {
+        String normalized = TextNormalizer.normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+
+        for (String word : normalized.split(" ")) {
+            Integer previous = words.get(word);
+            if (previous == null || previous < field) {
+                words.put(word, field);
+            }
+        }
+    }
+
+    /**
+     * Inserts the words collected for one document and clears them.
+     */
+    private static void insertWords(SQLiteStatement insertWord, Map<String, Integer> words, int document, int cityPosition) {
+        for (Map.Entry<String, Integer> word : words.entrySet()) {
+            insertWord.bindString(1, word.getKey());
+            insertWord.bindLong(2, document);
+            insertWord.bindLong(3, cityPosition);
+            insertWord.bindLong(4, word.getValue());
+            insertWord.executeInsert();
+        }
+        words.clear();
+    }
+
+    private static List<Center> readCenters(Cursor cursor) {
+        List<Center> centers = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            Center center = new Center();
+            center.setName(cursor.getString(0));
+            center.setAddress(cursor.getString(1));
+            center.setLatitude(cursor.getDouble(2));
+            center.setLongitude(cursor.getDouble(3));
+            centers.add(center);
+        }
+        return centers;
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    /**
+     * The centers of one city, queried on the first access to an element. The size is known
+     * upfront so list rows can show it without touching the database.
+     */
+    private final class CenterList extends AbstractList<Center> {
+        private final int cityId;
+        private final int size;
+        private List<Center> centers;
+
+        CenterList(int cityId, int size) {
+            this.cityId = cityId;
+            this.size = size;
+        }
+
+        @Override
+        public Center get(int index) {
+            return load().get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        private synchronized List<Center> load() {
+            if (centers == null) {
+                centers = loadCenters(cityId);
+            }
+            return centers;
+        }
+    }
+}
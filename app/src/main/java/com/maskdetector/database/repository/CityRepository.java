@@ -1,26 +1,203 @@
 package com.maskdetector.database.repository;
 
 import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
+import android.database.sqlite.SQLiteException;
+import android.util.Log;
 
-import com.google.gson.Gson;
-import com.maskdetector.database.CitiesData;
+import com.maskdetector.database.CentersSnapshot;
+import com.maskdetector.database.CitiesJsonReader;
+import com.maskdetector.database.CityCache;
 import com.maskdetector.database.models.City;
-import com.maskdetector.utils.Utils;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class CityRepository {
     public static final String DATABASE_CITIES_JSON = "database/centersdata.json";
+    public static final String DATABASE_CENTERS_SNAPSHOT = "database/centers.bin";
+
+    private static final String TAG = "CityRepository";
+    private static final int DELIVERY_BATCH_SIZE = 16;
+
+    // Shared by every repository instance so fragment recreation and refreshes reuse the parsed data.
+    private static final CityCache CACHE = new CityCache();
+    // The dataset ships inside the APK and an app update restarts the process, so the version is
+    // read once per process.
+    private static volatile long dataVersion = -1;
+
+    public interface Listener {
+        /**
+         * Receives every city parsed so far, first after the first city and then every few
+         * cities; {@code complete} is set on the last call. A cached dataset arrives in one call.
+         */
+        void onCitiesLoaded(List<City> cities, boolean complete);
+
+        void onError(IOException exception);
+    }
 
-    private final Gson gson = new Gson();
     private final Context context;
 
     public CityRepository(Context context) {
-        this.context = context;
+        this.context = context.getApplicationContext();
     }
 
+    public static CityCache getCache() {
+        return CACHE;
+    }
+
+    /**
+     * Returns every city, or an empty list if the dataset cannot be read. Failures are not cached,
+     * so the next call reads the dataset again.
+     */
     public List<City> getAllCities() {
-        CitiesData citiesData = gson.fromJson(Utils.getJsonFromAssets(context, DATABASE_CITIES_JSON), CitiesData.class);
-        return citiesData.getData();
+        try {
+            return CACHE.getOrLoad(getDataVersion(), new CityCache.Loader() {
+                @Override
+                public List<City> load() throws IOException {
+                    CentersSnapshot snapshot = openSnapshot();
+                    if (snapshot != null) {
+                        return snapshot.getCities();
+                    }
+
+                    try (InputStream inputStream = context.getAssets().open(DATABASE_CITIES_JSON)) {
+                        List<String> rejections = new ArrayList<>();
+                        List<City> cities = CitiesJsonReader.readAll(inputStream, rejections);
+                        for (String rejection : rejections) {
+                            Log.w(TAG, rejection);
+                        }
+                        return cities;
+                    }
+                }
+            }).getCities();
+        } catch (IOException exception) {
+            Log.e(TAG, "Could not read " + DATABASE_CITIES_JSON, exception);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Delivers the cached dataset, or parses it on {@code executor} and delivers growing snapshots
+     * of the city list on {@code callbackExecutor}. Cancelling the returned future stops the parser.
+     */
+    public Future<?> loadCities(ExecutorService executor, final Executor callbackExecutor, final Listener listener) {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                long version = getDataVersion();
+                CityCache.Snapshot cached = CACHE.get(version);
+                if (cached != null) {
+                    deliver(cached.getCities(), true);
+                    return;
+                }
+
+                long startNanos = System.nanoTime();
+                CentersSnapshot snapshot = openSnapshot();
+                if (snapshot != null) {
+                    deliver(CACHE.put(version, snapshot.getCities(), System.nanoTime() - startNanos).getCities(), true);
+                    Log.d(TAG, "Mapped " + snapshot.getCityCount() + " cities, " + CACHE);
+                    return;
+                }
+
+                // Only builds without the compiled snapshot get here.
+                final List<City> cities = new ArrayList<>();
+                try (InputStream inputStream = context.getAssets().open(DATABASE_CITIES_JSON)) {
+                    CitiesJsonReader.read(inputStream, new CitiesJsonReader.Handler() {
+                        @Override
+                        public void onCity(City city) {
+                            cities.add(city);
+                            if (cities.size() % DELIVERY_BATCH_SIZE == 1) {
+                                deliver(Collections.unmodifiableList(new ArrayList<>(cities)), false);
+                            }
+                        }
+
+                        @Override
+                        public void onCenterRejected(String reason) {
+                            Log.w(TAG, reason);
+                        }
+                    });
+                    deliver(CACHE.put(version, cities, System.nanoTime() - startNanos).getCities(), true);
+                    Log.d(TAG, "Loaded " + cities.size() + " cities, " + CACHE);
+                } catch (InterruptedIOException exception) {
+                    // Cancelled, nobody is waiting for the result.
+                } catch (final IOException exception) {
+                    callbackExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onError(exception);
+                        }
+                    });
+                }
+            }
+
+            private void deliver(final List<City> snapshot, final boolean complete) {
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onCitiesLoaded(snapshot, complete);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns the SQLite store, filled from the snapshot on first use or after an app update
+     * changed the dataset, or {@code null} if there is no snapshot or the store cannot be written.
+     * Blocks, so call it off the main thread.
+     */
+    public CentersStore openStore() {
+        CentersSnapshot snapshot = openSnapshot();
+        if (snapshot == null) {
+            return null;
+        }
+
+        CentersStore store = CentersStore.getInstance(context);
+        try {
+            store.populate(snapshot);
+            return store;
+        } catch (SQLiteException exception) {
+            Log.e(TAG, "Could not fill the centers store.", exception);
+            return null;
+        }
+    }
+
+    /**
+     * Maps the snapshot compiled from the JSON dataset at build time, or returns {@code null} if
+     * it is missing or unreadable.
+     */
+    private CentersSnapshot openSnapshot() {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(DATABASE_CENTERS_SNAPSHOT);
+             FileInputStream inputStream = descriptor.createInputStream()) {
+            return CentersSnapshot.map(inputStream.getChannel(), descriptor.getStartOffset(), descriptor.getDeclaredLength());
+        } catch (IOException exception) {
+            Log.w(TAG, "Could not map " + DATABASE_CENTERS_SNAPSHOT + ", falling back to JSON.", exception);
+            return null;
+        }
+    }
+
+    /**
+     * The dataset ships inside the APK, so it can only change when the app is updated.
+     */
+    private long getDataVersion() {
+        long version = dataVersion;
+        if (version < 0) {
+            try {
+                version = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+            } catch (PackageManager.NameNotFoundException exception) {
+                version = 0;
+            }
+            dataVersion = version;
+        }
+        return version;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,246 @@
+package com.maskdetector.detection.batch;
+
+import com.maskdetector.detection.env.FramePreprocessor;
+import com.maskdetector.detection.face.FaceBox;
+import com.maskdetector.detection.face.FaceCropper;
+import com.maskdetector.detection.face.FaceDetector;
+import com.maskdetector.detection.inference.InferenceEngine;
+import com.maskdetector.detection.inference.MaskClassifier;
+import com.maskdetector.detection.pipeline.LatencyHistogram;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Classifies every item of a {@link BatchSource} offline, through the same detection, cropping
+ * and {@link MaskClassifier} path as the camera.
+ * <p>
+ * The calling thread decodes while a pool of workers classifies, each with its own interpreter.
+ * Decoding fills a fixed pool of {@link BatchFrame}s and waits when all of them are in flight,
+ * so memory stays bounded however far the decoder is ahead.
+ */
+public final class BatchClassifier {
+    public interface WorkerFactory {
+        /**
+         * A new interpreter for one worker, only ever called from that worker's thread.
+         */
+        InferenceEngine newEngine() throws IOException;
+
+        FramePreprocessor newFramePreprocessor();
+
+        FaceDetector newFaceDetector();
+    }
+
+    public static final class Summary {
+        private final long itemCount;
+        private final long faceCount;
+        private final long elapsedNanos;
+        private final LatencyHistogram.Snapshot itemLatency;
+
+        private Summary(long itemCount, long faceCount, long elapsedNanos, LatencyHistogram.Snapshot itemLatency) {
+            this.itemCount = itemCount;
+            this.faceCount = faceCount;
+            this.elapsedNanos = elapsedNanos;
+            this.itemLatency = itemLatency;
+        }
+
+        public long getItemCount() {
+            return itemCount;
+        }
+
+        public long getFaceCount() {
+            return faceCount;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getItemsPerSecond() {
+            return elapsedNanos > 0 ? itemCount * 1e9 / elapsedNanos : 0;
+        }
+
+        /**
+         * Time a worker spent on each item, from detection to the sink.
+         */
+        public LatencyHistogram.Snapshot getItemLatency() {
+            return itemLatency;
+        }
+    }
+
+    // Tells a worker that decoding is over.
+    private static final BatchFrame END = new BatchFrame();
+
+    private final WorkerFactory workerFactory;
+    private final String[] labels;
+    private final int workerCount;
+    private final int queueDepth;
+    private final int maxFaces;
+    private final float cropMargin;
+
+    /**
+     * @param queueDepth decoded items allowed to wait for a worker.
+     * @param cropMargin growth of the detected boxes before cropping, as in the camera path.
+     */
+    public BatchClassifier(WorkerFactory workerFactory, String[] labels, int workerCount, int queueDepth,
+                           int maxFaces, float cropMargin) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be positive.");
+        }
+        if (queueDepth < 1) {
+            throw new IllegalArgumentException("queueDepth must be positive.");
+        }
+
+        this.workerFactory = workerFactory;
+        this.labels = labels;
+        this.workerCount = workerCount;
+        this.queueDepth = queueDepth;
+        this.maxFaces = maxFaces;
+        this.cropMargin = cropMargin;
+    }
+
+    /**
+     * Classifies the whole source into the sink and returns once every result is written. The
+     * first error of a worker stops decoding and is rethrown here; neither the source nor the
+     * sink is closed.
+     */
+    public Summary run(BatchSource source, BatchSink sink) throws IOException, InterruptedException {
+        int frameCount = workerCount + queueDepth;
+        BlockingQueue<BatchFrame> freeFrames = new ArrayBlockingQueue<>(frameCount);
+        for (int i = 0; i < frameCount; i++) {
+            freeFrames.add(new BatchFrame());
+        }
+        // Never holds more than the pooled frames plus one END per worker.
+        BlockingQueue<BatchFrame> pendingFrames = new LinkedBlockingQueue<>();
+
+        Run run = new Run(sink, freeFrames, pendingFrames);
+        List<Thread> threads = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            Thread thread = new Thread(run::work, "batch-worker-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            long index = 0;
+            while (run.failure.get() == null) {
+                BatchFrame frame = freeFrames.take();
+                if (!source.next(frame)) {
+                    break;
+                }
+                frame.setIndex(index++);
+                pendingFrames.put(frame);
+            }
+        } finally {
+            for (int i = 0; i < workerCount; i++) {
+                pendingFrames.put(END);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        Throwable failure = run.failure.get();
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException("A batch worker failed.", failure);
+        }
+        return new Summary(run.itemCount.get(), run.faceCount.get(), elapsedNanos, run.itemLatency.snapshot());
+    }
+
+    private final class Run {
+        private final BatchSink sink;
+        private final BlockingQueue<BatchFrame> freeFrames;
+        private final BlockingQueue<BatchFrame> pendingFrames;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final AtomicLong itemCount = new AtomicLong();
+        private final AtomicLong faceCount = new AtomicLong();
+        private final LatencyHistogram itemLatency = new LatencyHistogram();
+
+        private Run(BatchSink sink, BlockingQueue<BatchFrame> freeFrames, BlockingQueue<BatchFrame> pendingFrames) {
+            this.sink = sink;
+            this.freeFrames = freeFrames;
+            this.pendingFrames = pendingFrames;
+        }
+
+        private void work() {
+            MaskClassifier classifier = null;
+            FaceDetector faceDetector = null;
+            try {
+                FramePreprocessor framePreprocessor = workerFactory.newFramePreprocessor();
+                classifier = new MaskClassifier(workerFactory.newEngine(), labels,
+                    framePreprocessor.getOutputSizeInBytes(), 1, maxFaces);
+                faceDetector = workerFactory.newFaceDetector();
+                classify(classifier, faceDetector, new FaceCropper(framePreprocessor, cropMargin));
+            } catch (Throwable throwable) {
+                failure.compareAndSet(null, throwable);
+                drain();
+            } finally {
+                if (classifier != null) {
+                    classifier.close();
+                }
+                if (faceDetector != null) {
+                    faceDetector.close();
+                }
+            }
+        }
+
+        private void classify(MaskClassifier classifier, FaceDetector faceDetector, FaceCropper faceCropper)
+            throws IOException, InterruptedException {
+            MaskClassifier.Slot slot = classifier.acquire();
+            BatchResult result = new BatchResult(labels, maxFaces);
+            FaceBox[] faces = result.getFaces();
+
+            BatchFrame frame;
+            while ((frame = pendingFrames.take()) != END) {
+                try {
+                    if (failure.get() != null) {
+                        continue;
+                    }
+
+                    long startNanos = System.nanoTime();
+                    int rotationDegrees = frame.getRotationDegrees();
+                    int count = faceDetector.detect(frame.getFrame(), rotationDegrees, false, faces);
+                    for (int face = 0; face < count; face++) {
+                        faceCropper.crop(frame.getFrame(), rotationDegrees, false, faces[face], slot.getInputBuffer(face));
+                    }
+                    slot.setFaceCount(count);
+                    classifier.classify(slot, result.getScores());
+
+                    result.set(frame.getName(), frame.getIndex(), count);
+                    sink.write(result);
+                    itemLatency.record(System.nanoTime() - startNanos);
+                    itemCount.incrementAndGet();
+                    faceCount.addAndGet(count);
+                } finally {
+                    freeFrames.put(frame);
+                }
+            }
+        }
+
+        /**
+         * Hands frames straight back after a failure, so the decoder never waits on this worker.
+         */
+        private void drain() {
+            try {
+                BatchFrame frame;
+                while ((frame = pendingFrames.take()) != END) {
+                    freeFrames.put(frame);
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
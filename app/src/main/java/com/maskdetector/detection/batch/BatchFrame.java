@@ -0,0 +1,61 @@
+package com.maskdetector.detection.batch;
+
+import com.maskdetector.detection.env.YuvFrame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A decoded item travelling from a {@link BatchSource} to a classification worker. Frames are
+ * pooled by the {@link BatchClassifier}, so sources decode into the plane buffers they own.
+ */
+public final class BatchFrame {
+    private final YuvFrame frame = new YuvFrame();
+    private final ByteBuffer[] planes = new ByteBuffer[3];
+    private String name;
+    private long index;
+    private int rotationDegrees;
+
+    public YuvFrame getFrame() {
+        return frame;
+    }
+
+    /**
+     * A cleared buffer of at least {@code capacity} bytes for the given plane, reallocated only
+     * when the previous one is too small.
+     */
+    public ByteBuffer getPlaneBuffer(int plane, int capacity) {
+        if (planes[plane] == null || planes[plane].capacity() < capacity) {
+            planes[plane] = ByteBuffer.allocateDirect(capacity);
+        }
+        planes[plane].clear();
+        return planes[plane];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Position of the item in its source, starting at 0. Results are written as workers finish,
+     * so this is what restores the source order.
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    void setIndex(long index) {
+        this.index = index;
+    }
+
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    public void setRotationDegrees(int rotationDegrees) {
+        this.rotationDegrees = rotationDegrees;
+    }
+}
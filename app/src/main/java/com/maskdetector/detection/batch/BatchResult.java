@@ -0,0 +1,76 @@
+package com.maskdetector.detection.batch;
+
+import com.maskdetector.detection.face.FaceBox;
+
+/**
+ * Classification of one batch item. Each worker reuses a single instance, so sinks must copy
+ * whatever they keep beyond {@link BatchSink#write}.
+ */
+public final class BatchResult {
+    private final String[] labels;
+    private final float[] scores;
+    private final FaceBox[] faces;
+    private String name;
+    private long index;
+    private int faceCount;
+
+    BatchResult(String[] labels, int maxFaces) {
+        this.labels = labels;
+        this.scores = new float[labels.length * maxFaces];
+        this.faces = new FaceBox[maxFaces];
+        for (int i = 0; i < maxFaces; i++) {
+            faces[i] = new FaceBox();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    public String[] getLabels() {
+        return labels;
+    }
+
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    public FaceBox getFace(int index) {
+        return faces[index];
+    }
+
+    public float getScore(int faceIndex, int classIndex) {
+        return scores[faceIndex * labels.length + classIndex];
+    }
+
+    /**
+     * Index of the highest scoring label of the face.
+     */
+    public int getBestClass(int faceIndex) {
+        int best = 0;
+        for (int classIndex = 1; classIndex < labels.length; classIndex++) {
+            if (getScore(faceIndex, classIndex) > getScore(faceIndex, best)) {
+                best = classIndex;
+            }
+        }
+        return best;
+    }
+
+    float[] getScores() {
+        return scores;
+    }
+
+    FaceBox[] getFaces() {
+        return faces;
+    }
+
+    void set(String name, long index, int faceCount) {
+        this.name = name;
+        this.index = index;
+        this.faceCount = faceCount;
+    }
+}
@@ -0,0 +1,15 @@
+package com.maskdetector.detection.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the result of every item. Called from every worker thread, so implementations
+ * serialize writes themselves.
+ */
+public interface BatchSink extends Closeable {
+    /**
+     * Writes the result; it is reused by the worker once this returns.
+     */
+    void write(BatchResult result) throws IOException;
+}
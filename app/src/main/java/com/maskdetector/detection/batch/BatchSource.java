@@ -0,0 +1,15 @@
+package com.maskdetector.detection.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Decodes the items of a batch run one at a time. Only the decoding thread calls a source.
+ */
+public interface BatchSource extends Closeable {
+    /**
+     * Decodes the next item into {@code frame}, setting its name, rotation and planes. Returns
+     * false once the source is exhausted.
+     */
+    boolean next(BatchFrame frame) throws IOException;
+}
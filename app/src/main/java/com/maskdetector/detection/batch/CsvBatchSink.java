@@ -0,0 +1,89 @@
+package com.maskdetector.detection.batch;
+
+import com.maskdetector.detection.face.FaceBox;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes one CSV row per classified face, with the scores of every label; an item without faces
+ * still gets a row, with the face columns left empty.
+ */
+public final class CsvBatchSink implements BatchSink {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BufferedWriter writer;
+    private boolean headerWritten;
+
+    public CsvBatchSink(Writer writer) {
+        this.writer = new BufferedWriter(writer, BUFFER_SIZE);
+    }
+
+    @Override
+    public synchronized void write(BatchResult result) throws IOException {
+        String[] labels = result.getLabels();
+        if (!headerWritten) {
+            writer.write("index,name,face,left,top,right,bottom,label");
+            for (String label : labels) {
+                writer.write(',');
+                writeText(label);
+            }
+            writer.write('\n');
+            headerWritten = true;
+        }
+
+        if (result.getFaceCount() == 0) {
+            writePrefix(result);
+            for (int column = 0; column < 6 + labels.length; column++) {
+                writer.write(',');
+            }
+            writer.write('\n');
+            return;
+        }
+
+        for (int face = 0; face < result.getFaceCount(); face++) {
+            FaceBox box = result.getFace(face);
+            writePrefix(result);
+            writer.write(',');
+            writer.write(Integer.toString(face));
+            writeNumber(box.getLeft());
+            writeNumber(box.getTop());
+            writeNumber(box.getRight());
+            writeNumber(box.getBottom());
+            writer.write(',');
+            writeText(labels[result.getBestClass(face)]);
+            for (int classIndex = 0; classIndex < labels.length; classIndex++) {
+                writeNumber(result.getScore(face, classIndex));
+            }
+            writer.write('\n');
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void writePrefix(BatchResult result) throws IOException {
+        writer.write(Long.toString(result.getIndex()));
+        writer.write(',');
+        writeText(result.getName());
+    }
+
+    private void writeNumber(float value) throws IOException {
+        writer.write(',');
+        writer.write(Float.toString(value));
+    }
+
+    private void writeText(String text) throws IOException {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
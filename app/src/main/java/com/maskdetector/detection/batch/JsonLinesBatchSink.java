@@ -0,0 +1,77 @@
+package com.maskdetector.detection.batch;
+
+import com.maskdetector.detection.face.FaceBox;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes one JSON object per line and item:
+ * {@code {"index":0,"name":"a.jpg","faces":[{"box":[l,t,r,b],"label":"with_mask","scores":{...}}]}}.
+ */
+public final class JsonLinesBatchSink implements BatchSink {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BufferedWriter writer;
+
+    public JsonLinesBatchSink(Writer writer) {
+        this.writer = new BufferedWriter(writer, BUFFER_SIZE);
+    }
+
+    @Override
+    public synchronized void write(BatchResult result) throws IOException {
+        String[] labels = result.getLabels();
+
+        writer.write("{\"index\":");
+        writer.write(Long.toString(result.getIndex()));
+        writer.write(",\"name\":");
+        writeString(result.getName());
+        writer.write(",\"faces\":[");
+        for (int face = 0; face < result.getFaceCount(); face++) {
+            FaceBox box = result.getFace(face);
+            writer.write(face == 0 ? "{\"box\":[" : ",{\"box\":[");
+            writer.write(Float.toString(box.getLeft()));
+            writer.write(',');
+            writer.write(Float.toString(box.getTop()));
+            writer.write(',');
+            writer.write(Float.toString(box.getRight()));
+            writer.write(',');
+            writer.write(Float.toString(box.getBottom()));
+            writer.write("],\"label\":");
+            writeString(labels[result.getBestClass(face)]);
+            writer.write(",\"scores\":{");
+            for (int classIndex = 0; classIndex < labels.length; classIndex++) {
+                if (classIndex > 0) {
+                    writer.write(',');
+                }
+                writeString(labels[classIndex]);
+                writer.write(':');
+                writer.write(Float.toString(result.getScore(face, classIndex)));
+            }
+            writer.write("}}");
+        }
+        writer.write("]}\n");
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void writeString(String text) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+}
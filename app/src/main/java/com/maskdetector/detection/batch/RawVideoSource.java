@@ -0,0 +1,82 @@
+package com.maskdetector.detection.batch;
+
+import com.maskdetector.detection.env.YuvFrame;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Raw planar I420 frames of a fixed size back to back, as produced by
+ * {@code ffmpeg -i video.mp4 -f rawvideo -pix_fmt yuv420p -}. Frames are read straight into the
+ * plane buffers and named after the video and their position in it.
+ */
+public final class RawVideoSource implements BatchSource {
+    private final ReadableByteChannel channel;
+    private final String name;
+    private final int width;
+    private final int height;
+    private final int rotationDegrees;
+    private long frameNumber;
+
+    public RawVideoSource(InputStream inputStream, String name, int width, int height, int rotationDegrees) {
+        if (width <= 0 || height <= 0 || width % 2 != 0 || height % 2 != 0) {
+            throw new IllegalArgumentException("Invalid frame size " + width + "x" + height + ".");
+        }
+
+        this.channel = Channels.newChannel(inputStream);
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.rotationDegrees = rotationDegrees;
+    }
+
+    @Override
+    public boolean next(BatchFrame batchFrame) throws IOException {
+        int chromaWidth = width / 2;
+        int chromaSize = chromaWidth * (height / 2);
+        ByteBuffer yBuffer = batchFrame.getPlaneBuffer(YuvFrame.PLANE_Y, width * height);
+        if (!read(yBuffer, width * height, true)) {
+            return false;
+        }
+        ByteBuffer uBuffer = batchFrame.getPlaneBuffer(YuvFrame.PLANE_U, chromaSize);
+        read(uBuffer, chromaSize, false);
+        ByteBuffer vBuffer = batchFrame.getPlaneBuffer(YuvFrame.PLANE_V, chromaSize);
+        read(vBuffer, chromaSize, false);
+
+        YuvFrame frame = batchFrame.getFrame();
+        frame.setSize(width, height);
+        frame.setPlane(YuvFrame.PLANE_Y, yBuffer, width, 1);
+        frame.setPlane(YuvFrame.PLANE_U, uBuffer, chromaWidth, 1);
+        frame.setPlane(YuvFrame.PLANE_V, vBuffer, chromaWidth, 1);
+        batchFrame.setName(name + "#" + frameNumber++);
+        batchFrame.setRotationDegrees(rotationDegrees);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Fills {@code length} bytes of the buffer. Returns false if the stream ended before the
+     * first byte and {@code endAllowed}; a frame cut short is an error.
+     */
+    private boolean read(ByteBuffer buffer, int length, boolean endAllowed) throws IOException {
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (endAllowed && buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("The video ends within frame " + frameNumber + ".");
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+}
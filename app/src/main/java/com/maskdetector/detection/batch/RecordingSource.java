@@ -0,0 +1,51 @@
+package com.maskdetector.detection.batch;
+
+import com.maskdetector.detection.env.FrameReplayer;
+import com.maskdetector.detection.env.YuvFrame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The frames of a {@link com.maskdetector.detection.env.FrameRecorder} recording, named after the
+ * recording and their timestamp. Planes are copied out of the replayer since it reuses them.
+ */
+public final class RecordingSource implements BatchSource {
+    private final FrameReplayer replayer;
+    private final String name;
+    private final YuvFrame replayedFrame = new YuvFrame();
+
+    public RecordingSource(InputStream inputStream, String name) throws IOException {
+        this.replayer = new FrameReplayer(inputStream);
+        this.name = name;
+    }
+
+    @Override
+    public boolean next(BatchFrame batchFrame) throws IOException {
+        if (!replayer.next(replayedFrame)) {
+            return false;
+        }
+
+        YuvFrame frame = batchFrame.getFrame();
+        frame.setSize(replayedFrame.getWidth(), replayedFrame.getHeight());
+        frame.setCrop(replayedFrame.getCropLeft(), replayedFrame.getCropTop(),
+            replayedFrame.getCropLeft() + replayedFrame.getCropWidth(),
+            replayedFrame.getCropTop() + replayedFrame.getCropHeight());
+        for (int plane = YuvFrame.PLANE_Y; plane <= YuvFrame.PLANE_V; plane++) {
+            ByteBuffer source = replayedFrame.getBuffer(plane).duplicate();
+            ByteBuffer buffer = batchFrame.getPlaneBuffer(plane, source.remaining());
+            buffer.put(source).flip();
+            frame.setPlane(plane, buffer, replayedFrame.getRowStride(plane), replayedFrame.getPixelStride(plane));
+        }
+
+        batchFrame.setName(name + "@" + replayer.getTimestampNanos());
+        batchFrame.setRotationDegrees(replayer.getRotationDegrees());
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        replayer.close();
+    }
+}
@@ -0,0 +1,13 @@
+package com.maskdetector.detection.env;
+
+/**
+ * Receives camera frames, live or replayed. The frame and its buffers are only valid during the
+ * call.
+ */
+public interface FrameConsumer {
+    /**
+     * @param rotationDegrees clockwise rotation that makes the frame upright.
+     * @param timestampNanos  capture time of the frame in the camera's time base.
+     */
+    void onFrame(YuvFrame frame, int rotationDegrees, long timestampNanos);
+}
@@ -0,0 +1,249 @@
+package com.maskdetector.detection.env;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Turns a YUV_420_888 frame into a model input tensor in a single pass: rotation, optional
+ * horizontal mirroring, center crop to the output aspect ratio, bilinear downscale and color
+ * conversion all happen while sampling, so no intermediate bitmap is ever allocated.
+ *
+ * Sampling positions are kept as 8-bit fixed point and precomputed per output row/column.
+ */
+public final class FramePreprocessor {
+    public enum OutputType {
+        UINT8(1),
+        FLOAT32(4);
+
+        private final int bytesPerChannel;
+
+        OutputType(int bytesPerChannel) {
+            this.bytesPerChannel = bytesPerChannel;
+        }
+    }
+
+    private static final int FRACTION_BITS = 8;
+    private static final int ONE = 1 << FRACTION_BITS;
+    private static final int FRACTION_MASK = ONE - 1;
+
+    private final int outputWidth;
+    private final int outputHeight;
+    private final OutputType outputType;
+    private final float[] normalizedValues = new float[256];
+
+    private final int[] columnPositions;
+    private final int[] rowPositions;
+
+    private int configuredWidth = -1;
+    private int configuredHeight = -1;
+    private int configuredRotation = -1;
+    private boolean configuredMirror;
+    private final float[] configuredRegion = new float[4];
+
+    private int sourceXBase;
+    private int sourceXFromColumn;
+    private int sourceXFromRow;
+    private int sourceYBase;
+    private int sourceYFromColumn;
+    private int sourceYFromRow;
+
+    public FramePreprocessor(int outputWidth, int outputHeight, OutputType outputType, float mean, float std) {
+        this.outputWidth = outputWidth;
+        this.outputHeight = outputHeight;
+        this.outputType = outputType;
+        this.columnPositions = new int[outputWidth];
+        this.rowPositions = new int[outputHeight];
+
+        for (int value = 0; value < normalizedValues.length; value++) {
+            normalizedValues[value] = (value - mean) / std;
+        }
+    }
+
+    public int getOutputWidth() {
+        return outputWidth;
+    }
+
+    public int getOutputHeight() {
+        return outputHeight;
+    }
+
+    public OutputType getOutputType() {
+        return outputType;
+    }
+
+    public int getOutputSizeInBytes() {
+        return outputWidth * outputHeight * 3 * outputType.bytesPerChannel;
+    }
+
+    public ByteBuffer allocateOutputBuffer() {
+        return ByteBuffer.allocateDirect(getOutputSizeInBytes()).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Samples the largest centered window of the upright frame that has the output aspect ratio.
+     *
+     * @param rotationDegrees clockwise rotation that makes the frame upright, as reported by CameraX.
+     * @param mirror          flips the upright image horizontally, e.g. for the front lens.
+     */
+    public void process(YuvFrame frame, int rotationDegrees, boolean mirror, ByteBuffer output) {
+        boolean transposed = rotationDegrees == 90 || rotationDegrees == 270;
+        int uprightWidth = transposed ? frame.getCropHeight() : frame.getCropWidth();
+        int uprightHeight = transposed ? frame.getCropWidth() : frame.getCropHeight();
+
+        float cropWidth = Math.min(1f, (float) uprightHeight * outputWidth / outputHeight / uprightWidth);
+        float cropHeight = Math.min(1f, (float) uprightWidth * outputHeight / outputWidth / uprightHeight);
+        process(frame, rotationDegrees, mirror,
+            (1f - cropWidth) / 2, (1f - cropHeight) / 2, (1f + cropWidth) / 2, (1f + cropHeight) / 2,
+            output);
+    }
+
+    /**
+     * Samples the given region of the upright (and mirrored, if requested) frame, stretching it to
+     * the output size. The region is expressed in fractions of the upright frame size.
+     */
+    public void process(YuvFrame frame, int rotationDegrees, boolean mirror,
+                        float regionLeft, float regionTop, float regionRight, float regionBottom,
+                        ByteBuffer output) {
+        if (output.capacity() < getOutputSizeInBytes()) {
+            throw new IllegalArgumentException("Output buffer holds " + output.capacity() + " bytes, " + getOutputSizeInBytes() + " needed.");
+        }
+
+        configure(frame.getCropWidth(), frame.getCropHeight(), rotationDegrees, mirror,
+            regionLeft, regionTop, regionRight, regionBottom);
+
+        ByteBuffer yBuffer = frame.getBuffer(YuvFrame.PLANE_Y);
+        ByteBuffer uBuffer = frame.getBuffer(YuvFrame.PLANE_U);
+        ByteBuffer vBuffer = frame.getBuffer(YuvFrame.PLANE_V);
+        int yRowStride = frame.getRowStride(YuvFrame.PLANE_Y);
+        int yPixelStride = frame.getPixelStride(YuvFrame.PLANE_Y);
+        int uRowStride = frame.getRowStride(YuvFrame.PLANE_U);
+        int uPixelStride = frame.getPixelStride(YuvFrame.PLANE_U);
+        int vRowStride = frame.getRowStride(YuvFrame.PLANE_V);
+        int vPixelStride = frame.getPixelStride(YuvFrame.PLANE_V);
+
+        int left = frame.getCropLeft();
+        int top = frame.getCropTop();
+        int maxX = (configuredWidth - 1) << FRACTION_BITS;
+        int maxY = (configuredHeight - 1) << FRACTION_BITS;
+
+        output.rewind();
+        for (int row = 0; row < outputHeight; row++) {
+            int rowPosition = rowPositions[row];
+
+            for (int col = 0; col < outputWidth; col++) {
+                int columnPosition = columnPositions[col];
+                int sourceX = clamp(sourceXBase + sourceXFromColumn * columnPosition + sourceXFromRow * rowPosition, maxX);
+                int sourceY = clamp(sourceYBase + sourceYFromColumn * columnPosition + sourceYFromRow * rowPosition, maxY);
+
+                int x0 = sourceX >> FRACTION_BITS;
+                int y0 = sourceY >> FRACTION_BITS;
+                int fractionX = sourceX & FRACTION_MASK;
+                int fractionY = sourceY & FRACTION_MASK;
+                int x1 = x0 + 1 < configuredWidth ? x0 + 1 : x0;
+                int y1 = y0 + 1 < configuredHeight ? y0 + 1 : y0;
+
+                int row0 = (top + y0) * yRowStride;
+                int row1 = (top + y1) * yRowStride;
+                int col0 = (left + x0) * yPixelStride;
+                int col1 = (left + x1) * yPixelStride;
+
+                int topLuma = (yBuffer.get(row0 + col0) & 0xff) * (ONE - fractionX) + (yBuffer.get(row0 + col1) & 0xff) * fractionX;
+                int bottomLuma = (yBuffer.get(row1 + col0) & 0xff) * (ONE - fractionX) + (yBuffer.get(row1 + col1) & 0xff) * fractionX;
+                int luma = (topLuma * (ONE - fractionY) + bottomLuma * fractionY) >> (2 * FRACTION_BITS);
+
+                int chromaX = (left + x0) >> 1;
+                int chromaY = (top + y0) >> 1;
+                int u = (uBuffer.get(chromaY * uRowStride + chromaX * uPixelStride) & 0xff) - 128;
+                int v = (vBuffer.get(chromaY * vRowStride + chromaX * vPixelStride) & 0xff) - 128;
+
+                write(output, YuvToArgb.toArgb(luma - 16, u, v));
+            }
+        }
+        output.rewind();
+    }
+
+    private void write(ByteBuffer output, int argb) {
+        int r = (argb >> 16) & 0xff;
+        int g = (argb >> 8) & 0xff;
+        int b = argb & 0xff;
+
+        if (outputType == OutputType.UINT8) {
+            output.put((byte) r).put((byte) g).put((byte) b);
+        } else {
+            output.putFloat(normalizedValues[r]).putFloat(normalizedValues[g]).putFloat(normalizedValues[b]);
+        }
+    }
+
+    private void configure(int width, int height, int rotationDegrees, boolean mirror,
+                           float regionLeft, float regionTop, float regionRight, float regionBottom) {
+        if (width == configuredWidth && height == configuredHeight &&
+            rotationDegrees == configuredRotation && mirror == configuredMirror &&
+            regionLeft == configuredRegion[0] && regionTop == configuredRegion[1] &&
+            regionRight == configuredRegion[2] && regionBottom == configuredRegion[3]) {
+            return;
+        }
+
+        boolean transposed = rotationDegrees == 90 || rotationDegrees == 270;
+        int rotatedWidth = transposed ? height : width;
+        int rotatedHeight = transposed ? width : height;
+
+        double cropLeft = regionLeft * rotatedWidth;
+        double cropTop = regionTop * rotatedHeight;
+        double cropWidth = (regionRight - regionLeft) * rotatedWidth;
+        double cropHeight = (regionBottom - regionTop) * rotatedHeight;
+
+        for (int col = 0; col < outputWidth; col++) {
+            double position = cropLeft + (col + 0.5) * cropWidth / outputWidth - 0.5;
+            columnPositions[col] = toFixed(mirror ? rotatedWidth - 1 - position : position);
+        }
+        for (int row = 0; row < outputHeight; row++) {
+            rowPositions[row] = toFixed(cropTop + (row + 0.5) * cropHeight / outputHeight - 0.5);
+        }
+
+        // Maps an upright position (column, row) back onto the sensor frame.
+        int lastX = (width - 1) << FRACTION_BITS;
+        int lastY = (height - 1) << FRACTION_BITS;
+        switch (rotationDegrees) {
+            case 0:
+                setMapping(0, 1, 0, 0, 0, 1);
+                break;
+            case 90:
+                setMapping(0, 0, 1, lastY, -1, 0);
+                break;
+            case 180:
+                setMapping(lastX, -1, 0, lastY, 0, -1);
+                break;
+            case 270:
+                setMapping(lastX, 0, -1, 0, 1, 0);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported rotation " + rotationDegrees + ".");
+        }
+
+        configuredWidth = width;
+        configuredHeight = height;
+        configuredRotation = rotationDegrees;
+        configuredMirror = mirror;
+        configuredRegion[0] = regionLeft;
+        configuredRegion[1] = regionTop;
+        configuredRegion[2] = regionRight;
+        configuredRegion[3] = regionBottom;
+    }
+
+    private void setMapping(int xBase, int xFromColumn, int xFromRow, int yBase, int yFromColumn, int yFromRow) {
+        sourceXBase = xBase;
+        sourceXFromColumn = xFromColumn;
+        sourceXFromRow = xFromRow;
+        sourceYBase = yBase;
+        sourceYFromColumn = yFromColumn;
+        sourceYFromRow = yFromRow;
+    }
+
+    private static int toFixed(double value) {
+        return (int) Math.round(Math.max(0, value) * ONE);
+    }
+
+    private static int clamp(int value, int max) {
+        return value < 0 ? 0 : (value > max ? max : value);
+    }
+}
@@ -0,0 +1,70 @@
+package com.maskdetector.detection.env;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static com.maskdetector.detection.env.FrameRecording.*;
+
+/**
+ * Writes raw YUV_420_888 frames with their strides, crop, rotation and timestamp to a compact
+ * file for {@link FrameReplayer}. Not thread-safe.
+ */
+public final class FrameRecorder implements Closeable {
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final DataOutputStream output;
+    private final byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+    private int frameCount;
+
+    public FrameRecorder(OutputStream outputStream) throws IOException {
+        output = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(outputStream, deflater, COPY_BUFFER_SIZE)));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+    }
+
+    public void write(YuvFrame frame, int rotationDegrees, long timestampNanos) throws IOException {
+        output.writeLong(timestampNanos);
+        output.writeInt(rotationDegrees);
+        output.writeInt(frame.getWidth());
+        output.writeInt(frame.getHeight());
+        output.writeInt(frame.getCropLeft());
+        output.writeInt(frame.getCropTop());
+        output.writeInt(frame.getCropWidth());
+        output.writeInt(frame.getCropHeight());
+
+        for (int plane = 0; plane < PLANE_COUNT; plane++) {
+            // Absolute view, the plane's own position may have been moved by earlier readers.
+            ByteBuffer buffer = frame.getBuffer(plane).duplicate();
+            buffer.position(0);
+            output.writeInt(frame.getRowStride(plane));
+            output.writeInt(frame.getPixelStride(plane));
+            output.writeInt(buffer.remaining());
+            while (buffer.hasRemaining()) {
+                int length = Math.min(buffer.remaining(), copyBuffer.length);
+                buffer.get(copyBuffer, 0, length);
+                output.write(copyBuffer, 0, length);
+            }
+        }
+        frameCount++;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            output.close();
+        } finally {
+            deflater.end();
+        }
+    }
+}
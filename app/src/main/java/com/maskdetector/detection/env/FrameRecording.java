@@ -0,0 +1,21 @@
+package com.maskdetector.detection.env;
+
+/**
+ * Layout of the frame recordings written by {@link FrameRecorder} and read by
+ * {@link FrameReplayer}. The whole file is deflated; inside it, big endian:
+ * <pre>
+ * header: int magic, int version
+ * frame:  long timestampNanos, int rotationDegrees, int width, int height,
+ *         int cropLeft, int cropTop, int cropWidth, int cropHeight,
+ *         3 x (int rowStride, int pixelStride, int length, byte[length])
+ * </pre>
+ * Each plane is stored as the camera delivered it, padding included, so strides replay exactly.
+ */
+final class FrameRecording {
+    static final int MAGIC = 0x4d444652; // "MDFR"
+    static final int VERSION = 1;
+    static final int PLANE_COUNT = 3;
+
+    private FrameRecording() {
+    }
+}
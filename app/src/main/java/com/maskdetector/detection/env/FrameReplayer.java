@@ -0,0 +1,120 @@
+package com.maskdetector.detection.env;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.InflaterInputStream;
+
+import static com.maskdetector.detection.env.FrameRecording.*;
+
+/**
+ * Reads frames recorded by {@link FrameRecorder} back into a reused {@link YuvFrame}, one at a
+ * time or all at once into a {@link FrameConsumer}. Not thread-safe.
+ */
+public final class FrameReplayer implements Closeable {
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+
+    private final DataInputStream input;
+    private final ByteBuffer[] planes = new ByteBuffer[PLANE_COUNT];
+    private final byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+    private int rotationDegrees;
+    private long timestampNanos;
+
+    public FrameReplayer(InputStream inputStream) throws IOException {
+        input = new DataInputStream(new BufferedInputStream(new InflaterInputStream(inputStream)));
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a frame recording.");
+        }
+        int version = input.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported frame recording version " + version + ".");
+        }
+    }
+
+    /**
+     * Reads the next frame into {@code frame}, whose buffers stay valid until the next call.
+     * Returns false at the end of the recording.
+     */
+    public boolean next(YuvFrame frame) throws IOException {
+        try {
+            timestampNanos = input.readLong();
+        } catch (EOFException exception) {
+            return false;
+        }
+        rotationDegrees = input.readInt();
+        int width = input.readInt();
+        int height = input.readInt();
+        int cropLeft = input.readInt();
+        int cropTop = input.readInt();
+        int cropWidth = input.readInt();
+        int cropHeight = input.readInt();
+        frame.setSize(width, height);
+        frame.setCrop(cropLeft, cropTop, cropLeft + cropWidth, cropTop + cropHeight);
+
+        for (int plane = 0; plane < PLANE_COUNT; plane++) {
+            int rowStride = input.readInt();
+            int pixelStride = input.readInt();
+            int length = input.readInt();
+            if (planes[plane] == null || planes[plane].capacity() < length) {
+                planes[plane] = ByteBuffer.allocateDirect(length);
+            }
+
+            // Direct like the camera's buffers, so replays take the same code paths.
+            ByteBuffer buffer = planes[plane];
+            buffer.clear();
+            while (buffer.position() < length) {
+                int read = Math.min(copyBuffer.length, length - buffer.position());
+                input.readFully(copyBuffer, 0, read);
+                buffer.put(copyBuffer, 0, read);
+            }
+            buffer.flip();
+            frame.setPlane(plane, buffer.slice(), rowStride, pixelStride);
+        }
+        return true;
+    }
+
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * Feeds every remaining frame to {@code consumer} on the calling thread and returns how many
+     * there were. In real time, frames are spaced by the difference of their timestamps;
+     * otherwise they are delivered as fast as the consumer takes them.
+     */
+    public int replay(FrameConsumer consumer, boolean realTime) throws IOException, InterruptedException {
+        YuvFrame frame = new YuvFrame();
+        long firstTimestampNanos = 0;
+        long startNanos = 0;
+        int count = 0;
+        while (next(frame)) {
+            if (count == 0) {
+                firstTimestampNanos = timestampNanos;
+                startNanos = System.nanoTime();
+            } else if (realTime) {
+                long delayNanos = startNanos + (timestampNanos - firstTimestampNanos) - System.nanoTime();
+                if (delayNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delayNanos);
+                }
+            }
+
+            consumer.onFrame(frame, rotationDegrees, timestampNanos);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
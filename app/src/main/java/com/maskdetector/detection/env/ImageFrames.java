@@ -0,0 +1,33 @@
+package com.maskdetector.detection.env;
+
+import android.graphics.Rect;
+import android.media.Image;
+
+import androidx.camera.core.ImageProxy;
+
+public final class ImageFrames {
+    private ImageFrames() {
+    }
+
+    public static void wrap(Image image, YuvFrame frame) {
+        Image.Plane[] planes = image.getPlanes();
+        Rect crop = image.getCropRect();
+
+        frame.setSize(image.getWidth(), image.getHeight());
+        frame.setCrop(crop.left, crop.top, crop.right, crop.bottom);
+        for (int plane = 0; plane < planes.length; plane++) {
+            frame.setPlane(plane, planes[plane].getBuffer(), planes[plane].getRowStride(), planes[plane].getPixelStride());
+        }
+    }
+
+    public static void wrap(ImageProxy imageProxy, YuvFrame frame) {
+        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+        Rect crop = imageProxy.getCropRect();
+
+        frame.setSize(imageProxy.getWidth(), imageProxy.getHeight());
+        frame.setCrop(crop.left, crop.top, crop.right, crop.bottom);
+        for (int plane = 0; plane < planes.length; plane++) {
+            frame.setPlane(plane, planes[plane].getBuffer(), planes[plane].getRowStride(), planes[plane].getPixelStride());
+        }
+    }
+}
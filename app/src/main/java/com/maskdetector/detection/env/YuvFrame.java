@@ -0,0 +1,79 @@
+package com.maskdetector.detection.env;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Plain view over the three planes of a YUV_420_888 frame.
+ * Instances are meant to be reused: {@link #setPlane} and {@link #setCrop} only swap references.
+ */
+public final class YuvFrame {
+    public static final int PLANE_Y = 0;
+    public static final int PLANE_U = 1;
+    public static final int PLANE_V = 2;
+
+    private final ByteBuffer[] buffers = new ByteBuffer[3];
+    private final int[] rowStrides = new int[3];
+    private final int[] pixelStrides = new int[3];
+
+    private int width;
+    private int height;
+    private int cropLeft;
+    private int cropTop;
+    private int cropRight;
+    private int cropBottom;
+
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        setCrop(0, 0, width, height);
+    }
+
+    public void setCrop(int left, int top, int right, int bottom) {
+        this.cropLeft = left;
+        this.cropTop = top;
+        this.cropRight = right;
+        this.cropBottom = bottom;
+    }
+
+    public void setPlane(int plane, ByteBuffer buffer, int rowStride, int pixelStride) {
+        buffers[plane] = buffer;
+        rowStrides[plane] = rowStride;
+        pixelStrides[plane] = pixelStride;
+    }
+
+    public ByteBuffer getBuffer(int plane) {
+        return buffers[plane];
+    }
+
+    public int getRowStride(int plane) {
+        return rowStrides[plane];
+    }
+
+    public int getPixelStride(int plane) {
+        return pixelStrides[plane];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getCropLeft() {
+        return cropLeft;
+    }
+
+    public int getCropTop() {
+        return cropTop;
+    }
+
+    public int getCropWidth() {
+        return cropRight - cropLeft;
+    }
+
+    public int getCropHeight() {
+        return cropBottom - cropTop;
+    }
+}
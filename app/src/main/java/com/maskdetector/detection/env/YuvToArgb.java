@@ -0,0 +1,26 @@
+package com.maskdetector.detection.env;
+
+/**
+ * Pure-Java YUV to ARGB_8888 conversion of single pixels using a fixed-point BT.601 (limited
+ * range) matrix, the same one used by ScriptIntrinsicYuvToRGB. {@link FramePreprocessor} applies
+ * it while sampling the frame, so no full-frame ARGB buffer is ever needed.
+ */
+public final class YuvToArgb {
+    private static final int MAX_CHANNEL = 262143;
+
+    private YuvToArgb() {
+    }
+
+    static int toArgb(int luma, int u, int v) {
+        int scaledLuma = 1192 * (luma < 0 ? 0 : luma);
+        int r = clamp(scaledLuma + 1634 * v);
+        int g = clamp(scaledLuma - 833 * v - 400 * u);
+        int b = clamp(scaledLuma + 2066 * u);
+
+        return 0xff000000 | ((r << 6) & 0xff0000) | ((g >> 2) & 0xff00) | ((b >> 10) & 0xff);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > MAX_CHANNEL ? MAX_CHANNEL : value);
+    }
+}
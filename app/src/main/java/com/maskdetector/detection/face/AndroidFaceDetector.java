@@ -0,0 +1,107 @@
+package com.maskdetector.detection.face;
+
+import android.graphics.Bitmap;
+import android.graphics.PointF;
+
+import com.maskdetector.detection.env.FramePreprocessor;
+import com.maskdetector.detection.env.YuvFrame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Face localization backed by the platform {@link android.media.FaceDetector}, run on a small
+ * upright RGB_565 copy of the frame. The platform detector reports eye positions only, so boxes
+ * are derived from the eye midpoint and distance.
+ */
+public final class AndroidFaceDetector implements FaceDetector {
+    private static final float MIN_CONFIDENCE = 0.4f;
+    private static final float EYES_TO_FACE_WIDTH = 2.2f;
+    private static final float EYES_TO_FACE_HEIGHT = 2.8f;
+    // The eyes sit above the center of the face.
+    private static final float EYES_TO_CENTER_OFFSET = 0.4f;
+
+    private final int detectionLongSide;
+    private final android.media.FaceDetector.Face[] foundFaces;
+    private final PointF midPoint = new PointF();
+
+    private int detectionWidth;
+    private int detectionHeight;
+    private FramePreprocessor framePreprocessor;
+    private ByteBuffer rgbBuffer;
+    private int[] pixels;
+    private Bitmap bitmap;
+    private android.media.FaceDetector detector;
+
+    public AndroidFaceDetector(int detectionLongSide, int maxFaces) {
+        this.detectionLongSide = detectionLongSide;
+        this.foundFaces = new android.media.FaceDetector.Face[maxFaces];
+    }
+
+    @Override
+    public int detect(YuvFrame frame, int rotationDegrees, boolean mirror, FaceBox[] faces) {
+        boolean transposed = rotationDegrees == 90 || rotationDegrees == 270;
+        configure(transposed ? frame.getCropHeight() : frame.getCropWidth(),
+            transposed ? frame.getCropWidth() : frame.getCropHeight());
+
+        framePreprocessor.process(frame, rotationDegrees, mirror, 0f, 0f, 1f, 1f, rgbBuffer);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xff000000 |
+                ((rgbBuffer.get() & 0xff) << 16) |
+                ((rgbBuffer.get() & 0xff) << 8) |
+                (rgbBuffer.get() & 0xff);
+        }
+        bitmap.setPixels(pixels, 0, detectionWidth, 0, 0, detectionWidth, detectionHeight);
+
+        int found = detector.findFaces(bitmap, foundFaces);
+        int count = 0;
+        for (int i = 0; i < found && count < faces.length; i++) {
+            android.media.FaceDetector.Face face = foundFaces[i];
+            if (face.confidence() < MIN_CONFIDENCE) {
+                continue;
+            }
+
+            face.getMidPoint(midPoint);
+            float eyesDistance = face.eyesDistance();
+            float centerX = midPoint.x / detectionWidth;
+            float centerY = (midPoint.y + eyesDistance * EYES_TO_CENTER_OFFSET) / detectionHeight;
+            float halfWidth = eyesDistance * EYES_TO_FACE_WIDTH / detectionWidth / 2;
+            float halfHeight = eyesDistance * EYES_TO_FACE_HEIGHT / detectionHeight / 2;
+
+            faces[count++].set(
+                Math.max(0f, centerX - halfWidth),
+                Math.max(0f, centerY - halfHeight),
+                Math.min(1f, centerX + halfWidth),
+                Math.min(1f, centerY + halfHeight)
+            );
+        }
+
+        return count;
+    }
+
+    @Override
+    public void close() {
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+        }
+    }
+
+    private void configure(int uprightWidth, int uprightHeight) {
+        float scale = (float) detectionLongSide / Math.max(uprightWidth, uprightHeight);
+        // The platform detector requires an even bitmap width.
+        int width = Math.round(uprightWidth * scale) & ~1;
+        int height = Math.round(uprightHeight * scale);
+        if (width == detectionWidth && height == detectionHeight) {
+            return;
+        }
+
+        close();
+        detectionWidth = width;
+        detectionHeight = height;
+        framePreprocessor = new FramePreprocessor(width, height, FramePreprocessor.OutputType.UINT8, 0f, 1f);
+        rgbBuffer = framePreprocessor.allocateOutputBuffer();
+        pixels = new int[width * height];
+        bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        detector = new android.media.FaceDetector(width, height, foundFaces.length);
+    }
+}
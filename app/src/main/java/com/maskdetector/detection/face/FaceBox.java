@@ -0,0 +1,72 @@
+package com.maskdetector.detection.face;
+
+/**
+ * Face bounding box in fractions of the upright (and mirrored, for the front lens) frame.
+ * Boxes are mutable so detectors can fill preallocated arrays.
+ */
+public final class FaceBox {
+    private float left;
+    private float top;
+    private float right;
+    private float bottom;
+
+    public FaceBox() {
+    }
+
+    public FaceBox(float left, float top, float right, float bottom) {
+        set(left, top, right, bottom);
+    }
+
+    public void set(float left, float top, float right, float bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public void set(FaceBox other) {
+        set(other.left, other.top, other.right, other.bottom);
+    }
+
+    public float getLeft() {
+        return left;
+    }
+
+    public float getTop() {
+        return top;
+    }
+
+    public float getRight() {
+        return right;
+    }
+
+    public float getBottom() {
+        return bottom;
+    }
+
+    public float getWidth() {
+        return right - left;
+    }
+
+    public float getHeight() {
+        return bottom - top;
+    }
+
+    public float getCenterX() {
+        return (left + right) / 2;
+    }
+
+    public float getCenterY() {
+        return (top + bottom) / 2;
+    }
+
+    @Override
+    public String toString() {
+        return "FaceBox{" +
+                "left=" + left +
+                ", top=" + top +
+                ", right=" + right +
+                ", bottom=" + bottom +
+                '}';
+    }
+}
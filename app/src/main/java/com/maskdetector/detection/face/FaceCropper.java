@@ -0,0 +1,47 @@
+package com.maskdetector.detection.face;
+
+import com.maskdetector.detection.env.FramePreprocessor;
+import com.maskdetector.detection.env.YuvFrame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Crops detected faces out of a frame into classifier inputs. Each box is grown by
+ * {@code margin} and squared around its center (in pixels) so faces are not distorted.
+ */
+public final class FaceCropper {
+    private final FramePreprocessor framePreprocessor;
+    private final float margin;
+
+    public FaceCropper(FramePreprocessor framePreprocessor, float margin) {
+        this.framePreprocessor = framePreprocessor;
+        this.margin = margin;
+    }
+
+    public FramePreprocessor getFramePreprocessor() {
+        return framePreprocessor;
+    }
+
+    public void crop(YuvFrame frame, int rotationDegrees, boolean mirror, FaceBox face, ByteBuffer output) {
+        boolean transposed = rotationDegrees == 90 || rotationDegrees == 270;
+        float uprightWidth = transposed ? frame.getCropHeight() : frame.getCropWidth();
+        float uprightHeight = transposed ? frame.getCropWidth() : frame.getCropHeight();
+
+        float side = Math.max(face.getWidth() * uprightWidth, face.getHeight() * uprightHeight) * margin;
+        side = Math.min(side, Math.min(uprightWidth, uprightHeight));
+        float halfWidth = side / uprightWidth / 2;
+        float halfHeight = side / uprightHeight / 2;
+
+        // Slide the square back inside the frame instead of shrinking it at the borders.
+        float centerX = clamp(face.getCenterX(), halfWidth, 1f - halfWidth);
+        float centerY = clamp(face.getCenterY(), halfHeight, 1f - halfHeight);
+
+        framePreprocessor.process(frame, rotationDegrees, mirror,
+            centerX - halfWidth, centerY - halfHeight, centerX + halfWidth, centerY + halfHeight,
+            output);
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+}
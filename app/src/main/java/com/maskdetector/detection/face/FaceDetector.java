@@ -0,0 +1,15 @@
+package com.maskdetector.detection.face;
+
+import com.maskdetector.detection.env.YuvFrame;
+
+public interface FaceDetector {
+    /**
+     * Fills {@code faces} with at most {@code faces.length} boxes and returns how many were found.
+     *
+     * @param rotationDegrees clockwise rotation that makes the frame upright.
+     * @param mirror          whether the returned boxes refer to the horizontally mirrored frame.
+     */
+    int detect(YuvFrame frame, int rotationDegrees, boolean mirror, FaceBox[] faces);
+
+    void close();
+}
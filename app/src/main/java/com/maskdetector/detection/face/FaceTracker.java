@@ -0,0 +1,232 @@
+package com.maskdetector.detection.face;
+
+/**
+ * Associates face detections across frames by greedy IoU matching and caches the last
+ * classification of every track, so a face only goes back to the classifier every
+ * {@code reclassifyInterval} frames or when its box moved or resized significantly.
+ *
+ * {@link #update} and {@link #selectForClassification} run on the camera thread while
+ * {@link #storeScores} is called from the inference thread, hence the coarse locking.
+ */
+public final class FaceTracker {
+    private static final class Track {
+        final FaceBox box = new FaceBox();
+        final FaceBox classifiedBox = new FaceBox();
+        final float[] scores;
+        int id;
+        boolean active;
+        boolean matched;
+        boolean hasScores;
+        boolean pending;
+        int missedFrames;
+        int framesSinceClassified;
+
+        Track(int classCount) {
+            scores = new float[classCount];
+        }
+    }
+
+    private final Track[] tracks;
+    private final int classCount;
+    private final float matchIoU;
+    private final float reclassifyIoU;
+    private final int reclassifyInterval;
+    private final int maxMissedFrames;
+
+    private int nextId = 1;
+
+    public FaceTracker(int maxTracks, int classCount, float matchIoU, float reclassifyIoU,
+                       int reclassifyInterval, int maxMissedFrames) {
+        this.tracks = new Track[maxTracks];
+        for (int i = 0; i < maxTracks; i++) {
+            tracks[i] = new Track(classCount);
+        }
+        this.classCount = classCount;
+        this.matchIoU = matchIoU;
+        this.reclassifyIoU = reclassifyIoU;
+        this.reclassifyInterval = reclassifyInterval;
+        this.maxMissedFrames = maxMissedFrames;
+    }
+
+    /**
+     * Matches this frame's detections to the existing tracks, starts tracks for new faces and
+     * expires tracks that have been missing for too long.
+     */
+    public synchronized void update(FaceBox[] detections, int count) {
+        for (Track track : tracks) {
+            track.matched = false;
+        }
+
+        for (int i = 0; i < count; i++) {
+            FaceBox detection = detections[i];
+            Track best = null;
+            float bestIoU = matchIoU;
+            for (Track track : tracks) {
+                if (!track.active || track.matched) {
+                    continue;
+                }
+
+                float iou = intersectionOverUnion(track.box, detection);
+                if (iou >= bestIoU) {
+                    best = track;
+                    bestIoU = iou;
+                }
+            }
+
+            if (best == null) {
+                best = startTrack();
+                if (best == null) {
+                    continue;
+                }
+            }
+
+            best.box.set(detection);
+            best.matched = true;
+            best.missedFrames = 0;
+            best.framesSinceClassified++;
+        }
+
+        for (Track track : tracks) {
+            if (track.active && !track.matched && ++track.missedFrames > maxMissedFrames) {
+                track.active = false;
+            }
+        }
+    }
+
+    /**
+     * Picks the visible tracks whose cached classification is missing or stale, up to
+     * {@code boxes.length} of them, and marks them as being classified.
+     */
+    public synchronized int selectForClassification(int[] trackIds, FaceBox[] boxes) {
+        int selected = 0;
+        for (Track track : tracks) {
+            if (selected == boxes.length) {
+                break;
+            }
+            if (!track.active || !track.matched || track.pending) {
+                continue;
+            }
+
+            boolean stale = !track.hasScores ||
+                track.framesSinceClassified >= reclassifyInterval ||
+                intersectionOverUnion(track.box, track.classifiedBox) < reclassifyIoU;
+            if (!stale) {
+                continue;
+            }
+
+            track.classifiedBox.set(track.box);
+            track.framesSinceClassified = 0;
+            track.pending = true;
+            trackIds[selected] = track.id;
+            boxes[selected].set(track.box);
+            selected++;
+        }
+
+        return selected;
+    }
+
+    /**
+     * Caches the scores of a classified crop; results for tracks that expired meanwhile are ignored.
+     */
+    public synchronized void storeScores(int trackId, float[] scores, int offset) {
+        Track track = find(trackId);
+        if (track == null) {
+            return;
+        }
+
+        System.arraycopy(scores, offset, track.scores, 0, classCount);
+        track.hasScores = true;
+        track.pending = false;
+    }
+
+    /**
+     * Gives a selected track back without scores, e.g. when its frame was dropped.
+     */
+    public synchronized void cancel(int trackId) {
+        Track track = find(trackId);
+        if (track != null) {
+            track.pending = false;
+            track.framesSinceClassified = reclassifyInterval;
+        }
+    }
+
+    /**
+     * Copies the tracks visible in the latest frame that already have a classification.
+     */
+    public synchronized int copyVisibleTracks(int[] trackIds, FaceBox[] boxes, float[] scores) {
+        int copied = 0;
+        for (Track track : tracks) {
+            if (copied == boxes.length) {
+                break;
+            }
+            if (!track.active || track.missedFrames > 0 || !track.hasScores) {
+                continue;
+            }
+
+            trackIds[copied] = track.id;
+            boxes[copied].set(track.box);
+            System.arraycopy(track.scores, 0, scores, copied * classCount, classCount);
+            copied++;
+        }
+
+        return copied;
+    }
+
+    public int getMaxTracks() {
+        return tracks.length;
+    }
+
+    public synchronized int getActiveTrackCount() {
+        int count = 0;
+        for (Track track : tracks) {
+            if (track.active) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized void clear() {
+        for (Track track : tracks) {
+            track.active = false;
+        }
+    }
+
+    private Track startTrack() {
+        for (Track track : tracks) {
+            if (!track.active) {
+                track.active = true;
+                track.id = nextId++;
+                track.hasScores = false;
+                track.pending = false;
+                track.missedFrames = 0;
+                track.framesSinceClassified = 0;
+                return track;
+            }
+        }
+
+        return null;
+    }
+
+    private Track find(int trackId) {
+        for (Track track : tracks) {
+            if (track.active && track.id == trackId) {
+                return track;
+            }
+        }
+
+        return null;
+    }
+
+    static float intersectionOverUnion(FaceBox a, FaceBox b) {
+        float width = Math.min(a.getRight(), b.getRight()) - Math.max(a.getLeft(), b.getLeft());
+        float height = Math.min(a.getBottom(), b.getBottom()) - Math.max(a.getTop(), b.getTop());
+        if (width <= 0 || height <= 0) {
+            return 0f;
+        }
+
+        float intersection = width * height;
+        float union = a.getWidth() * a.getHeight() + b.getWidth() * b.getHeight() - intersection;
+        return union <= 0 ? 0f : intersection / union;
+    }
+}
@@ -0,0 +1,31 @@
+package com.maskdetector.detection.face;
+
+import com.maskdetector.detection.env.YuvFrame;
+
+/**
+ * Reports a single face covering the centered square of the frame, which is what the classifier
+ * was fed before face localization existed. Useful as a fallback and on the JVM.
+ */
+public final class FullFrameFaceDetector implements FaceDetector {
+
+    @Override
+    public int detect(YuvFrame frame, int rotationDegrees, boolean mirror, FaceBox[] faces) {
+        if (faces.length == 0) {
+            return 0;
+        }
+
+        boolean transposed = rotationDegrees == 90 || rotationDegrees == 270;
+        float uprightWidth = transposed ? frame.getCropHeight() : frame.getCropWidth();
+        float uprightHeight = transposed ? frame.getCropWidth() : frame.getCropHeight();
+        float side = Math.min(uprightWidth, uprightHeight);
+        float halfWidth = side / uprightWidth / 2;
+        float halfHeight = side / uprightHeight / 2;
+
+        faces[0].set(0.5f - halfWidth, 0.5f - halfHeight, 0.5f + halfWidth, 0.5f + halfHeight);
+        return 1;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,84 @@
+package com.maskdetector.detection.inference;
+
+/**
+ * A TensorFlow Lite execution configuration: the accelerator delegate and the number of CPU
+ * threads the interpreter may use for the operations the delegate does not take over.
+ */
+public final class DelegateConfig {
+    public enum Backend {
+        GPU,
+        NNAPI,
+        /** The CPU kernels with the XNNPACK delegate enabled. */
+        CPU
+    }
+
+    private final Backend backend;
+    private final int numThreads;
+
+    public DelegateConfig(Backend backend, int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("At least one thread is required.");
+        }
+        this.backend = backend;
+        this.numThreads = numThreads;
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Returns the string stored by {@link #encode()} as a config, or {@code null} when it is
+     * missing or was written by an incompatible version.
+     */
+    public static DelegateConfig decode(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        int separator = value.indexOf(':');
+        if (separator < 0) {
+            return null;
+        }
+
+        try {
+            return new DelegateConfig(
+                Backend.valueOf(value.substring(0, separator)),
+                Integer.parseInt(value.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
+    public String encode() {
+        return backend.name() + ":" + numThreads;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof DelegateConfig)) {
+            return false;
+        }
+
+        DelegateConfig config = (DelegateConfig) other;
+        return backend == config.backend && numThreads == config.numThreads;
+    }
+
+    @Override
+    public int hashCode() {
+        return backend.hashCode() * 31 + numThreads;
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
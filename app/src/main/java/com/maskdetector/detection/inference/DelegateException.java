@@ -0,0 +1,14 @@
+package com.maskdetector.detection.inference;
+
+/**
+ * Thrown by an {@link InferenceEngine} when its hardware delegate fails to run the model, as
+ * opposed to errors of the caller. Only these make the {@link DelegateSelector} give up on a
+ * configuration.
+ */
+public final class DelegateException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DelegateException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,221 @@
+package com.maskdetector.detection.inference;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Picks the fastest working {@link DelegateConfig} for this device and falls back to the next
+ * one whenever the engine in use throws a {@link DelegateException}.
+ * <p>
+ * The first launch runs a short warm-up benchmark of every candidate; the winner is remembered
+ * through a {@link Store} so later launches open it directly. Selection happens lazily on the
+ * first {@link InferenceEngine#run} call, i.e. on the inference thread instead of the UI thread,
+ * and the engine must be closed on that same thread: GPU delegates are bound to it.
+ */
+public final class DelegateSelector {
+    public interface EngineFactory {
+        InferenceEngine create(DelegateConfig config);
+    }
+
+    public interface Store {
+        DelegateConfig load();
+
+        void save(DelegateConfig config);
+    }
+
+    private static final int DEFAULT_WARMUP_RUNS = 3;
+    private static final int DEFAULT_TIMED_RUNS = 10;
+
+    private final EngineFactory engineFactory;
+    private final List<DelegateConfig> candidates;
+    private final Store store;
+    private final int inputSizeInBytes;
+    private final int outputSizeInBytes;
+    private final int warmupRuns;
+    private final int timedRuns;
+
+    public DelegateSelector(EngineFactory engineFactory, List<DelegateConfig> candidates, Store store,
+                            int inputSizeInBytes, int outputSizeInBytes) {
+        this(engineFactory, candidates, store, inputSizeInBytes, outputSizeInBytes, DEFAULT_WARMUP_RUNS, DEFAULT_TIMED_RUNS);
+    }
+
+    public DelegateSelector(EngineFactory engineFactory, List<DelegateConfig> candidates, Store store,
+                            int inputSizeInBytes, int outputSizeInBytes, int warmupRuns, int timedRuns) {
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("At least one candidate is required.");
+        }
+        this.engineFactory = engineFactory;
+        this.candidates = new ArrayList<>(candidates);
+        this.store = store;
+        this.inputSizeInBytes = inputSizeInBytes;
+        this.outputSizeInBytes = outputSizeInBytes;
+        this.warmupRuns = warmupRuns;
+        this.timedRuns = timedRuns;
+    }
+
+    /**
+     * The usual candidates: GPU, NNAPI and the XNNPACK CPU path with 1, 2 and 4 threads (capped
+     * at the number of cores).
+     */
+    public static List<DelegateConfig> defaultCandidates(int availableProcessors) {
+        List<DelegateConfig> candidates = new ArrayList<>();
+        candidates.add(new DelegateConfig(DelegateConfig.Backend.GPU, 1));
+        candidates.add(new DelegateConfig(DelegateConfig.Backend.NNAPI, 1));
+        for (int threads = 1; threads <= 4; threads *= 2) {
+            if (threads > 1 && threads > availableProcessors) {
+                break;
+            }
+            candidates.add(new DelegateConfig(DelegateConfig.Backend.CPU, threads));
+        }
+
+        return candidates;
+    }
+
+    public InferenceEngine newEngine() {
+        return new FallbackEngine();
+    }
+
+    /**
+     * Returns the working candidates ordered fastest first, or an empty list if none works.
+     * Every candidate is opened, measured and closed again.
+     */
+    List<DelegateConfig> benchmark() {
+        ByteBuffer input = ByteBuffer.allocateDirect(inputSizeInBytes).order(ByteOrder.nativeOrder());
+        ByteBuffer output = ByteBuffer.allocateDirect(outputSizeInBytes).order(ByteOrder.nativeOrder());
+        final List<DelegateConfig> working = new ArrayList<>();
+        final List<Long> timings = new ArrayList<>();
+
+        for (DelegateConfig config : candidates) {
+            InferenceEngine engine = null;
+            try {
+                engine = engineFactory.create(config);
+                for (int i = 0; i < warmupRuns; i++) {
+                    runOnce(engine, input, output);
+                }
+
+                long startNanos = System.nanoTime();
+                for (int i = 0; i < timedRuns; i++) {
+                    runOnce(engine, input, output);
+                }
+                timings.add((System.nanoTime() - startNanos) / Math.max(1, timedRuns));
+                working.add(config);
+            } catch (RuntimeException exception) {
+                // Delegates the device does not support throw here; the next candidate is tried.
+            } finally {
+                if (engine != null) {
+                    engine.close();
+                }
+            }
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < working.size(); i++) {
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                // Stable on ties, so the candidate order decides.
+                return Long.compare(timings.get(first), timings.get(second));
+            }
+        });
+
+        List<DelegateConfig> ranked = new ArrayList<>();
+        for (int index : order) {
+            ranked.add(working.get(index));
+        }
+
+        return ranked;
+    }
+
+    private static void runOnce(InferenceEngine engine, ByteBuffer input, ByteBuffer output) {
+        input.rewind();
+        output.rewind();
+        engine.run(input, output, 1);
+    }
+
+    /**
+     * Opens the remembered configuration, benchmarking the candidates if there is none, and
+     * replaces the engine with the next fastest configuration whenever its delegate fails. Other
+     * errors are rethrown and keep the configuration.
+     */
+    private final class FallbackEngine implements InferenceEngine {
+        private final List<DelegateConfig> failed = new ArrayList<>();
+        private List<DelegateConfig> remaining;
+        private InferenceEngine engine;
+        private DelegateConfig config;
+        private boolean benchmarked;
+        private Thread ownerThread;
+
+        @Override
+        public void run(ByteBuffer input, ByteBuffer output, int batchSize) {
+            while (true) {
+                if (engine == null) {
+                    open();
+                }
+
+                int inputPosition = input.position();
+                int outputPosition = output.position();
+                try {
+                    engine.run(input, output, batchSize);
+                    return;
+                } catch (DelegateException exception) {
+                    input.position(inputPosition);
+                    output.position(outputPosition);
+                    engine.close();
+                    engine = null;
+                    failed.add(config);
+                    if (remaining.isEmpty() && benchmarked) {
+                        throw exception;
+                    }
+                }
+            }
+        }
+
+        private void open() {
+            ownerThread = Thread.currentThread();
+            if (remaining == null) {
+                remaining = new ArrayList<>();
+                DelegateConfig stored = store.load();
+                if (stored != null && candidates.contains(stored)) {
+                    remaining.add(stored);
+                }
+            }
+
+            while (engine == null) {
+                if (remaining.isEmpty()) {
+                    if (benchmarked) {
+                        throw new IllegalStateException("None of the delegate configurations " + candidates + " works on this device.");
+                    }
+                    remaining = benchmark();
+                    remaining.removeAll(failed);
+                    benchmarked = true;
+                    continue;
+                }
+
+                config = remaining.remove(0);
+                try {
+                    engine = engineFactory.create(config);
+                    store.save(config);
+                } catch (RuntimeException exception) {
+                    failed.add(config);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (engine != null && Thread.currentThread() != ownerThread) {
+                throw new IllegalStateException("The engine must be closed on the thread that ran it.");
+            }
+            if (engine != null) {
+                engine.close();
+                engine = null;
+            }
+        }
+    }
+}
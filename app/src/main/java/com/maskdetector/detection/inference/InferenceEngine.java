@@ -0,0 +1,13 @@
+package com.maskdetector.detection.inference;
+
+import java.nio.ByteBuffer;
+
+public interface InferenceEngine {
+    /**
+     * Runs the model on {@code batchSize} preprocessed inputs laid out back to back and writes the
+     * raw output tensor. Both buffers are rewound and limited to the batch by the caller.
+     */
+    void run(ByteBuffer input, ByteBuffer output, int batchSize);
+
+    void close();
+}
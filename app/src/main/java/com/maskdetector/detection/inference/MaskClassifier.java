@@ -0,0 +1,204 @@
+package com.maskdetector.detection.inference;
+
+import com.maskdetector.detection.face.FaceBox;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Wraps an {@link InferenceEngine} with a fixed pool of pre-allocated input/output tensors so that
+ * steady-state classification allocates nothing: scores are written into a caller-owned float[].
+ *
+ * Each slot holds up to {@code maxBatchSize} face crops which are classified in one engine call.
+ */
+public final class MaskClassifier {
+    public static final String LABEL_WITH_MASK = "with_mask";
+    public static final String LABEL_WITHOUT_MASK = "without_mask";
+
+    public static final class Slot {
+        private final ByteBuffer inputBuffer;
+        private final ByteBuffer[] inputViews;
+        private final ByteBuffer outputBuffer;
+        private final FaceBox[] faces;
+        private final int[] trackIds;
+        private int faceCount;
+        private long timestampNanos;
+        private long arrivalNanos;
+        private long enqueuedNanos;
+
+        private Slot(int inputSizeInBytes, int classCount, int maxBatchSize) {
+            inputBuffer = ByteBuffer.allocateDirect(inputSizeInBytes * maxBatchSize).order(ByteOrder.nativeOrder());
+            outputBuffer = ByteBuffer.allocateDirect(classCount * maxBatchSize * 4).order(ByteOrder.nativeOrder());
+
+            inputViews = new ByteBuffer[maxBatchSize];
+            faces = new FaceBox[maxBatchSize];
+            trackIds = new int[maxBatchSize];
+            for (int i = 0; i < maxBatchSize; i++) {
+                inputBuffer.position(i * inputSizeInBytes);
+                inputBuffer.limit((i + 1) * inputSizeInBytes);
+                inputViews[i] = inputBuffer.slice().order(ByteOrder.nativeOrder());
+                inputBuffer.clear();
+                faces[i] = new FaceBox();
+            }
+        }
+
+        public ByteBuffer getInputBuffer() {
+            return inputViews[0];
+        }
+
+        public ByteBuffer getInputBuffer(int index) {
+            return inputViews[index];
+        }
+
+        /**
+         * Boxes of the crops written into this slot; only the first {@link #getFaceCount()} are valid.
+         */
+        public FaceBox[] getFaces() {
+            return faces;
+        }
+
+        /**
+         * Tracker ids of the crops written into this slot, when a face tracker is in use.
+         */
+        public int[] getTrackIds() {
+            return trackIds;
+        }
+
+        public int getFaceCount() {
+            return faceCount;
+        }
+
+        public void setFaceCount(int faceCount) {
+            if (faceCount < 0 || faceCount > faces.length) {
+                throw new IllegalArgumentException("Invalid face count " + faceCount + ".");
+            }
+
+            this.faceCount = faceCount;
+        }
+
+        public long getTimestampNanos() {
+            return timestampNanos;
+        }
+
+        public void setTimestampNanos(long timestampNanos) {
+            this.timestampNanos = timestampNanos;
+        }
+
+        /**
+         * {@link System#nanoTime()} when the camera handed over the frame.
+         */
+        public long getArrivalNanos() {
+            return arrivalNanos;
+        }
+
+        public void setArrivalNanos(long arrivalNanos) {
+            this.arrivalNanos = arrivalNanos;
+        }
+
+        /**
+         * {@link System#nanoTime()} when the slot was queued for inference.
+         */
+        public long getEnqueuedNanos() {
+            return enqueuedNanos;
+        }
+
+        public void setEnqueuedNanos(long enqueuedNanos) {
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    private final InferenceEngine engine;
+    private final String[] labels;
+    private final int inputSizeInBytes;
+    private final int maxBatchSize;
+    private final BlockingQueue<Slot> pool;
+
+    private volatile long frameCount;
+
+    public MaskClassifier(InferenceEngine engine, String[] labels, int inputSizeInBytes, int poolSize) {
+        this(engine, labels, inputSizeInBytes, poolSize, 1);
+    }
+
+    public MaskClassifier(InferenceEngine engine, String[] labels, int inputSizeInBytes, int poolSize, int maxBatchSize) {
+        this.engine = engine;
+        this.labels = labels;
+        this.inputSizeInBytes = inputSizeInBytes;
+        this.maxBatchSize = maxBatchSize;
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+
+        for (int i = 0; i < poolSize; i++) {
+            Slot slot = new Slot(inputSizeInBytes, labels.length, maxBatchSize);
+            slot.faceCount = 1;
+            pool.add(slot);
+        }
+    }
+
+    public String[] getLabels() {
+        return labels;
+    }
+
+    public int getClassCount() {
+        return labels.length;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int indexOf(String label) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equals(label)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    public Slot acquire() throws InterruptedException {
+        return pool.take();
+    }
+
+    public Slot tryAcquire() {
+        return pool.poll();
+    }
+
+    public void release(Slot slot) {
+        pool.offer(slot);
+    }
+
+    /**
+     * Classifies every crop of the slot in a single engine call. Scores of crop {@code i} are written
+     * at {@code scores[i * getClassCount()]}; a slot without faces is skipped entirely.
+     */
+    public synchronized void classify(Slot slot, float[] scores) {
+        int batchSize = slot.faceCount;
+        if (scores.length < batchSize * labels.length) {
+            throw new IllegalArgumentException("Scores array holds " + scores.length + " values, " + batchSize * labels.length + " needed.");
+        }
+
+        frameCount++;
+        if (batchSize == 0) {
+            return;
+        }
+
+        slot.inputBuffer.rewind().limit(batchSize * inputSizeInBytes);
+        slot.outputBuffer.rewind().limit(batchSize * labels.length * 4);
+        engine.run(slot.inputBuffer, slot.outputBuffer, batchSize);
+
+        slot.outputBuffer.rewind();
+        for (int i = 0; i < batchSize * labels.length; i++) {
+            scores[i] = slot.outputBuffer.getFloat();
+        }
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public void close() {
+        engine.close();
+    }
+}
@@ -0,0 +1,186 @@
+package com.maskdetector.detection.inference;
+
+import android.content.Context;
+
+import com.maskdetector.detection.env.FramePreprocessor;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Delegate;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+import org.tensorflow.lite.gpu.GpuDelegate;
+import org.tensorflow.lite.nnapi.NnApiDelegate;
+import org.tensorflow.lite.support.common.FileUtil;
+import org.tensorflow.lite.support.metadata.MetadataExtractor;
+import org.tensorflow.lite.support.metadata.schema.NormalizationOptions;
+import org.tensorflow.lite.support.metadata.schema.ProcessUnit;
+import org.tensorflow.lite.support.metadata.schema.ProcessUnitOptions;
+import org.tensorflow.lite.support.metadata.schema.TensorMetadata;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The bundled face mask classification model (the same file the generated FaceMaskDetection
+ * binding loads) together with its input tensor and the labels and input normalization found
+ * in its metadata.
+ */
+public final class MaskModel {
+    public static final String MODEL_PATH = "face_mask_detection.tflite";
+
+    private static final String[] DEFAULT_LABELS = {MaskClassifier.LABEL_WITH_MASK, MaskClassifier.LABEL_WITHOUT_MASK};
+
+    private final MappedByteBuffer modelBuffer;
+    private String[] labels = DEFAULT_LABELS;
+    private float inputMean = 0f;
+    private float inputStd = 1f;
+    private int inputWidth;
+    private int inputHeight;
+    private FramePreprocessor.OutputType inputType;
+
+    private MaskModel(MappedByteBuffer modelBuffer) {
+        this.modelBuffer = modelBuffer;
+    }
+
+    public static MaskModel load(Context context) throws IOException {
+        MaskModel model = new MaskModel(FileUtil.loadMappedFile(context, MODEL_PATH));
+        model.readInputTensor();
+        model.readMetadata();
+        return model;
+    }
+
+    public String[] getLabels() {
+        return labels;
+    }
+
+    public float getInputMean() {
+        return inputMean;
+    }
+
+    public float getInputStd() {
+        return inputStd;
+    }
+
+    public int getInputWidth() {
+        return inputWidth;
+    }
+
+    public int getInputHeight() {
+        return inputHeight;
+    }
+
+    public FramePreprocessor.OutputType getInputType() {
+        return inputType;
+    }
+
+    /**
+     * Opens an interpreter for the given configuration. Throws if the delegate cannot be created
+     * or cannot take the graph on this device.
+     */
+    public InferenceEngine newEngine(DelegateConfig config) {
+        Interpreter.Options options = new Interpreter.Options().setNumThreads(config.getNumThreads());
+        Delegate delegate = null;
+        switch (config.getBackend()) {
+            case GPU:
+                delegate = new GpuDelegate();
+                break;
+            case NNAPI:
+                delegate = new NnApiDelegate();
+                break;
+            case CPU:
+                options.setUseXNNPACK(true);
+                break;
+        }
+        if (delegate != null) {
+            options.addDelegate(delegate);
+        }
+
+        try {
+            return new TfLiteInferenceEngine(new Interpreter(modelBuffer, options), delegate);
+        } catch (RuntimeException exception) {
+            closeDelegate(delegate);
+            throw exception;
+        }
+    }
+
+    static void closeDelegate(Delegate delegate) {
+        if (delegate instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) delegate).close();
+            } catch (Exception ignored) {
+                // Delegates release native memory only; nothing to recover here.
+            }
+        }
+    }
+
+    /**
+     * Reads the input shape ([batch, height, width, channels]) and type from a plain CPU
+     * interpreter, which does not allocate its tensors until the first run.
+     */
+    private void readInputTensor() throws IOException {
+        Interpreter interpreter = new Interpreter(modelBuffer);
+        try {
+            Tensor input = interpreter.getInputTensor(0);
+            int[] shape = input.shape();
+            if (shape.length != 4 || shape[3] != 3) {
+                throw new IOException("Unsupported input shape " + Arrays.toString(shape) + ".");
+            }
+            inputHeight = shape[1];
+            inputWidth = shape[2];
+
+            DataType dataType = input.dataType();
+            if (dataType == DataType.FLOAT32) {
+                inputType = FramePreprocessor.OutputType.FLOAT32;
+            } else if (dataType == DataType.UINT8) {
+                inputType = FramePreprocessor.OutputType.UINT8;
+            } else {
+                throw new IOException("Unsupported input type " + dataType + ".");
+            }
+        } finally {
+            interpreter.close();
+        }
+    }
+
+    private void readMetadata() throws IOException {
+        MetadataExtractor extractor = new MetadataExtractor(modelBuffer);
+        if (!extractor.hasMetadata()) {
+            return;
+        }
+
+        TensorMetadata inputMetadata = extractor.getInputTensorMetadata(0);
+        for (int i = 0; inputMetadata != null && i < inputMetadata.processUnitsLength(); i++) {
+            ProcessUnit unit = inputMetadata.processUnits(i);
+            if (unit.optionsType() == ProcessUnitOptions.NormalizationOptions) {
+                NormalizationOptions normalization = (NormalizationOptions) unit.options(new NormalizationOptions());
+                inputMean = normalization.mean(0);
+                inputStd = normalization.std(0);
+            }
+        }
+
+        TensorMetadata outputMetadata = extractor.getOutputTensorMetadata(0);
+        if (outputMetadata != null && outputMetadata.associatedFilesLength() > 0) {
+            labels = readLabels(extractor.getAssociatedFile(outputMetadata.associatedFiles(0).name()));
+        }
+    }
+
+    private static String[] readLabels(InputStream inputStream) throws IOException {
+        List<String> labels = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    labels.add(line.trim());
+                }
+            }
+        }
+
+        return labels.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,33 @@
+package com.maskdetector.detection.inference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+/**
+ * Remembers the selected {@link DelegateConfig} per device model and OS version, so a system
+ * update (which may change the GPU or NNAPI drivers) triggers a new benchmark.
+ */
+public final class SharedPreferencesDelegateStore implements DelegateSelector.Store {
+    private static final String PREFERENCES_NAME = "inference_delegate";
+
+    private final SharedPreferences preferences;
+    private final String key;
+
+    public SharedPreferencesDelegateStore(Context context, String modelName) {
+        this.preferences = context.getApplicationContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.key = modelName + "/" + Build.MANUFACTURER + "/" + Build.MODEL + "/" + Build.VERSION.SDK_INT;
+    }
+
+    @Override
+    public DelegateConfig load() {
+        return DelegateConfig.decode(preferences.getString(key, null));
+    }
+
+    @Override
+    public void save(DelegateConfig config) {
+        if (!config.encode().equals(preferences.getString(key, null))) {
+            preferences.edit().putString(key, config.encode()).apply();
+        }
+    }
+}
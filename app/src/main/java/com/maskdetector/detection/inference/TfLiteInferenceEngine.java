@@ -0,0 +1,42 @@
+package com.maskdetector.detection.inference;
+
+import org.tensorflow.lite.Delegate;
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+
+public final class TfLiteInferenceEngine implements InferenceEngine {
+    private final Interpreter interpreter;
+    private final Delegate delegate;
+    private final int[] inputShape;
+
+    public TfLiteInferenceEngine(Interpreter interpreter, Delegate delegate) {
+        this.interpreter = interpreter;
+        this.delegate = delegate;
+        this.inputShape = interpreter.getInputTensor(0).shape();
+    }
+
+    @Override
+    public void run(ByteBuffer input, ByteBuffer output, int batchSize) {
+        if (inputShape[0] != batchSize) {
+            // Only happens when the number of faces changes; the interpreter keeps its buffers otherwise.
+            inputShape[0] = batchSize;
+            interpreter.resizeInput(0, inputShape);
+        }
+        try {
+            interpreter.run(input, output);
+        } catch (IllegalStateException | IllegalArgumentException exception) {
+            // Without a delegate the CPU kernels ran, so the error is not the delegate's.
+            if (delegate == null) {
+                throw exception;
+            }
+            throw new DelegateException("The " + delegate.getClass().getSimpleName() + " failed to run the model.", exception);
+        }
+    }
+
+    @Override
+    public void close() {
+        interpreter.close();
+        MaskModel.closeDelegate(delegate);
+    }
+}
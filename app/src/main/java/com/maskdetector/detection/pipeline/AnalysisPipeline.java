@@ -0,0 +1,299 @@
+package com.maskdetector.detection.pipeline;
+
+import com.maskdetector.detection.face.FaceTracker;
+import com.maskdetector.detection.inference.MaskClassifier;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splits frame analysis into a conversion stage (the camera thread), an inference stage (a
+ * dedicated thread owned by the pipeline) and a publishing stage (the {@link Listener}).
+ *
+ * The camera thread fills a pooled {@link MaskClassifier.Slot} and can release its image right
+ * away, so the next frame is converted while the previous one is still being classified.
+ */
+public final class AnalysisPipeline {
+    public enum DropPolicy {
+        /** Skip the incoming frame when no slot is free. */
+        DROP_NEWEST,
+        /** Recycle the oldest frame still waiting for inference. */
+        DROP_OLDEST,
+        /** Wait on the camera thread until a slot is released. */
+        BLOCK
+    }
+
+    public interface Listener {
+        /**
+         * Called on the inference thread; {@code result} is reused for the next frame.
+         */
+        void onResult(FrameResult result);
+
+        void onError(RuntimeException exception);
+    }
+
+    private final MaskClassifier classifier;
+    private final FaceTracker faceTracker;
+    private final DropPolicy dropPolicy;
+    private final Listener listener;
+    private final BlockingQueue<MaskClassifier.Slot> pendingSlots;
+    private final FrameResult result;
+    private final float[] classifiedScores;
+
+    private final AtomicLong submittedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong processedFrames = new AtomicLong();
+
+    private volatile PipelineMetrics metrics;
+    private volatile boolean running;
+    private volatile boolean closing;
+    private Thread inferenceThread;
+
+    public AnalysisPipeline(MaskClassifier classifier, int queueDepth, DropPolicy dropPolicy, Listener listener) {
+        this(classifier, null, queueDepth, dropPolicy, listener);
+    }
+
+    /**
+     * With a {@link FaceTracker}, slots carry the track ids of their crops and results report every
+     * visible track, including those answered from the track's cached classification.
+     */
+    public AnalysisPipeline(MaskClassifier classifier, FaceTracker faceTracker, int queueDepth,
+                            DropPolicy dropPolicy, Listener listener) {
+        if (queueDepth < 1) {
+            throw new IllegalArgumentException("queueDepth must be positive.");
+        }
+
+        this.classifier = classifier;
+        this.faceTracker = faceTracker;
+        this.dropPolicy = dropPolicy;
+        this.listener = listener;
+        this.pendingSlots = new ArrayBlockingQueue<>(queueDepth);
+        this.result = new FrameResult(
+            classifier.getClassCount(),
+            faceTracker != null ? faceTracker.getMaxTracks() : classifier.getMaxBatchSize()
+        );
+        this.classifiedScores = new float[classifier.getClassCount() * classifier.getMaxBatchSize()];
+    }
+
+    /**
+     * Records queue and inference latency and frame counts into {@code metrics}, or nothing when
+     * {@code null}.
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (closing) {
+            throw new IllegalStateException("The pipeline is closed.");
+        }
+
+        running = true;
+        inferenceThread = new Thread(this::runInference, "mask-inference");
+        inferenceThread.start();
+    }
+
+    /**
+     * Stops the inference thread and waits for the classification it is running, if any, so the
+     * classifier may be used or closed once this returns. No result is delivered afterwards.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (inferenceThread == null) {
+            return;
+        }
+
+        inferenceThread.interrupt();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                inferenceThread.join();
+                break;
+            } catch (InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        inferenceThread = null;
+
+        MaskClassifier.Slot slot;
+        while ((slot = pendingSlots.poll()) != null) {
+            cancel(slot);
+        }
+    }
+
+    /**
+     * Stops the pipeline for good without waiting: the inference thread closes the classifier
+     * once its running classification returns, so the interpreter and its delegate are released
+     * on the thread that used them and never while they run.
+     */
+    public synchronized void close() {
+        if (closing) {
+            return;
+        }
+
+        closing = true;
+        running = false;
+        if (inferenceThread == null) {
+            classifier.close();
+            return;
+        }
+
+        inferenceThread.interrupt();
+        inferenceThread = null;
+    }
+
+    /**
+     * Returns a slot to convert the next frame into, or null when the frame should be dropped.
+     */
+    public MaskClassifier.Slot acquireSlot() throws InterruptedException {
+        submittedFrames.incrementAndGet();
+
+        MaskClassifier.Slot slot = classifier.tryAcquire();
+        if (slot != null) {
+            slot.setFaceCount(0);
+            return slot;
+        }
+
+        switch (dropPolicy) {
+            case DROP_OLDEST:
+                slot = pendingSlots.poll();
+                if (slot != null) {
+                    recordDroppedFrame();
+                    cancelTracks(slot);
+                    slot.setFaceCount(0);
+                    return slot;
+                }
+                // Every slot is in conversion or inference; nothing waiting can be recycled.
+                recordDroppedFrame();
+                return null;
+            case BLOCK:
+                slot = classifier.acquire();
+                slot.setFaceCount(0);
+                return slot;
+            case DROP_NEWEST:
+            default:
+                recordDroppedFrame();
+                return null;
+        }
+    }
+
+    /**
+     * Hands a converted slot over to the inference stage.
+     */
+    public void enqueue(MaskClassifier.Slot slot, long timestampNanos) {
+        slot.setTimestampNanos(timestampNanos);
+        slot.setEnqueuedNanos(System.nanoTime());
+        if (!pendingSlots.offer(slot)) {
+            recordDroppedFrame();
+            cancel(slot);
+        }
+    }
+
+    /**
+     * Gives back a slot obtained from {@link #acquireSlot()} that could not be converted.
+     */
+    public void cancel(MaskClassifier.Slot slot) {
+        cancelTracks(slot);
+        classifier.release(slot);
+    }
+
+    public long getSubmittedFrames() {
+        return submittedFrames.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public long getProcessedFrames() {
+        return processedFrames.get();
+    }
+
+    private void recordDroppedFrame() {
+        droppedFrames.incrementAndGet();
+        PipelineMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.recordDroppedFrame();
+        }
+    }
+
+    private void cancelTracks(MaskClassifier.Slot slot) {
+        if (faceTracker == null) {
+            return;
+        }
+
+        for (int i = 0; i < slot.getFaceCount(); i++) {
+            faceTracker.cancel(slot.getTrackIds()[i]);
+        }
+    }
+
+    private void runInference() {
+        try {
+            inferLoop();
+        } finally {
+            if (closing) {
+                classifier.close();
+            }
+        }
+    }
+
+    private void inferLoop() {
+        while (running) {
+            MaskClassifier.Slot slot;
+            try {
+                slot = pendingSlots.take();
+            } catch (InterruptedException exception) {
+                return;
+            }
+
+            result.setTimestampNanos(slot.getTimestampNanos());
+            result.setArrivalNanos(slot.getArrivalNanos());
+            result.setClassifiedFaceCount(slot.getFaceCount());
+            long inferenceStartNanos = System.nanoTime();
+            PipelineMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.record(PipelineMetrics.Stage.QUEUE, inferenceStartNanos - slot.getEnqueuedNanos());
+            }
+            try {
+                if (faceTracker == null) {
+                    result.setFaces(slot.getFaces(), slot.getFaceCount());
+                    classifier.classify(slot, result.getScores());
+                } else {
+                    classifier.classify(slot, classifiedScores);
+                    int classCount = classifier.getClassCount();
+                    for (int i = 0; i < slot.getFaceCount(); i++) {
+                        faceTracker.storeScores(slot.getTrackIds()[i], classifiedScores, i * classCount);
+                    }
+                    result.setFaceCount(faceTracker.copyVisibleTracks(result.getTrackIds(), result.getFaces(), result.getScores()));
+                }
+            } catch (RuntimeException exception) {
+                cancelTracks(slot);
+                listener.onError(exception);
+                continue;
+            } finally {
+                classifier.release(slot);
+            }
+
+            result.setInferenceNanos(System.nanoTime() - inferenceStartNanos);
+            processedFrames.incrementAndGet();
+            if (metrics != null) {
+                // The slot is back in the pool by now, so its face count may already be reset.
+                if (result.getClassifiedFaceCount() > 0) {
+                    metrics.record(PipelineMetrics.Stage.INFERENCE, result.getInferenceNanos());
+                }
+                metrics.recordProcessedFrame();
+            }
+            if (!running) {
+                return;
+            }
+            listener.onResult(result);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.maskdetector.detection.pipeline;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+
+import androidx.core.content.ContextCompat;
+
+/**
+ * Feeds a {@link FrameScheduler} with a power budget derived from battery saver, battery level
+ * and (on Android 10+) the thermal status.
+ */
+public final class DevicePowerMonitor {
+    private static final int LOW_BATTERY_PERCENT = 15;
+    private static final float LOW_POWER_SCALE = 0.5f;
+
+    private final Context context;
+    private final FrameScheduler frameScheduler;
+    private final PowerManager powerManager;
+
+    private final BroadcastReceiver batteryReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+                updateBattery(intent);
+            }
+            update();
+        }
+    };
+
+    private PowerManager.OnThermalStatusChangedListener thermalListener;
+    private boolean lowBattery;
+    private int thermalStatus;
+
+    public DevicePowerMonitor(Context context, FrameScheduler frameScheduler) {
+        this.context = context.getApplicationContext();
+        this.frameScheduler = frameScheduler;
+        this.powerManager = ContextCompat.getSystemService(this.context, PowerManager.class);
+    }
+
+    public void start() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_BATTERY_CHANGED);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        Intent batteryStatus = context.registerReceiver(batteryReceiver, filter);
+        if (batteryStatus != null) {
+            updateBattery(batteryStatus);
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && powerManager != null) {
+            thermalStatus = powerManager.getCurrentThermalStatus();
+            thermalListener = status -> {
+                thermalStatus = status;
+                update();
+            };
+            powerManager.addThermalStatusListener(ContextCompat.getMainExecutor(context), thermalListener);
+        }
+
+        update();
+    }
+
+    public void stop() {
+        context.unregisterReceiver(batteryReceiver);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && powerManager != null && thermalListener != null) {
+            powerManager.removeThermalStatusListener(thermalListener);
+            thermalListener = null;
+        }
+    }
+
+    private void updateBattery(Intent batteryStatus) {
+        int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        int plugged = batteryStatus.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0);
+
+        lowBattery = plugged == 0 && level >= 0 && scale > 0 && level * 100 / scale <= LOW_BATTERY_PERCENT;
+    }
+
+    private void update() {
+        float scale = 1f;
+        if (lowBattery || (powerManager != null && powerManager.isPowerSaveMode())) {
+            scale *= LOW_POWER_SCALE;
+        }
+        scale *= thermalScale(thermalStatus);
+
+        frameScheduler.setPowerScale(scale);
+    }
+
+    private static float thermalScale(int status) {
+        switch (status) {
+            case PowerManager.THERMAL_STATUS_MODERATE:
+                return 0.75f;
+            case PowerManager.THERMAL_STATUS_SEVERE:
+                return 0.5f;
+            case PowerManager.THERMAL_STATUS_CRITICAL:
+            case PowerManager.THERMAL_STATUS_EMERGENCY:
+            case PowerManager.THERMAL_STATUS_SHUTDOWN:
+                return 0.25f;
+            default:
+                return 1f;
+        }
+    }
+}
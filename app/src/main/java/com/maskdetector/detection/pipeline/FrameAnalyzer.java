@@ -0,0 +1,143 @@
+package com.maskdetector.detection.pipeline;
+
+import com.maskdetector.detection.env.FrameConsumer;
+import com.maskdetector.detection.env.YuvFrame;
+import com.maskdetector.detection.face.FaceBox;
+import com.maskdetector.detection.face.FaceCropper;
+import com.maskdetector.detection.face.FaceDetector;
+import com.maskdetector.detection.face.FaceTracker;
+import com.maskdetector.detection.inference.MaskClassifier;
+
+/**
+ * The conversion stage of the {@link AnalysisPipeline}: decides whether a frame is analyzed,
+ * detects and tracks its faces and crops the ones to classify into a pipeline slot. Frames can
+ * come from the camera or from a recording, so runs can be replayed on the JVM.
+ * <p>
+ * Must be called from a single thread. Once {@link #onFrame} returns, the frame's pixels have
+ * been copied and its buffers may be reused.
+ */
+public final class FrameAnalyzer implements FrameConsumer {
+    private final FrameScheduler frameScheduler;
+    private final FaceDetector faceDetector;
+    private final FaceTracker faceTracker;
+    private final FaceCropper faceCropper;
+    private final AnalysisPipeline analysisPipeline;
+    private final PipelineMetrics metrics;
+    private final boolean mirror;
+    private final FaceBox[] detectedFaces;
+    private MotionGate motionGate;
+
+    public FrameAnalyzer(FrameScheduler frameScheduler, FaceDetector faceDetector, FaceTracker faceTracker,
+                         FaceCropper faceCropper, AnalysisPipeline analysisPipeline, PipelineMetrics metrics,
+                         int maxFaces, boolean mirror) {
+        this.frameScheduler = frameScheduler;
+        this.faceDetector = faceDetector;
+        this.faceTracker = faceTracker;
+        this.faceCropper = faceCropper;
+        this.analysisPipeline = analysisPipeline;
+        this.metrics = metrics;
+        this.mirror = mirror;
+        this.detectedFaces = new FaceBox[maxFaces];
+        for (int i = 0; i < detectedFaces.length; i++) {
+            detectedFaces[i] = new FaceBox();
+        }
+    }
+
+    /**
+     * Skips frames of a static scene before they are converted, or analyzes every scheduled frame
+     * when {@code null}.
+     */
+    public void setMotionGate(MotionGate motionGate) {
+        this.motionGate = motionGate;
+    }
+
+    /**
+     * Analyzes the frame or skips it. A slot that cannot be filled is given back before the
+     * exception is rethrown.
+     */
+    @Override
+    public void onFrame(YuvFrame frame, int rotationDegrees, long timestampNanos) {
+        onFrame(frame, rotationDegrees, timestampNanos, null);
+    }
+
+    /**
+     * Like {@link #onFrame(YuvFrame, int, long)}, but runs {@code releaseFrame} once the pixels
+     * have been copied and before the slot is queued, which may block. It runs exactly once, even
+     * if the frame is skipped or fails.
+     */
+    public void onFrame(YuvFrame frame, int rotationDegrees, long timestampNanos, Runnable releaseFrame) {
+        MaskClassifier.Slot slot;
+        try {
+            slot = prepare(frame, rotationDegrees, timestampNanos);
+        } finally {
+            if (releaseFrame != null) {
+                releaseFrame.run();
+            }
+        }
+
+        if (slot != null) {
+            analysisPipeline.enqueue(slot, timestampNanos);
+        }
+    }
+
+    /**
+     * Returns a slot holding the crops to classify, or {@code null} if the frame is skipped.
+     */
+    private MaskClassifier.Slot prepare(YuvFrame frame, int rotationDegrees, long timestampNanos) {
+        if (!frameScheduler.shouldAnalyze(timestampNanos)) {
+            return null;
+        }
+        if (motionGate != null) {
+            long gateStartNanos = System.nanoTime();
+            boolean moving = motionGate.shouldAnalyze(frame, timestampNanos);
+            metrics.record(PipelineMetrics.Stage.MOTION_GATE, System.nanoTime() - gateStartNanos);
+            if (!moving) {
+                metrics.recordStaticFrame();
+                return null;
+            }
+        }
+
+        long arrivalNanos = System.nanoTime();
+        MaskClassifier.Slot slot;
+        try {
+            slot = analysisPipeline.acquireSlot();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (slot == null) {
+            return null;
+        }
+
+        try {
+            slot.setArrivalNanos(arrivalNanos);
+
+            long stageStartNanos = System.nanoTime();
+            int detectedCount = faceDetector.detect(frame, rotationDegrees, mirror, detectedFaces);
+            long stageEndNanos = System.nanoTime();
+            metrics.record(PipelineMetrics.Stage.DETECTION, stageEndNanos - stageStartNanos);
+
+            stageStartNanos = stageEndNanos;
+            faceTracker.update(detectedFaces, detectedCount);
+
+            // Only new tracks and tracks with a stale classification are cropped.
+            FaceBox[] faces = slot.getFaces();
+            int faceCount = faceTracker.selectForClassification(slot.getTrackIds(), faces);
+            slot.setFaceCount(faceCount);
+            stageEndNanos = System.nanoTime();
+            metrics.record(PipelineMetrics.Stage.TRACKING, stageEndNanos - stageStartNanos);
+
+            if (faceCount > 0) {
+                stageStartNanos = stageEndNanos;
+                for (int face = 0; face < faceCount; face++) {
+                    faceCropper.crop(frame, rotationDegrees, mirror, faces[face], slot.getInputBuffer(face));
+                }
+                metrics.record(PipelineMetrics.Stage.CROP, System.nanoTime() - stageStartNanos);
+            }
+        } catch (RuntimeException exception) {
+            analysisPipeline.cancel(slot);
+            throw exception;
+        }
+        return slot;
+    }
+}
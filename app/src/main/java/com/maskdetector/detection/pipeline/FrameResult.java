@@ -0,0 +1,111 @@
+package com.maskdetector.detection.pipeline;
+
+import com.maskdetector.detection.face.FaceBox;
+
+/**
+ * Classification of one analyzed frame. A single instance is reused by the pipeline, so listeners
+ * must copy whatever they keep beyond {@link AnalysisPipeline.Listener#onResult}.
+ */
+public final class FrameResult {
+    private final int classCount;
+    private final float[] scores;
+    private final FaceBox[] faces;
+    private final int[] trackIds;
+    private int faceCount;
+    private int classifiedFaceCount;
+    private long timestampNanos;
+    private long inferenceNanos;
+    private long arrivalNanos;
+
+    FrameResult(int classCount, int maxFaces) {
+        this.classCount = classCount;
+        this.scores = new float[classCount * maxFaces];
+        this.faces = new FaceBox[maxFaces];
+        this.trackIds = new int[maxFaces];
+        for (int i = 0; i < maxFaces; i++) {
+            faces[i] = new FaceBox();
+        }
+    }
+
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    public FaceBox getFace(int index) {
+        return faces[index];
+    }
+
+    /**
+     * Stable id of the face across frames, or 0 when no tracker is used.
+     */
+    public int getTrackId(int index) {
+        return trackIds[index];
+    }
+
+    /**
+     * Faces that actually went through the classifier for this frame; the others reuse the cached
+     * score of their track.
+     */
+    public int getClassifiedFaceCount() {
+        return classifiedFaceCount;
+    }
+
+    public float getScore(int faceIndex, int classIndex) {
+        return scores[faceIndex * classCount + classIndex];
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public long getInferenceNanos() {
+        return inferenceNanos;
+    }
+
+    /**
+     * {@link System#nanoTime()} when the camera handed over the frame.
+     */
+    public long getArrivalNanos() {
+        return arrivalNanos;
+    }
+
+    float[] getScores() {
+        return scores;
+    }
+
+    FaceBox[] getFaces() {
+        return faces;
+    }
+
+    int[] getTrackIds() {
+        return trackIds;
+    }
+
+    void setFaces(FaceBox[] source, int count) {
+        for (int i = 0; i < count; i++) {
+            faces[i].set(source[i]);
+            trackIds[i] = 0;
+        }
+        faceCount = count;
+    }
+
+    void setFaceCount(int faceCount) {
+        this.faceCount = faceCount;
+    }
+
+    void setClassifiedFaceCount(int classifiedFaceCount) {
+        this.classifiedFaceCount = classifiedFaceCount;
+    }
+
+    void setTimestampNanos(long timestampNanos) {
+        this.timestampNanos = timestampNanos;
+    }
+
+    void setInferenceNanos(long inferenceNanos) {
+        this.inferenceNanos = inferenceNanos;
+    }
+
+    void setArrivalNanos(long arrivalNanos) {
+        this.arrivalNanos = arrivalNanos;
+    }
+}
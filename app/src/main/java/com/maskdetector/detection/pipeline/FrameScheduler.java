@@ -0,0 +1,101 @@
+package com.maskdetector.detection.pipeline;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which camera frames are worth analyzing. The target rate follows what the inference
+ * stage can sustain (from a moving average of its latency), capped by {@code maxRate} and scaled
+ * down by the current power budget (battery saver, thermal throttling).
+ */
+public final class FrameScheduler {
+    public interface OnRateChangedListener {
+        void onRateChanged(float framesPerSecond);
+    }
+
+    private static final float LATENCY_SMOOTHING = 0.2f;
+    // Leave some inference capacity idle so the pipeline queue does not build up.
+    private static final float INFERENCE_HEADROOM = 0.8f;
+    private static final float RATE_CHANGE_THRESHOLD = 0.25f;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final float minRate;
+    private final float maxRate;
+
+    private volatile float powerScale = 1f;
+    private volatile float targetRate;
+    // Last rate given to the listener, so slow drifts are reported once they add up.
+    private float reportedRate;
+    private volatile long intervalNanos;
+    private float averageLatencyNanos = -1;
+    private long lastAcceptedNanos = Long.MIN_VALUE;
+    private OnRateChangedListener onRateChangedListener;
+
+    public FrameScheduler(float minRate, float maxRate) {
+        if (minRate <= 0 || maxRate < minRate) {
+            throw new IllegalArgumentException("Invalid rate range [" + minRate + ", " + maxRate + "].");
+        }
+
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        updateTargetRate();
+    }
+
+    /**
+     * The listener is only called on changes, so callers read {@link #getTargetRate()} first.
+     */
+    public synchronized void setOnRateChangedListener(OnRateChangedListener onRateChangedListener) {
+        this.onRateChangedListener = onRateChangedListener;
+        reportedRate = targetRate;
+    }
+
+    /**
+     * Called on the camera thread for every delivered frame.
+     */
+    public boolean shouldAnalyze(long timestampNanos) {
+        if (lastAcceptedNanos != Long.MIN_VALUE && timestampNanos - lastAcceptedNanos < intervalNanos) {
+            return false;
+        }
+
+        lastAcceptedNanos = timestampNanos;
+        return true;
+    }
+
+    public synchronized void recordInferenceLatency(long latencyNanos) {
+        averageLatencyNanos = averageLatencyNanos < 0 ?
+            latencyNanos :
+            averageLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - averageLatencyNanos);
+        updateTargetRate();
+    }
+
+    /**
+     * @param powerScale fraction of the maximum rate allowed by the current battery/thermal state.
+     */
+    public synchronized void setPowerScale(float powerScale) {
+        this.powerScale = Math.max(0f, Math.min(1f, powerScale));
+        updateTargetRate();
+    }
+
+    public float getPowerScale() {
+        return powerScale;
+    }
+
+    public float getTargetRate() {
+        return targetRate;
+    }
+
+    private void updateTargetRate() {
+        float rate = maxRate;
+        if (averageLatencyNanos > 0) {
+            rate = Math.min(rate, INFERENCE_HEADROOM * NANOS_PER_SECOND / averageLatencyNanos);
+        }
+        rate = Math.max(minRate, Math.min(maxRate, rate * powerScale));
+
+        targetRate = rate;
+        intervalNanos = (long) (NANOS_PER_SECOND / rate);
+
+        if (onRateChangedListener != null && Math.abs(rate - reportedRate) >= RATE_CHANGE_THRESHOLD) {
+            reportedRate = rate;
+            onRateChangedListener.onRateChanged(rate);
+        }
+    }
+}
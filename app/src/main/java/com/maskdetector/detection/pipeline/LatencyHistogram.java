@@ -0,0 +1,126 @@
+package com.maskdetector.detection.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds over fixed log-linear buckets: eight buckets
+ * per power of two, so a percentile is reported at most 12.5% above the true value. Durations
+ * under about 1 µs share the first bucket and those over about 34 s the last.
+ * <p>
+ * {@link #record} never blocks or allocates and may be called from any number of threads.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_MASK = (1 << SUB_BUCKET_BITS) - 1;
+    private static final int MIN_EXPONENT = 10;
+    private static final int MAX_EXPONENT = 35;
+    static final int BUCKET_COUNT = (MAX_EXPONENT - MIN_EXPONENT) << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(nanos));
+        totalNanos.addAndGet(nanos);
+
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            counts.set(bucket, 0);
+        }
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * Copies the current counts. Values recorded concurrently may or may not be included.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            copy[bucket] = counts.get(bucket);
+            count += copy[bucket];
+        }
+        return new Snapshot(copy, count, totalNanos.get(), maxNanos.get());
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < (1L << MIN_EXPONENT)) {
+            return 0;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+        return ((exponent - MIN_EXPONENT) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    /**
+     * The smallest duration above every value counted in {@code bucket}.
+     */
+    static long upperBoundOf(int bucket) {
+        int exponent = MIN_EXPONENT + (bucket >> SUB_BUCKET_BITS);
+        int subBucket = bucket & SUB_BUCKET_MASK;
+        return (1L << exponent) + ((long) (subBucket + 1) << (exponent - SUB_BUCKET_BITS));
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMeanNanos() {
+            return count > 0 ? totalNanos / count : 0;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        long getBucketCount(int bucket) {
+            return counts[bucket];
+        }
+
+        /**
+         * Upper bound of the bucket holding the given percentile, capped at the largest recorded
+         * value, or 0 when nothing was recorded.
+         */
+        public long getPercentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int bucket = 0; bucket < counts.length; bucket++) {
+                seen += counts[bucket];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(bucket), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.maskdetector.detection.pipeline;
+
+import com.maskdetector.detection.env.YuvFrame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Skips frames of a static scene before any conversion, by comparing the mean luma of each
+ * {@code blockSize} square of the frame to a running background. A frame passes when enough
+ * blocks differ from the background, when the frame size changes, or at least every
+ * {@code refreshIntervalNanos} so a still person is eventually reclassified. Skipped frames
+ * publish nothing, so the last result stays on screen.
+ * <p>
+ * The background follows every frame, passed or not, so lighting drifts and people standing
+ * still fade into it after a few frames. Must be called from a single thread.
+ */
+public final class MotionGate {
+    // Samples per block side; the block mean does not need every pixel.
+    private static final int SAMPLES_PER_SIDE = 4;
+    // The background moves 1/2^BACKGROUND_SHIFT of the way to each new frame.
+    private static final int BACKGROUND_SHIFT = 3;
+    // Block means and background keep 4 fractional bits so slow drifts still accumulate.
+    private static final int FRACTION_BITS = 4;
+
+    private final int blockSize;
+    private final int lumaThreshold;
+    private final float changedFraction;
+    private final long refreshIntervalNanos;
+
+    private int[] background = new int[0];
+    private int columns;
+    private int rows;
+    private int frameWidth = -1;
+    private int frameHeight = -1;
+    private long lastPassedNanos;
+    private boolean forcePass = true;
+
+    private volatile long passedFrames;
+    private volatile long skippedFrames;
+
+    /**
+     * @param blockSize       side of the compared blocks in sensor pixels.
+     * @param lumaThreshold   change of a block's mean luma (0-255) that counts as motion.
+     * @param changedFraction share of the blocks that must change for a frame to pass.
+     */
+    public MotionGate(int blockSize, int lumaThreshold, float changedFraction, long refreshIntervalNanos) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be positive.");
+        }
+        if (changedFraction < 0f || changedFraction > 1f) {
+            throw new IllegalArgumentException("Invalid changed fraction " + changedFraction + ".");
+        }
+
+        this.blockSize = blockSize;
+        this.lumaThreshold = lumaThreshold << FRACTION_BITS;
+        this.changedFraction = changedFraction;
+        this.refreshIntervalNanos = refreshIntervalNanos;
+    }
+
+    /**
+     * Reads the Y plane of the frame and tells whether it should be analyzed.
+     */
+    public boolean shouldAnalyze(YuvFrame frame, long timestampNanos) {
+        boolean resized = configure(frame.getCropWidth(), frame.getCropHeight());
+        int changedBlocks = update(frame, resized);
+
+        boolean pass = forcePass || resized ||
+            changedBlocks >= Math.max(1, (int) Math.ceil(changedFraction * background.length)) ||
+            timestampNanos - lastPassedNanos >= refreshIntervalNanos;
+        if (pass) {
+            forcePass = false;
+            lastPassedNanos = timestampNanos;
+            passedFrames++;
+        } else {
+            skippedFrames++;
+        }
+        return pass;
+    }
+
+    /**
+     * Lets the next frame through, e.g. after the camera was switched.
+     */
+    public void reset() {
+        forcePass = true;
+    }
+
+    public long getPassedFrames() {
+        return passedFrames;
+    }
+
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    private boolean configure(int width, int height) {
+        if (width == frameWidth && height == frameHeight) {
+            return false;
+        }
+
+        frameWidth = width;
+        frameHeight = height;
+        columns = Math.max(1, width / blockSize);
+        rows = Math.max(1, height / blockSize);
+        background = new int[columns * rows];
+        return true;
+    }
+
+    /**
+     * Moves the background towards the frame and returns how many blocks were farther from it
+     * than the threshold. A fresh background is simply filled.
+     */
+    private int update(YuvFrame frame, boolean fill) {
+        ByteBuffer buffer = frame.getBuffer(YuvFrame.PLANE_Y);
+        int rowStride = frame.getRowStride(YuvFrame.PLANE_Y);
+        int pixelStride = frame.getPixelStride(YuvFrame.PLANE_Y);
+        int blockWidth = Math.min(blockSize, frameWidth);
+        int blockHeight = Math.min(blockSize, frameHeight);
+        int stepX = Math.max(1, blockWidth / SAMPLES_PER_SIDE);
+        int stepY = Math.max(1, blockHeight / SAMPLES_PER_SIDE);
+        // Rounded down, so the last sample starting half a step in stays inside the block.
+        int samplesX = blockWidth / stepX;
+        int samplesY = blockHeight / stepY;
+        int sampleCount = samplesX * samplesY;
+
+        int changedBlocks = 0;
+        int block = 0;
+        for (int row = 0; row < rows; row++) {
+            int top = frame.getCropTop() + row * blockHeight + stepY / 2;
+            for (int column = 0; column < columns; column++, block++) {
+                int left = frame.getCropLeft() + column * blockWidth + stepX / 2;
+
+                int sum = 0;
+                for (int y = 0; y < samplesY; y++) {
+                    int offset = (top + y * stepY) * rowStride + left * pixelStride;
+                    for (int x = 0; x < samplesX; x++) {
+                        sum += buffer.get(offset + x * stepX * pixelStride) & 0xff;
+                    }
+                }
+                int mean = (sum << FRACTION_BITS) / sampleCount;
+
+                if (fill) {
+                    background[block] = mean;
+                    continue;
+                }
+                int difference = mean - background[block];
+                if (Math.abs(difference) > lumaThreshold) {
+                    changedBlocks++;
+                }
+                // Divides towards zero, so the background settles the same way from above and below.
+                background[block] += difference / (1 << BACKGROUND_SHIFT);
+            }
+        }
+        return changedBlocks;
+    }
+}
@@ -0,0 +1,224 @@
+package com.maskdetector.detection.pipeline;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of every analysis stage plus frame and allocation counters, cheap enough to stay on in
+ * production: recording a stage is one {@link System#nanoTime()} and a few atomic increments.
+ */
+public final class PipelineMetrics {
+    public enum Stage {
+        /** Comparing the luma blocks of the frame to the background, when gated on motion. */
+        MOTION_GATE,
+        /** Face detection on the camera thread, including its luma downscale. */
+        DETECTION,
+        /** Matching detections to tracks and picking the faces to classify. */
+        TRACKING,
+        /** Rotating, mirroring and resizing the face crops into the classifier input. */
+        CROP,
+        /** Waiting in the pipeline queue for the inference thread. */
+        QUEUE,
+        INFERENCE,
+        /** From publishing a result to its delivery on the UI thread. */
+        UI_POST,
+        /** From the camera handing over a frame to its result reaching the UI thread. */
+        END_TO_END
+    }
+
+    public interface AllocationCounter {
+        /**
+         * Bytes allocated on the heap since the process started, or a negative value if unknown.
+         */
+        long getAllocatedBytes();
+    }
+
+    private static final double[] PERCENTILES = {50, 95, 99};
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final AllocationCounter allocationCounter;
+
+    private final AtomicLong processedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong staticFrames = new AtomicLong();
+    private volatile float targetRate = Float.NaN;
+
+    // The latest published result, updated together so a delivery never pairs the publish time
+    // of one result with the arrival time of another.
+    private final Object publishedLock = new Object();
+    private long publishedArrivalNanos;
+    private long publishedNanos;
+
+    // Rates are computed between two reports.
+    private long reportNanos;
+    private long reportProcessedFrames;
+    private long reportAllocatedBytes = -1;
+
+    public PipelineMetrics(AllocationCounter allocationCounter) {
+        this.allocationCounter = allocationCounter;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public void recordProcessedFrame() {
+        processedFrames.incrementAndGet();
+    }
+
+    public void recordDroppedFrame() {
+        droppedFrames.incrementAndGet();
+    }
+
+    /**
+     * Counts a frame skipped because the scene did not change; its last result stays shown.
+     */
+    public void recordStaticFrame() {
+        staticFrames.incrementAndGet();
+    }
+
+    /**
+     * Marks a result of the frame that arrived at {@code arrivalNanos} as handed to the UI thread.
+     * Results are conflated on their way, so only the latest one is measured on delivery.
+     */
+    public void recordPublished(long arrivalNanos) {
+        long now = System.nanoTime();
+        synchronized (publishedLock) {
+            publishedArrivalNanos = arrivalNanos;
+            publishedNanos = now;
+        }
+    }
+
+    /**
+     * Called on the UI thread when the latest published result is delivered.
+     */
+    public void recordDelivered() {
+        long now = System.nanoTime();
+        long published;
+        long arrival;
+        synchronized (publishedLock) {
+            published = publishedNanos;
+            arrival = publishedArrivalNanos;
+            publishedNanos = 0;
+        }
+        if (published == 0) {
+            return;
+        }
+        record(Stage.UI_POST, now - published);
+        record(Stage.END_TO_END, now - arrival);
+    }
+
+    /**
+     * The analysis rate the frame scheduler currently aims for, shown in every report.
+     */
+    public void setTargetRate(float framesPerSecond) {
+        targetRate = framesPerSecond;
+    }
+
+    public float getTargetRate() {
+        return targetRate;
+    }
+
+    public long getProcessedFrames() {
+        return processedFrames.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public long getStaticFrames() {
+        return staticFrames.get();
+    }
+
+    public synchronized void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        processedFrames.set(0);
+        droppedFrames.set(0);
+        staticFrames.set(0);
+        reportNanos = 0;
+        reportProcessedFrames = 0;
+        reportAllocatedBytes = -1;
+    }
+
+    /**
+     * Summarizes every stage; the frame and allocation rates cover the time since the previous
+     * report and are omitted from the first one. Starts the next rate window, so only one reader
+     * should call it periodically.
+     */
+    public synchronized String report() {
+        long now = System.nanoTime();
+        long processed = processedFrames.get();
+        long allocated = allocationCounter != null ? allocationCounter.getAllocatedBytes() : -1;
+
+        StringBuilder builder = new StringBuilder();
+        if (reportNanos != 0) {
+            double seconds = (now - reportNanos) / 1e9;
+            builder.append(String.format(Locale.US, "%.1f fps", (processed - reportProcessedFrames) / seconds));
+            if (allocated >= 0 && reportAllocatedBytes >= 0) {
+                builder.append(String.format(Locale.US, ", %.1f KB/s allocated", (allocated - reportAllocatedBytes) / 1024.0 / seconds));
+            }
+            builder.append(", ");
+        }
+        reportNanos = now;
+        reportProcessedFrames = processed;
+        reportAllocatedBytes = allocated;
+        return builder.append(summary(processed)).toString();
+    }
+
+    /**
+     * Like {@link #report} without the rates, and leaving the rate window alone.
+     */
+    public String summary() {
+        return summary(processedFrames.get());
+    }
+
+    private String summary(long processed) {
+        StringBuilder builder = new StringBuilder();
+        if (!Float.isNaN(targetRate)) {
+            builder.append(String.format(Locale.US, "target %.1f fps, ", targetRate));
+        }
+        builder.append(processed).append(" frames, ").append(droppedFrames.get()).append(" dropped, ")
+            .append(staticFrames.get()).append(" static\n");
+        builder.append(String.format(Locale.US, "%-11s %7s %7s %7s %7s %8s", "stage ms", "p50", "p95", "p99", "max", "count"));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram.Snapshot snapshot = histograms[stage.ordinal()].snapshot();
+            builder.append(String.format(Locale.US, "\n%-11s", stage.name().toLowerCase(Locale.US)));
+            for (double percentile : PERCENTILES) {
+                builder.append(String.format(Locale.US, " %7.2f", snapshot.getPercentileNanos(percentile) / 1e6));
+            }
+            builder.append(String.format(Locale.US, " %7.2f %8d", snapshot.getMaxNanos() / 1e6, snapshot.getCount()));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the {@link #summary} followed by the raw bucket counts of every stage, as
+     * {@code stage,upper_bound_nanos,count} lines for the non-empty buckets.
+     */
+    public void dump(Writer writer) throws IOException {
+        writer.write(summary());
+        writer.write("\n\nstage,upper_bound_nanos,count\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram.Snapshot snapshot = histograms[stage.ordinal()].snapshot();
+            for (int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT; bucket++) {
+                long count = snapshot.getBucketCount(bucket);
+                if (count > 0) {
+                    writer.write(stage.name().toLowerCase(Locale.US) + "," + LatencyHistogram.upperBoundOf(bucket) + "," + count + "\n");
+                }
+            }
+        }
+        writer.flush();
+    }
+}
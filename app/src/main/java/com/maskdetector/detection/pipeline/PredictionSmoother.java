@@ -0,0 +1,102 @@
+package com.maskdetector.detection.pipeline;
+
+/**
+ * Smooths the per-frame probability of a binary label and applies hysteresis on top of it, so the
+ * reported label only flips once the evidence has been stable for a while.
+ *
+ * Not thread-safe: meant to be fed from the inference thread only.
+ */
+public final class PredictionSmoother {
+    public enum Mode {
+        /** Exponential moving average, {@code alpha} is the weight of the newest frame. */
+        EXPONENTIAL,
+        /** Plain average over the last {@code windowSize} frames. */
+        WINDOW
+    }
+
+    private final Mode mode;
+    private final float alpha;
+    private final float[] window;
+    private final float enterThreshold;
+    private final float exitThreshold;
+
+    private int windowCount;
+    private int windowIndex;
+    private float windowSum;
+    private float smoothedProbability = -1f;
+    private boolean positive;
+
+    private PredictionSmoother(Mode mode, float alpha, int windowSize, float enterThreshold, float exitThreshold) {
+        if (exitThreshold > enterThreshold) {
+            throw new IllegalArgumentException("exitThreshold must not be above enterThreshold.");
+        }
+
+        this.mode = mode;
+        this.alpha = alpha;
+        this.window = new float[windowSize];
+        this.enterThreshold = enterThreshold;
+        this.exitThreshold = exitThreshold;
+    }
+
+    public static PredictionSmoother exponential(float alpha, float enterThreshold, float exitThreshold) {
+        if (alpha <= 0f || alpha > 1f) {
+            throw new IllegalArgumentException("alpha must be in (0, 1].");
+        }
+
+        return new PredictionSmoother(Mode.EXPONENTIAL, alpha, 0, enterThreshold, exitThreshold);
+    }
+
+    public static PredictionSmoother window(int windowSize, float enterThreshold, float exitThreshold) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be positive.");
+        }
+
+        return new PredictionSmoother(Mode.WINDOW, 0f, windowSize, enterThreshold, exitThreshold);
+    }
+
+    /**
+     * @param probability probability of the positive label in the newest frame.
+     * @return the stable label after this frame.
+     */
+    public boolean update(float probability) {
+        if (mode == Mode.EXPONENTIAL) {
+            smoothedProbability = smoothedProbability < 0f ?
+                probability :
+                smoothedProbability + alpha * (probability - smoothedProbability);
+        } else {
+            if (windowCount == window.length) {
+                windowSum -= window[windowIndex];
+            } else {
+                windowCount++;
+            }
+            window[windowIndex] = probability;
+            windowSum += probability;
+            windowIndex = (windowIndex + 1) % window.length;
+            smoothedProbability = windowSum / windowCount;
+        }
+
+        if (!positive && smoothedProbability >= enterThreshold) {
+            positive = true;
+        } else if (positive && smoothedProbability <= exitThreshold) {
+            positive = false;
+        }
+
+        return positive;
+    }
+
+    public boolean isPositive() {
+        return positive;
+    }
+
+    public float getSmoothedProbability() {
+        return smoothedProbability < 0f ? 0f : smoothedProbability;
+    }
+
+    public void reset() {
+        windowCount = 0;
+        windowIndex = 0;
+        windowSum = 0f;
+        smoothedProbability = -1f;
+        positive = false;
+    }
+}
@@ -0,0 +1,106 @@
+package com.maskdetector.detection.pipeline;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conflating channel from the inference thread to the UI thread: only the newest result is kept,
+ * at most one delivery is queued at a time, and the {@link Renderer} is only called when the label
+ * or the displayed percentage bucket actually changes.
+ */
+public final class ResultPublisher {
+    public interface Renderer {
+        void render(boolean isMaskOn, int percent);
+
+        void renderNoFace();
+    }
+
+    private static final long NO_RESULT = -1L;
+    private static final long NO_FACE = -2L;
+    private static final int NO_FACE_BUCKET = -1;
+
+    private final Executor uiExecutor;
+    private final Renderer renderer;
+    private final int percentBucketSize;
+
+    private final AtomicLong latestResult = new AtomicLong(NO_RESULT);
+    private final AtomicBoolean deliveryPending = new AtomicBoolean();
+    private final Runnable deliver = this::deliver;
+
+    private volatile PipelineMetrics metrics;
+    private volatile boolean closed;
+    private boolean hasRendered;
+    private boolean renderedMaskOn;
+    private int renderedBucket;
+
+    public ResultPublisher(Executor uiExecutor, int percentBucketSize, Renderer renderer) {
+        this.uiExecutor = uiExecutor;
+        this.percentBucketSize = percentBucketSize;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Reports every delivery to {@code metrics}, so the time since
+     * {@link PipelineMetrics#recordPublished} is measured.
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Safe to call from any thread; never blocks and never allocates.
+     */
+    public void publish(boolean isMaskOn, float score) {
+        post(((isMaskOn ? 1L : 0L) << 32) | (Float.floatToIntBits(score) & 0xffffffffL));
+    }
+
+    public void publishNoFace() {
+        post(NO_FACE);
+    }
+
+    private void post(long result) {
+        latestResult.set(result);
+        if (!closed && deliveryPending.compareAndSet(false, true)) {
+            uiExecutor.execute(deliver);
+        }
+    }
+
+    public void close() {
+        closed = true;
+    }
+
+    private void deliver() {
+        deliveryPending.set(false);
+        long result = latestResult.get();
+        if (closed || result == NO_RESULT) {
+            return;
+        }
+
+        PipelineMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.recordDelivered();
+        }
+
+        if (result == NO_FACE) {
+            if (!hasRendered || renderedBucket != NO_FACE_BUCKET) {
+                hasRendered = true;
+                renderedBucket = NO_FACE_BUCKET;
+                renderer.renderNoFace();
+            }
+            return;
+        }
+
+        boolean isMaskOn = (result >>> 32) != 0;
+        int percent = (int) (Float.intBitsToFloat((int) result) * 100);
+        int bucket = percent / percentBucketSize;
+        if (hasRendered && isMaskOn == renderedMaskOn && bucket == renderedBucket) {
+            return;
+        }
+
+        hasRendered = true;
+        renderedMaskOn = isMaskOn;
+        renderedBucket = bucket;
+        renderer.render(isMaskOn, percent);
+    }
+}
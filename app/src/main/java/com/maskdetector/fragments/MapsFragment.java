@@ -2,9 +2,12 @@ package com.maskdetector.fragments;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
+import android.database.sqlite.SQLiteException;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -13,43 +16,77 @@ import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.maskdetector.R;
+import com.maskdetector.database.models.BoundingBox;
 import com.maskdetector.database.models.Center;
+import com.maskdetector.database.models.City;
+import com.maskdetector.database.repository.CentersStore;
+import com.maskdetector.map.CenterClusterer;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MapsFragment extends Fragment {
+    private static final String TAG = "MapsFragment";
+    private static final float INITIAL_ZOOM = 10;
+    private static final int CLUSTER_CELL_SIZE_PX = 96;
+    private static final float CLUSTER_CLICK_ZOOM_STEP = 2;
+    // Centers of neighbouring cities are shown once the viewport is a few kilometres wide.
+    private static final float NEARBY_MIN_ZOOM = 13;
+    private static final int NEARBY_LIMIT = 200;
 
-    private List<Center> centers;
+    private City city;
+    private CentersStore centersStore;
 
-    public void setCenters(List<Center> centers) {
-        this.centers = centers;
+    private GoogleMap googleMap;
+    private ExecutorService clusterExecutor;
+    private Executor mainExecutor;
+    // Built and used on the cluster executor only; survives view recreation for the same city.
+    private volatile CenterClusterer clusterer;
+    // Markers on the map by cluster key, so camera moves only add and remove the difference.
+    private final Map<Long, Marker> markers = new HashMap<>();
+    // Markers of the centers of other cities by content hash.
+    private final Map<Long, Marker> nearbyMarkers = new HashMap<>();
+    private int clusterRequest;
+
+    public void setCity(City city) {
+        this.city = city;
+    }
+
+    /**
+     * Lets the map also show the centers of other cities around the visible region; without a
+     * store only the centers of the city are shown.
+     */
+    public void setCentersStore(CentersStore centersStore) {
+        this.centersStore = centersStore;
     }
 
     public LatLng getMapCenter() {
-        double sumLat = 0, sumLon = 0;
-        for (Center center : centers) {
-            sumLon += Double.parseDouble(center.getLongitude());
-            sumLat += Double.parseDouble(center.getLatitude());
-        }
-        double centerLat = sumLat / centers.size();
-        double centerLon = sumLon / centers.size();
-        return new LatLng(centerLat, centerLon);
+        return new LatLng(city.getCentroidLatitude(), city.getCentroidLongitude());
     }
 
     private OnMapReadyCallback callback = new OnMapReadyCallback() {
         @Override
-        public void onMapReady(GoogleMap googleMap) {
-            for (Center center : centers) {
-                double lat = Double.parseDouble(center.getLatitude());
-                double lon = Double.parseDouble(center.getLongitude());
-                LatLng centerLatLng = new LatLng(lat, lon);
-                googleMap.addMarker(new MarkerOptions().position(centerLatLng).title(center.getName() + "(" + center.getAddress() + ")"));
+        public void onMapReady(GoogleMap map) {
+            if (city.getCenterCount() == 0 || clusterExecutor == null) {
+                return;
             }
-            googleMap.moveCamera(CameraUpdateFactory.newLatLng(getMapCenter()));
-            googleMap.moveCamera(CameraUpdateFactory.zoomTo(10));
+
+            googleMap = map;
+            googleMap.setOnCameraIdleListener(MapsFragment.this::updateMarkers);
+            googleMap.setOnMarkerClickListener(MapsFragment.this::onMarkerClicked);
+            googleMap.moveCamera(CameraUpdateFactory.newLatLngZoom(getMapCenter(), INITIAL_ZOOM));
         }
     };
 
@@ -64,6 +101,9 @@ public class MapsFragment extends Fragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
+        clusterExecutor = Executors.newSingleThreadExecutor();
+        mainExecutor = ContextCompat.getMainExecutor(requireContext());
+
         SupportMapFragment mapFragment =
                 (SupportMapFragment) getChildFragmentManager().findFragmentById(R.id.map);
         if (mapFragment != null) {
@@ -72,7 +112,152 @@ public class MapsFragment extends Fragment {
     }
 
     @Override
-    public void onStop() {
-        super.onStop();
+    public void onDestroyView() {
+        super.onDestroyView();
+
+        clusterExecutor.shutdownNow();
+        clusterExecutor = null;
+        markers.clear();
+        nearbyMarkers.clear();
+        googleMap = null;
+    }
+
+    /**
+     * Clusters the centers around the visible region off the main thread, looks up the centers of
+     * other cities in it when zoomed in, and applies the difference to the markers on the map.
+     * Results of superseded requests are dropped.
+     */
+    private void updateMarkers() {
+        if (googleMap == null) {
+            return;
+        }
+
+        LatLngBounds visible = googleMap.getProjection().getVisibleRegion().latLngBounds;
+        final BoundingBox viewport = new BoundingBox(
+            visible.southwest.latitude, visible.southwest.longitude,
+            visible.northeast.latitude, visible.northeast.longitude
+        );
+        final float zoom = googleMap.getCameraPosition().zoom;
+        final List<Center> centers = city.getCenters();
+        final CentersStore store = zoom >= NEARBY_MIN_ZOOM ? centersStore : null;
+        final int request = ++clusterRequest;
+
+        clusterExecutor.execute(() -> {
+            if (clusterer == null) {
+                double[] latitudes = new double[centers.size()];
+                double[] longitudes = new double[centers.size()];
+                for (int i = 0; i < centers.size(); i++) {
+                    latitudes[i] = centers.get(i).getLatitude();
+                    longitudes[i] = centers.get(i).getLongitude();
+                }
+                clusterer = new CenterClusterer(latitudes, longitudes, centers.size(), CLUSTER_CELL_SIZE_PX);
+            }
+
+            final List<CenterClusterer.Cluster> clusters = clusterer.cluster(zoom, viewport);
+            final List<Center> nearby = findNearbyCenters(store, viewport);
+            mainExecutor.execute(() -> {
+                if (googleMap != null && request == clusterRequest) {
+                    applyClusters(centers, clusters);
+                    applyNearbyCenters(nearby);
+                }
+            });
+        });
+    }
+
+    private void applyClusters(List<Center> centers, List<CenterClusterer.Cluster> clusters) {
+        Map<Long, CenterClusterer.Cluster> visible = new HashMap<>();
+        for (CenterClusterer.Cluster cluster : clusters) {
+            visible.put(cluster.getKey(), cluster);
+        }
+
+        Iterator<Map.Entry<Long, Marker>> iterator = markers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Marker> entry = iterator.next();
+            if (!visible.containsKey(entry.getKey())) {
+                entry.getValue().remove();
+                iterator.remove();
+            }
+        }
+
+        for (CenterClusterer.Cluster cluster : clusters) {
+            if (markers.containsKey(cluster.getKey())) {
+                continue;
+            }
+
+            LatLng position = new LatLng(cluster.getLatitude(), cluster.getLongitude());
+            MarkerOptions options = new MarkerOptions().position(position);
+            if (cluster.getCenter() >= 0) {
+                options.title(getTitle(centers.get(cluster.getCenter())));
+            } else {
+                options.title(getString(R.string.map_cluster_title, cluster.getSize()))
+                    .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_AZURE));
+            }
+
+            Marker marker = googleMap.addMarker(options);
+            if (marker != null) {
+                marker.setTag(cluster);
+                markers.put(cluster.getKey(), marker);
+            }
+        }
+    }
+
+    private List<Center> findNearbyCenters(CentersStore store, BoundingBox viewport) {
+        if (store == null) {
+            return Collections.emptyList();
+        }
+
+        try {
+            return store.findCentersInBounds(viewport, city.getId(), NEARBY_LIMIT);
+        } catch (SQLiteException exception) {
+            Log.e(TAG, "Could not look up the centers around the map.", exception);
+            return Collections.emptyList();
+        }
+    }
+
+    private void applyNearbyCenters(List<Center> centers) {
+        Map<Long, Center> visible = new HashMap<>();
+        for (Center center : centers) {
+            visible.put(center.getContentHash(), center);
+        }
+
+        Iterator<Map.Entry<Long, Marker>> iterator = nearbyMarkers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Marker> entry = iterator.next();
+            if (!visible.containsKey(entry.getKey())) {
+                entry.getValue().remove();
+                iterator.remove();
+            }
+        }
+
+        for (Map.Entry<Long, Center> entry : visible.entrySet()) {
+            if (nearbyMarkers.containsKey(entry.getKey())) {
+                continue;
+            }
+
+            Center center = entry.getValue();
+            Marker marker = googleMap.addMarker(new MarkerOptions()
+                .position(new LatLng(center.getLatitude(), center.getLongitude()))
+                .title(getTitle(center))
+                .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_ORANGE)));
+            if (marker != null) {
+                nearbyMarkers.put(entry.getKey(), marker);
+            }
+        }
+    }
+
+    private static String getTitle(Center center) {
+        return center.getName() + "(" + center.getAddress() + ")";
+    }
+
+    private boolean onMarkerClicked(Marker marker) {
+        CenterClusterer.Cluster cluster = (CenterClusterer.Cluster) marker.getTag();
+        if (cluster == null || cluster.getCenter() >= 0) {
+            // Single centers keep the default behaviour of showing their title.
+            return false;
+        }
+
+        googleMap.animateCamera(CameraUpdateFactory.newLatLngZoom(
+            marker.getPosition(), googleMap.getCameraPosition().zoom + CLUSTER_CLICK_ZOOM_STEP));
+        return true;
     }
-}
\ No newline at end of file
+}
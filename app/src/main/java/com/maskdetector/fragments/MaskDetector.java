@@ -2,14 +2,10 @@ package com.maskdetector.fragments;
 
 import android.Manifest;
 import android.annotation.SuppressLint;
-import android.content.Context;
 import android.content.pm.PackageManager;
 import android.content.res.Configuration;
-import android.graphics.Bitmap;
-import android.graphics.Matrix;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
+import android.os.Debug;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -33,24 +29,43 @@ import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
-import androidx.lifecycle.LifecycleEventObserver;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.snackbar.Snackbar;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.maskdetector.R;
-import com.maskdetector.detection.env.YuvToRgbConverter;
-import com.maskdetector.ml.FaceMaskDetection;
-
-import org.tensorflow.lite.support.image.TensorImage;
-import org.tensorflow.lite.support.label.Category;
-import org.tensorflow.lite.support.model.Model;
-
+import com.maskdetector.detection.env.FramePreprocessor;
+import com.maskdetector.detection.env.FrameRecorder;
+import com.maskdetector.detection.env.ImageFrames;
+import com.maskdetector.detection.env.YuvFrame;
+import com.maskdetector.detection.face.AndroidFaceDetector;
+import com.maskdetector.detection.face.FaceCropper;
+import com.maskdetector.detection.face.FaceDetector;
+import com.maskdetector.detection.face.FaceTracker;
+import com.maskdetector.detection.inference.DelegateSelector;
+import com.maskdetector.detection.inference.MaskClassifier;
+import com.maskdetector.detection.inference.MaskModel;
+import com.maskdetector.detection.inference.SharedPreferencesDelegateStore;
+import com.maskdetector.detection.pipeline.AnalysisPipeline;
+import com.maskdetector.detection.pipeline.DevicePowerMonitor;
+import com.maskdetector.detection.pipeline.FrameAnalyzer;
+import com.maskdetector.detection.pipeline.FrameResult;
+import com.maskdetector.detection.pipeline.FrameScheduler;
+import com.maskdetector.detection.pipeline.MotionGate;
+import com.maskdetector.detection.pipeline.PipelineMetrics;
+import com.maskdetector.detection.pipeline.PredictionSmoother;
+import com.maskdetector.detection.pipeline.ResultPublisher;
+
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.List;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class MaskDetector extends Fragment {
 
@@ -59,7 +74,34 @@ public class MaskDetector extends Fragment {
     private static final String[] REQUIRED_PERMISSIONS = new String[] {Manifest.permission.CAMERA};
     private static final Double RATIO_4_3_VALUE = 4.0 / 3.0;
     private static final Double RATIO_16_9_VALUE = 16.0 / 9.0;
-    private static final int TF_NUM_THREADS = 5;
+    private static final int MAX_FACES = 4;
+    private static final int FACE_DETECTION_LONG_SIDE = 320;
+    private static final float FACE_CROP_MARGIN = 1.2f;
+    // Faces missing for a few frames keep their track, so room is left for them next to MAX_FACES.
+    private static final int MAX_TRACKS = MAX_FACES * 2;
+    private static final float TRACK_MATCH_IOU = 0.3f;
+    private static final float TRACK_RECLASSIFY_IOU = 0.6f;
+    private static final int TRACK_RECLASSIFY_INTERVAL = 5;
+    private static final int TRACK_MAX_MISSED_FRAMES = 3;
+    private static final int PIPELINE_QUEUE_DEPTH = 1;
+    private static final AnalysisPipeline.DropPolicy PIPELINE_DROP_POLICY = AnalysisPipeline.DropPolicy.DROP_OLDEST;
+    // One slot being converted, one being classified and the queued ones.
+    private static final int CLASSIFIER_POOL_SIZE = PIPELINE_QUEUE_DEPTH + 2;
+    // The mask label rarely changes within 100ms, analyzing faster only burns battery.
+    private static final float ANALYSIS_MAX_RATE = 10f;
+    private static final float ANALYSIS_MIN_RATE = 1f;
+    private static final int RESULT_PERCENT_BUCKET = 5;
+    private static final float SMOOTHING_ALPHA = 0.3f;
+    private static final float MASK_ON_THRESHOLD = 0.65f;
+    private static final float MASK_OFF_THRESHOLD = 0.35f;
+    // 32px blocks ignore sensor noise; a 2% change of the scene is enough to wake up the analysis.
+    private static final int MOTION_BLOCK_SIZE = 32;
+    private static final int MOTION_LUMA_THRESHOLD = 12;
+    private static final float MOTION_CHANGED_FRACTION = 0.02f;
+    private static final long MOTION_REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long METRICS_OVERLAY_INTERVAL_MILLIS = 1000;
+    private static final long CAMERA_SHUTDOWN_TIMEOUT_MILLIS = 1000;
+    private static final String METRICS_ALLOCATED_BYTES_STAT = "art.gc.bytes-allocated";
 
     private Preview preview = null;
     private ImageAnalysis imageAnalyzer = null;
@@ -70,13 +112,29 @@ public class MaskDetector extends Fragment {
     private Camera camera = null;
 
     private ExecutorService cameraExecutor;
+    // Writes metric dumps, so file I/O never delays a camera frame.
+    private ExecutorService ioExecutor;
 
     private FrameLayout maskDetectorFrameLayout;
     private PreviewView previewView;
     private FloatingActionButton cameraSwitcher;
     private TextView detectionTxtOutput;
-
-    private FaceMaskDetection faceMaskDetection;
+    private TextView metricsOverlay;
+
+    private MaskModel maskModel;
+    private MaskClassifier maskClassifier;
+    private FaceDetector faceDetector;
+    private FaceTracker faceTracker;
+    private AnalysisPipeline analysisPipeline;
+    private FrameScheduler frameScheduler;
+    private DevicePowerMonitor devicePowerMonitor;
+    private ResultPublisher resultPublisher;
+    private PredictionSmoother predictionSmoother;
+    private PipelineMetrics pipelineMetrics;
+    // Only used on the camera thread.
+    private FrameRecorder frameRecorder;
+    private final Runnable updateMetricsOverlay = this::updateMetricsOverlay;
+    private Boolean renderedMaskOn;
 
     private ActivityResultContracts.RequestMultiplePermissions requestMultiplePermissions;
     private ActivityResultLauncher<String[]> multiplePermissionActivityResultLauncher;
@@ -111,54 +169,268 @@ public class MaskDetector extends Fragment {
         previewView = root.findViewById(R.id.preview_view);
         cameraSwitcher = root.findViewById(R.id.camera_switcher);
         detectionTxtOutput = root.findViewById(R.id.detection_txt_output);
+        metricsOverlay = root.findViewById(R.id.metrics_overlay);
+
+        // Hidden debug overlay for the entrance tablets: long press the preview to toggle it, tap it to dump.
+        previewView.setOnLongClickListener(v -> {
+            toggleMetricsOverlay();
+            return true;
+        });
+        metricsOverlay.setOnClickListener(v -> dumpMetrics());
+        cameraSwitcher.setOnLongClickListener(v -> {
+            toggleFrameRecording();
+            return true;
+        });
     }
 
     private void setupML() {
-        Model.Options options = new Model.Options.Builder()
-            .setDevice(Model.Device.GPU)
-            .setNumThreads(TF_NUM_THREADS)
-            .build();
+        renderedMaskOn = null;
+        pipelineMetrics = new PipelineMetrics(MaskDetector::getAllocatedBytes);
+        resultPublisher = new ResultPublisher(
+            ContextCompat.getMainExecutor(requireContext()),
+            RESULT_PERCENT_BUCKET,
+            new ResultPublisher.Renderer() {
+                @Override
+                public void render(boolean isMaskOn, int percent) {
+                    renderMLOutput(isMaskOn, percent);
+                }
+
+                @Override
+                public void renderNoFace() {
+                    renderNoFaceOutput();
+                }
+            }
+        );
+        resultPublisher.setMetrics(pipelineMetrics);
+
+        predictionSmoother = PredictionSmoother.exponential(SMOOTHING_ALPHA, MASK_ON_THRESHOLD, MASK_OFF_THRESHOLD);
+
+        frameScheduler = new FrameScheduler(ANALYSIS_MIN_RATE, ANALYSIS_MAX_RATE);
+        frameScheduler.setOnRateChangedListener(pipelineMetrics::setTargetRate);
+        pipelineMetrics.setTargetRate(frameScheduler.getTargetRate());
+        devicePowerMonitor = new DevicePowerMonitor(requireContext(), frameScheduler);
+        devicePowerMonitor.start();
+
         try {
-            faceMaskDetection = FaceMaskDetection.newInstance(requireContext(), options);
+            maskModel = MaskModel.load(requireContext());
+            int inputSizeInBytes = newFramePreprocessor().getOutputSizeInBytes();
+            DelegateSelector delegateSelector = new DelegateSelector(
+                maskModel::newEngine,
+                DelegateSelector.defaultCandidates(Runtime.getRuntime().availableProcessors()),
+                new SharedPreferencesDelegateStore(requireContext(), MaskModel.MODEL_PATH),
+                inputSizeInBytes,
+                maskModel.getLabels().length * 4
+            );
+            maskClassifier = new MaskClassifier(
+                delegateSelector.newEngine(),
+                maskModel.getLabels(),
+                inputSizeInBytes,
+                CLASSIFIER_POOL_SIZE,
+                MAX_FACES
+            );
+            faceDetector = new AndroidFaceDetector(FACE_DETECTION_LONG_SIDE, MAX_FACES);
+            faceTracker = new FaceTracker(
+                MAX_TRACKS,
+                maskClassifier.getClassCount(),
+                TRACK_MATCH_IOU,
+                TRACK_RECLASSIFY_IOU,
+                TRACK_RECLASSIFY_INTERVAL,
+                TRACK_MAX_MISSED_FRAMES
+            );
+            analysisPipeline = new AnalysisPipeline(
+                maskClassifier,
+                faceTracker,
+                PIPELINE_QUEUE_DEPTH,
+                PIPELINE_DROP_POLICY,
+                new AnalysisPipeline.Listener() {
+                    @Override
+                    public void onResult(FrameResult result) {
+                        if (result.getClassifiedFaceCount() > 0) {
+                            frameScheduler.recordInferenceLatency(result.getInferenceNanos());
+                        }
+                        setupMLOutput(result);
+                    }
+
+                    @Override
+                    public void onError(RuntimeException exception) {
+                        Log.e(TAG, "An error occurred within the inference stage.", exception);
+                    }
+                }
+            );
+            analysisPipeline.setMetrics(pipelineMetrics);
+            analysisPipeline.start();
         } catch (IOException exception) {
             Log.e(TAG, "Could not load the tensorflow-lite model.", exception);
         }
     }
 
+    private FramePreprocessor newFramePreprocessor() {
+        return new FramePreprocessor(
+            maskModel.getInputWidth(),
+            maskModel.getInputHeight(),
+            maskModel.getInputType(),
+            maskModel.getInputMean(),
+            maskModel.getInputStd()
+        );
+    }
+
+    private void setupMLOutput(FrameResult result) {
+        pipelineMetrics.recordPublished(result.getArrivalNanos());
+        if (result.getFaceCount() == 0) {
+            predictionSmoother.reset();
+            resultPublisher.publishNoFace();
+            return;
+        }
+
+        // A single unmasked face is enough to report the entrance as unmasked.
+        int withMaskIndex = maskClassifier.indexOf(MaskClassifier.LABEL_WITH_MASK);
+        float lowestMaskScore = 1f;
+        for (int face = 0; face < result.getFaceCount(); face++) {
+            lowestMaskScore = Math.min(lowestMaskScore, result.getScore(face, withMaskIndex));
+        }
+
+        boolean isMaskOn = predictionSmoother.update(lowestMaskScore);
+        float maskProbability = predictionSmoother.getSmoothedProbability();
+
+        resultPublisher.publish(isMaskOn, isMaskOn ? maskProbability : 1f - maskProbability);
+    }
+
     @SuppressLint("UseCompatLoadingForDrawables")
-    private void setupMLOutput(Bitmap bitmap) {
-        TensorImage tfImage = TensorImage.fromBitmap(bitmap);
-        FaceMaskDetection.Outputs result = faceMaskDetection.process(tfImage);
-        List<Category> output = result.getProbabilityAsCategoryList();
-
-        new Handler(Looper.getMainLooper()).post(() -> getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
-            int supIndex = output.get(0).getScore() > output.get(1).getScore() ? 0 : 1;
-
-            boolean isMaskOn = output.get(supIndex)
-                    .getLabel()
-                    .equals("with_mask");
-            float score = output.get(supIndex).getScore();
-
-            String message = String.valueOf(isMaskOn ?
-                    requireContext().getText(R.string.label_with_mask) :
-                    requireContext().getText(R.string.label_without_mask));
-            message += " - " + Double.valueOf(score*100).intValue() + "%";
-            detectionTxtOutput.setText(message);
-
-            int color = isMaskOn ?
-                    R.color.blue_400 :
-                    R.color.red_600;
-            detectionTxtOutput.setTextColor(requireContext().getColor(color));
-
-            int border = isMaskOn ?
-                    R.drawable.with_mask_border :
-                    R.drawable.without_mask_border;
-            maskDetectorFrameLayout.setBackground(requireContext().getDrawable(border));
-        }));
+    private void renderMLOutput(boolean isMaskOn, int percent) {
+        String message = String.valueOf(isMaskOn ?
+                requireContext().getText(R.string.label_with_mask) :
+                requireContext().getText(R.string.label_without_mask));
+        message += " - " + percent + "%";
+        detectionTxtOutput.setText(message);
+
+        if (renderedMaskOn != null && renderedMaskOn == isMaskOn) {
+            return;
+        }
+        renderedMaskOn = isMaskOn;
+
+        int color = isMaskOn ?
+                R.color.blue_400 :
+                R.color.red_600;
+        detectionTxtOutput.setTextColor(requireContext().getColor(color));
+
+        int border = isMaskOn ?
+                R.drawable.with_mask_border :
+                R.drawable.without_mask_border;
+        maskDetectorFrameLayout.setBackground(requireContext().getDrawable(border));
+    }
+
+    private void renderNoFaceOutput() {
+        detectionTxtOutput.setText(R.string.label_no_face);
+        detectionTxtOutput.setTextColor(requireContext().getColor(R.color.white));
+        maskDetectorFrameLayout.setBackground(null);
+        renderedMaskOn = null;
+    }
+
+    /**
+     * Starts or stops writing every camera frame to a file for
+     * {@link com.maskdetector.detection.env.FrameReplayer}. Only meant for collecting test
+     * material: the recording runs on the camera thread.
+     */
+    private void toggleFrameRecording() {
+        final View view = requireView();
+        final File file = new File(requireContext().getExternalFilesDir(null), "frames-" + System.currentTimeMillis() + ".mdfr");
+        cameraExecutor.execute(() -> {
+            String message;
+            if (frameRecorder != null) {
+                message = view.getContext().getString(R.string.frames_recorded, frameRecorder.getFrameCount());
+                stopFrameRecording();
+            } else {
+                try {
+                    frameRecorder = new FrameRecorder(new FileOutputStream(file));
+                    message = view.getContext().getString(R.string.frames_recording, file.getAbsolutePath());
+                } catch (IOException exception) {
+                    Log.e(TAG, "Could not record the frames to " + file, exception);
+                    message = view.getContext().getString(R.string.frames_recording_failed);
+                }
+            }
+
+            final String text = message;
+            view.post(() -> Snackbar.make(view, text, Snackbar.LENGTH_LONG).show());
+        });
+    }
+
+    /**
+     * Called on the camera thread.
+     */
+    private void recordFrame(YuvFrame frame, int rotationDegrees, long timestampNanos) {
+        if (frameRecorder == null) {
+            return;
+        }
+
+        try {
+            frameRecorder.write(frame, rotationDegrees, timestampNanos);
+        } catch (IOException exception) {
+            Log.e(TAG, "Could not record the frame, stopping the recording.", exception);
+            stopFrameRecording();
+        }
+    }
+
+    /**
+     * Called on the camera thread.
+     */
+    private void stopFrameRecording() {
+        if (frameRecorder == null) {
+            return;
+        }
+
+        try {
+            frameRecorder.close();
+        } catch (IOException exception) {
+            Log.e(TAG, "Could not finish the frame recording.", exception);
+        }
+        frameRecorder = null;
+    }
+
+    private void toggleMetricsOverlay() {
+        if (metricsOverlay.getVisibility() == View.VISIBLE) {
+            metricsOverlay.setVisibility(View.GONE);
+            metricsOverlay.removeCallbacks(updateMetricsOverlay);
+        } else {
+            metricsOverlay.setVisibility(View.VISIBLE);
+            updateMetricsOverlay();
+        }
+    }
+
+    private void updateMetricsOverlay() {
+        metricsOverlay.setText(pipelineMetrics.report());
+        metricsOverlay.postDelayed(updateMetricsOverlay, METRICS_OVERLAY_INTERVAL_MILLIS);
+    }
+
+    private void dumpMetrics() {
+        final File file = new File(requireContext().getExternalFilesDir(null), "detector-metrics-" + System.currentTimeMillis() + ".txt");
+        final View view = requireView();
+        ioExecutor.execute(() -> {
+            String message;
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                pipelineMetrics.dump(writer);
+                message = view.getContext().getString(R.string.metrics_dumped, file.getAbsolutePath());
+            } catch (IOException exception) {
+                Log.e(TAG, "Could not write the metrics to " + file, exception);
+                message = view.getContext().getString(R.string.metrics_dump_failed);
+            }
+
+            final String text = message;
+            view.post(() -> Snackbar.make(view, text, Snackbar.LENGTH_LONG).show());
+        });
+    }
+
+    private static long getAllocatedBytes() {
+        String allocated = Debug.getRuntimeStat(METRICS_ALLOCATED_BYTES_STAT);
+        try {
+            return allocated != null ? Long.parseLong(allocated) : -1;
+        } catch (NumberFormatException exception) {
+            return -1;
+        }
     }
 
     private void setupCameraThread() {
         cameraExecutor = Executors.newSingleThreadExecutor();
+        ioExecutor = Executors.newSingleThreadExecutor();
     }
 
     private void setupCameraControllers() {
@@ -194,10 +466,14 @@ public class MaskDetector extends Fragment {
             .build();
 
         imageAnalyzer = new ImageAnalysis.Builder()
+            .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
             .setTargetAspectRatio(screenAspectRatio)
             .setTargetRotation(rotation)
             .build();
-        imageAnalyzer.setAnalyzer(cameraExecutor, new BitmapOutputAnalysis(getContext()));
+        if (analysisPipeline != null) {
+            faceTracker.clear();
+            imageAnalyzer.setAnalyzer(cameraExecutor, new BitmapOutputAnalysis(lensFacing == CameraSelector.LENS_FACING_FRONT));
+        }
 
         if (cameraProvider != null) {
             cameraProvider.unbindAll();
@@ -294,6 +570,40 @@ public class MaskDetector extends Fragment {
         return cameraProvider.hasCamera(CameraSelector.DEFAULT_BACK_CAMERA);
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+
+        metricsOverlay.removeCallbacks(updateMetricsOverlay);
+        // No frame may reach the analyzer once the camera thread is gone.
+        if (imageAnalyzer != null) {
+            imageAnalyzer.clearAnalyzer();
+        }
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll();
+        }
+        cameraExecutor.execute(this::stopFrameRecording);
+        if (faceDetector != null) {
+            cameraExecutor.execute(faceDetector::close);
+        }
+        cameraExecutor.shutdown();
+        try {
+            if (!cameraExecutor.awaitTermination(CAMERA_SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "The camera thread did not finish its last frame in time.");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        // A running dump still finishes; its snackbar is dropped with the view.
+        ioExecutor.shutdown();
+        devicePowerMonitor.stop();
+        resultPublisher.close();
+        if (analysisPipeline != null) {
+            // Closes the classifier on the inference thread once its running inference returns.
+            analysisPipeline.close();
+        }
+    }
+
     @Override
     public void onConfigurationChanged(@NonNull Configuration newConfig) {
         super.onConfigurationChanged(newConfig);
@@ -312,49 +622,48 @@ public class MaskDetector extends Fragment {
     }
 
     private class BitmapOutputAnalysis implements ImageAnalysis.Analyzer {
-        private final Context context;
-        private final YuvToRgbConverter yuvToRgbConverter;
-
-        private Bitmap bitmapBuffer;
-        private Matrix rotationMatrix;
-
-        BitmapOutputAnalysis(Context context) {
-            this.context = context;
-            yuvToRgbConverter = new YuvToRgbConverter(context);
+        private final YuvFrame yuvFrame = new YuvFrame();
+        private final FrameAnalyzer frameAnalyzer;
+
+        BitmapOutputAnalysis(boolean mirror) {
+            frameAnalyzer = new FrameAnalyzer(
+                frameScheduler,
+                faceDetector,
+                faceTracker,
+                new FaceCropper(newFramePreprocessor(), FACE_CROP_MARGIN),
+                analysisPipeline,
+                pipelineMetrics,
+                MAX_FACES,
+                mirror
+            );
+            frameAnalyzer.setMotionGate(new MotionGate(
+                MOTION_BLOCK_SIZE,
+                MOTION_LUMA_THRESHOLD,
+                MOTION_CHANGED_FRACTION,
+                MOTION_REFRESH_INTERVAL_NANOS
+            ));
         }
 
         @Override
         public void analyze(@NonNull ImageProxy imageProxy) {
+            boolean handedOver = false;
             try {
-                Bitmap bitmap = toBitmap(imageProxy);
-                setupMLOutput(bitmap);
+                int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
+                long timestampNanos = imageProxy.getImageInfo().getTimestamp();
+                ImageFrames.wrap(imageProxy, yuvFrame);
+
+                recordFrame(yuvFrame, rotationDegrees, timestampNanos);
+                handedOver = true;
+                // The pixels now live in the slot, so the camera can reuse the image while we
+                // queue and classify.
+                frameAnalyzer.onFrame(yuvFrame, rotationDegrees, timestampNanos, imageProxy::close);
             } catch (Exception exception) {
                 Log.e(TAG, "An error occurred within the bitmap output analysis.", exception);
             } finally {
-                imageProxy.close();
-            }
-        }
-
-        @SuppressLint({"UnsafeExperimentalUsageError", "UnsafeOptInUsageError"})
-        private Bitmap toBitmap(ImageProxy imageProxy) throws Exception {
-
-            if (bitmapBuffer == null) {
-                rotationMatrix = new Matrix();
-                rotationMatrix.postRotate(Integer.valueOf(imageProxy.getImageInfo().getRotationDegrees()).floatValue());
-                bitmapBuffer = Bitmap.createBitmap(imageProxy.getWidth(), imageProxy.getHeight(), Bitmap.Config.ARGB_8888);
+                if (!handedOver) {
+                    imageProxy.close();
+                }
             }
-
-            yuvToRgbConverter.yuvToRgb(imageProxy.getImage(), bitmapBuffer);
-
-            return Bitmap.createBitmap(
-                bitmapBuffer,
-                0,
-                0,
-                bitmapBuffer.getWidth(),
-                bitmapBuffer.getHeight(),
-                rotationMatrix,
-                false
-            );
         }
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package com.maskdetector.fragments;
 
 import android.os.Bundle;
 
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -17,14 +18,39 @@ import android.widget.SearchView;
 
 import com.google.android.material.appbar.MaterialToolbar;
 import com.maskdetector.R;
+import com.maskdetector.adapter.CityFilter;
+import com.maskdetector.adapter.CityPager;
 import com.maskdetector.adapter.MainAdapter;
 import com.maskdetector.database.models.City;
+import com.maskdetector.database.repository.CentersStore;
 import com.maskdetector.database.repository.CityRepository;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class VaccineCenters extends Fragment {
+    private static final String TAG = "VaccineCenters";
+    private static final long SEARCH_DEBOUNCE_MILLIS = 150;
+    private static final int PAGE_SIZE = 40;
+    private static final int PREFETCH_DISTANCE = 10;
+    private static final int SEARCH_LIMIT = 200;
+
     private MainAdapter adapter;
+    private CityFilter cityFilter;
+    private CityPager cityPager;
+    private volatile CentersStore centersStore;
+    private String searchQuery = "";
     private SwipeRefreshLayout refreshLayout;
     private CityRepository cityRepository;
+    private ExecutorService loaderExecutor;
+    private Future<?> citiesLoading;
+    // Bumped on every load and on teardown, so callbacks of a cancelled load are dropped.
+    private int loadGeneration;
+    private boolean citiesLoaded;
 
     public VaccineCenters() {
         //
@@ -36,6 +62,11 @@ public class VaccineCenters extends Fragment {
         ViewGroup root = (ViewGroup) inflater.inflate(R.layout.fragment_vaccine_centers, container, false);
 
         cityRepository  = new CityRepository(root.getContext());
+        loaderExecutor = Executors.newSingleThreadExecutor();
+        citiesLoaded = false;
+        cityPager = null;
+        centersStore = null;
+        searchQuery = "";
 
         MaterialToolbar toolbar = root.findViewById(R.id.top_toolbar);
 
@@ -48,7 +79,8 @@ public class VaccineCenters extends Fragment {
             }
             @Override
             public boolean onQueryTextChange(String newText) {
-                adapter.filter(newText);
+                searchQuery = newText;
+                cityFilter.filter(newText);
                 return true;
             }
         });
@@ -58,7 +90,8 @@ public class VaccineCenters extends Fragment {
             public void onItemClicked(City city) {
                 Log.d("clicked", "You clicked " + city.getCity_name());
                 MapsFragment mapFragment = new MapsFragment();
-                mapFragment.setCenters(city.getCenters());
+                mapFragment.setCity(city);
+                mapFragment.setCentersStore(centersStore);
                 FragmentManager fragmentManager = getFragmentManager();
 
                 fragmentManager.beginTransaction()
@@ -67,9 +100,30 @@ public class VaccineCenters extends Fragment {
                         .commit();
             }
         });
+        final CityFilter.Searcher indexSearcher = CityFilter.newIndexSearcher();
+        cityFilter = new CityFilter(ContextCompat.getMainExecutor(root.getContext()), SEARCH_DEBOUNCE_MILLIS, adapter::submitList,
+            new CityFilter.Searcher() {
+                @Override
+                public List<City> search(List<City> cities, String query) {
+                    // Paged lists only hold what was scrolled through, so the store is searched instead.
+                    CentersStore store = centersStore;
+                    return store != null ? store.searchCities(query, SEARCH_LIMIT) : indexSearcher.search(cities, query);
+                }
+            });
+
         RecyclerView recyclerView = root.findViewById(R.id.recyclerView);
-        recyclerView.setLayoutManager(new LinearLayoutManager(root.getContext()));
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(root.getContext());
+        recyclerView.setLayoutManager(layoutManager);
         recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (cityPager != null && searchQuery.trim().isEmpty()
+                        && layoutManager.findLastVisibleItemPosition() >= cityPager.getCities().size() - PREFETCH_DISTANCE) {
+                    cityPager.loadMore();
+                }
+            }
+        });
 
         refreshLayout = root.findViewById(R.id.refresh);
         refreshLayout.setOnRefreshListener(this::loadCities);
@@ -79,8 +133,107 @@ public class VaccineCenters extends Fragment {
         return root;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+
+        loadGeneration++;
+        if (citiesLoading != null) {
+            citiesLoading.cancel(true);
+            citiesLoading = null;
+        }
+        loaderExecutor.shutdown();
+        cityFilter.close();
+    }
+
     private void loadCities() {
-        adapter.setData(cityRepository.getAllCities());
-        refreshLayout.setRefreshing(false);
+        final int request = ++loadGeneration;
+        if (citiesLoading != null) {
+            citiesLoading.cancel(true);
+        }
+        if (cityPager != null) {
+            cityPager.reset();
+            return;
+        }
+
+        final Executor mainExecutor = ContextCompat.getMainExecutor(requireContext());
+        citiesLoading = loaderExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final CentersStore store = cityRepository.openStore();
+                mainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (request != loadGeneration || getView() == null) {
+                            return;
+                        }
+                        if (store == null) {
+                            loadAllCities(request);
+                            return;
+                        }
+
+                        centersStore = store;
+                        cityPager = new CityPager(loaderExecutor, mainExecutor, PAGE_SIZE, store::loadCities, new CityPager.Listener() {
+                            @Override
+                            public void onCitiesLoaded(List<City> cities, boolean complete) {
+                                if (getView() == null) {
+                                    return;
+                                }
+
+                                cityFilter.setData(cities);
+                                refreshLayout.setRefreshing(false);
+                            }
+
+                            @Override
+                            public void onError(RuntimeException exception) {
+                                Log.e(TAG, "Could not load a page of vaccination centers.", exception);
+                                if (getView() != null) {
+                                    refreshLayout.setRefreshing(false);
+                                }
+                            }
+                        });
+                        cityPager.reset();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Loads the whole dataset into memory, for builds without the compiled snapshot.
+     */
+    private void loadAllCities(final int request) {
+        citiesLoading = cityRepository.loadCities(
+            loaderExecutor,
+            ContextCompat.getMainExecutor(requireContext()),
+            new CityRepository.Listener() {
+                @Override
+                public void onCitiesLoaded(List<City> cities, boolean complete) {
+                    if (request != loadGeneration || getView() == null) {
+                        return;
+                    }
+
+                    // Partial lists only fill an empty screen; a refresh swaps the list once complete.
+                    if (complete || !citiesLoaded) {
+                        cityFilter.setData(cities);
+                    }
+                    if (complete) {
+                        citiesLoaded = true;
+                        refreshLayout.setRefreshing(false);
+                    }
+                }
+
+                @Override
+                public void onError(IOException exception) {
+                    if (request != loadGeneration) {
+                        return;
+                    }
+                    Log.e(TAG, "Could not load the vaccination centers.", exception);
+                    if (getView() != null) {
+                        refreshLayout.setRefreshing(false);
+                    }
+                }
+            }
+        );
     }
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.maskdetector.map;
+
+import com.maskdetector.database.CenterIndex;
+import com.maskdetector.database.models.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups centers into clusters on a screen-space grid for one zoom level, keeping only the
+ * clusters of grid cells that touch the viewport. The grid is laid out in Web Mercator world
+ * coordinates like the map tiles, so a cluster covers the same number of pixels at every zoom.
+ * <p>
+ * Clusters are keyed by their zoom level and cell, and single centers by their index, so a
+ * caller can update its markers incrementally between two calls.
+ */
+public final class CenterClusterer {
+    private static final int TILE_SIZE = 256;
+    private static final int MAX_ZOOM = 21;
+
+    public static final class Cluster {
+        private final long key;
+        private final double latitude;
+        private final double longitude;
+        private final int size;
+        private final int center;
+
+        Cluster(long key, double latitude, double longitude, int size, int center) {
+            this.key = key;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.size = size;
+            this.center = center;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * The index of the only center of the cluster, or {@code -1} if it holds several.
+         */
+        public int getCenter() {
+            return center;
+        }
+    }
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] worldX;
+    private final double[] worldY;
+    private final CenterIndex index;
+    private final int cellSizePixels;
+    private final CenterIndex.Results results = new CenterIndex.Results();
+
+    public CenterClusterer(double[] latitudes, double[] longitudes, int count, int cellSizePixels) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.cellSizePixels = cellSizePixels;
+        this.index = new CenterIndex(latitudes, longitudes, count, 0);
+
+        worldX = new double[count];
+        worldY = new double[count];
+        for (int i = 0; i < count; i++) {
+            worldX[i] = toWorldX(longitudes[i]);
+            worldY[i] = toWorldY(latitudes[i]);
+        }
+    }
+
+    /**
+     * Clusters the centers in the cells touching {@code viewport} at {@code zoom}, which is
+     * rounded down so clusters stay put while zooming within one level. Not thread-safe.
+     */
+    public List<Cluster> cluster(double zoom, BoundingBox viewport) {
+        int level = Math.max(0, Math.min(MAX_ZOOM, (int) Math.floor(zoom)));
+        double cellSize = (double) cellSizePixels / (TILE_SIZE * (1L << level));
+
+        // Widen the viewport to whole cells so edge clusters do not change while panning.
+        long minCellX = (long) Math.floor(toWorldX(viewport.getMinLongitude()) / cellSize);
+        long maxCellX = (long) Math.floor(toWorldX(viewport.getMaxLongitude()) / cellSize);
+        long minCellY = (long) Math.floor(toWorldY(viewport.getMaxLatitude()) / cellSize);
+        long maxCellY = (long) Math.floor(toWorldY(viewport.getMinLatitude()) / cellSize);
+        index.findInBounds(new BoundingBox(
+            toLatitude((maxCellY + 1) * cellSize),
+            toLongitude(minCellX * cellSize),
+            toLatitude(minCellY * cellSize),
+            toLongitude((maxCellX + 1) * cellSize)
+        ), results);
+
+        // Per cell: first center, center count, latitude sum and longitude sum.
+        Map<Long, double[]> cells = new HashMap<>();
+        List<Long> order = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            int center = results.getCenter(i);
+            long key = clusterKey(level, (long) Math.floor(worldX[center] / cellSize), (long) Math.floor(worldY[center] / cellSize));
+            double[] cell = cells.get(key);
+            if (cell == null) {
+                cell = new double[] {center, 0, 0, 0};
+                cells.put(key, cell);
+                order.add(key);
+            }
+            cell[1]++;
+            cell[2] += latitudes[center];
+            cell[3] += longitudes[center];
+        }
+
+        List<Cluster> clusters = new ArrayList<>(order.size());
+        for (Long key : order) {
+            double[] cell = cells.get(key);
+            int size = (int) cell[1];
+            if (size == 1) {
+                int center = (int) cell[0];
+                clusters.add(new Cluster(centerKey(center), latitudes[center], longitudes[center], 1, center));
+            } else {
+                clusters.add(new Cluster(key, cell[2] / size, cell[3] / size, size, -1));
+            }
+        }
+        return clusters;
+    }
+
+    static long centerKey(int center) {
+        return -1L - center;
+    }
+
+    /**
+     * Packs zoom (5 bits) and cell coordinates (29 bits each, enough for zoom 21 with small cells)
+     * into a non-negative key.
+     */
+    private static long clusterKey(int level, long cellX, long cellY) {
+        return ((long) level << 58) | ((cellX & 0x1fffffffL) << 29) | (cellY & 0x1fffffffL);
+    }
+
+    private static double toWorldX(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    private static double toWorldY(double latitude) {
+        double sin = Math.sin(Math.toRadians(Math.max(-85.05, Math.min(85.05, latitude))));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    private static double toLongitude(double worldX) {
+        return worldX * 360 - 180;
+    }
+
+    private static double toLatitude(double worldY) {
+        return Math.toDegrees(Math.atan(Math.sinh((0.5 - worldY) * 2 * Math.PI)));
+    }
+}
@@ -0,0 +1,100 @@
+package com.maskdetector.adapter;
+
+import com.maskdetector.database.models.Center;
+import com.maskdetector.database.models.City;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CityFilterTest {
+    private static final long DEBOUNCE_MILLIS = 50;
+
+    private final List<City> cities = Arrays.asList(city("AGADIR"), city("AL HAOUZ"), city("AZILAL"));
+    private final LinkedBlockingQueue<List<City>> delivered = new LinkedBlockingQueue<>();
+    private final Executor direct = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+    private final CityFilter filter = new CityFilter(direct, DEBOUNCE_MILLIS, new CityFilter.Listener() {
+        @Override
+        public void onFiltered(List<City> filtered) {
+            delivered.add(filtered);
+        }
+    });
+
+    @After
+    public void tearDown() {
+        filter.close();
+    }
+
+    @Test
+    public void setData_withoutQueryDeliversAllCitiesImmediately() {
+        filter.setData(cities);
+
+        assertSame(cities, delivered.poll());
+    }
+
+    @Test
+    public void filter_deliversOnlyTheLastOfQuicklyTypedQueries() throws InterruptedException {
+        filter.setData(cities);
+        delivered.clear();
+
+        filter.filter("a");
+        filter.filter("al");
+        filter.filter("al h");
+
+        List<City> filtered = delivered.poll(1, TimeUnit.SECONDS);
+        assertEquals(1, filtered.size());
+        assertEquals("AL HAOUZ", filtered.get(0).getCity_name());
+        assertNull(delivered.poll(DEBOUNCE_MILLIS * 3, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void filter_narrowsPreviousResults() throws InterruptedException {
+        filter.setData(cities);
+        delivered.clear();
+
+        filter.filter("a");
+        assertEquals(3, delivered.poll(1, TimeUnit.SECONDS).size());
+        filter.filter("az");
+        assertEquals(Arrays.asList(cities.get(2)), delivered.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void setData_refiltersWithCurrentQuery() throws InterruptedException {
+        filter.filter("ag");
+        filter.setData(cities);
+
+        assertEquals(Arrays.asList(cities.get(0)), delivered.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void filter_clearingQueryCancelsPendingSearch() throws InterruptedException {
+        filter.setData(cities);
+        delivered.clear();
+
+        filter.filter("agadir");
+        filter.filter("");
+
+        assertSame(cities, delivered.poll());
+        assertNull(delivered.poll(DEBOUNCE_MILLIS * 3, TimeUnit.MILLISECONDS));
+    }
+
+    private static City city(String name) {
+        City city = new City();
+        city.setCity_name(name);
+        city.setCenters(new ArrayList<Center>());
+        return city;
+    }
+}
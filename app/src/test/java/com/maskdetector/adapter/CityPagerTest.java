@@ -0,0 +1,119 @@
+package com.maskdetector.adapter;
+
+import com.maskdetector.database.models.City;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class CityPagerTest {
+    private static final int PAGE_SIZE = 3;
+
+    private final List<City> cities = new ArrayList<>();
+    private final List<List<City>> delivered = new ArrayList<>();
+    private final List<RuntimeException> errors = new ArrayList<>();
+    private final List<Runnable> queued = new ArrayList<>();
+    private int failingPages;
+    private final Executor direct = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+    private final Executor deferred = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            queued.add(command);
+        }
+    };
+    private final CityPager.PageSource source = new CityPager.PageSource() {
+        @Override
+        public List<City> loadPage(int offset, int limit) {
+            if (failingPages > 0) {
+                failingPages--;
+                throw new IllegalStateException("Database is locked");
+            }
+            return new ArrayList<>(cities.subList(Math.min(offset, cities.size()), Math.min(offset + limit, cities.size())));
+        }
+    };
+    private final CityPager.Listener listener = new CityPager.Listener() {
+        @Override
+        public void onCitiesLoaded(List<City> loaded, boolean complete) {
+            delivered.add(loaded);
+        }
+
+        @Override
+        public void onError(RuntimeException exception) {
+            errors.add(exception);
+        }
+    };
+
+    public CityPagerTest() {
+        for (int i = 0; i < 7; i++) {
+            City city = new City();
+            city.setId(i);
+            city.setCity_name("CITY " + i);
+            cities.add(city);
+        }
+    }
+
+    @Test
+    public void loadMore_appendsPagesUntilTheLastShortPage() {
+        CityPager pager = new CityPager(direct, direct, PAGE_SIZE, source, listener);
+
+        pager.reset();
+        assertEquals(3, pager.getCities().size());
+        assertFalse(pager.isComplete());
+
+        pager.loadMore();
+        pager.loadMore();
+        assertEquals(cities, pager.getCities());
+        assertTrue(pager.isComplete());
+
+        pager.loadMore();
+        assertEquals(3, delivered.size());
+    }
+
+    @Test
+    public void loadMore_whileLoadingDoesNotRequestTheSamePageTwice() {
+        CityPager pager = new CityPager(deferred, direct, PAGE_SIZE, source, listener);
+
+        pager.reset();
+        pager.loadMore();
+
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    public void loadMore_reportsAFailedPageAndCanRetryIt() {
+        CityPager pager = new CityPager(direct, direct, PAGE_SIZE, source, listener);
+        failingPages = 1;
+
+        pager.reset();
+        assertEquals(1, errors.size());
+        assertTrue(delivered.isEmpty());
+
+        pager.loadMore();
+        assertEquals(3, pager.getCities().size());
+        assertEquals(1, delivered.size());
+    }
+
+    @Test
+    public void reset_dropsPagesRequestedBeforeIt() {
+        CityPager pager = new CityPager(deferred, direct, PAGE_SIZE, source, listener);
+
+        pager.reset();
+        cities.remove(0);
+        pager.reset();
+        for (Runnable runnable : new ArrayList<>(queued)) {
+            runnable.run();
+        }
+
+        assertEquals(1, delivered.size());
+        assertEquals("CITY 1", delivered.get(0).get(0).getCity_name());
+    }
+}
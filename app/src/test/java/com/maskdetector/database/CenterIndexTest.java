@@ -0,0 +1,110 @@
+package com.maskdetector.database;
+
+import com.maskdetector.database.models.BoundingBox;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CenterIndexTest {
+    private static final int COUNT = 2000;
+
+    private final double[] latitudes = new double[COUNT];
+    private final double[] longitudes = new double[COUNT];
+    private final CenterIndex index;
+    private final CenterIndex.Results results = new CenterIndex.Results();
+
+    public CenterIndexTest() {
+        Random random = new Random(42);
+        for (int i = 0; i < COUNT; i++) {
+            latitudes[i] = 27.6 + random.nextDouble() * 8.3;
+            longitudes[i] = -13.2 + random.nextDouble() * 12.2;
+        }
+        index = new CenterIndex(latitudes, longitudes, COUNT, 0);
+    }
+
+    @Test
+    public void haversineMeters_matchesKnownDistance() {
+        assertEquals(111_195, CenterIndex.haversineMeters(30, -8, 31, -8), 1);
+        assertEquals(111_195 * Math.cos(Math.toRadians(60)), CenterIndex.haversineMeters(60, 0, 60, 1), 10);
+    }
+
+    @Test
+    public void findNearest_matchesLinearScan() {
+        double[][] queries = {{31.63, -8.0}, {35.78, -5.81}, {27.6, -13.2}, {48.85, 2.35}, {20.0, -30.0}};
+        for (double[] query : queries) {
+            index.findNearest(query[0], query[1], 5, results);
+
+            int[] expected = linearNearest(query[0], query[1], 5);
+            assertEquals(5, results.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(Arrays.toString(query), expected[i], results.getCenter(i));
+            }
+        }
+    }
+
+    @Test
+    public void findNearest_returnsAllWhenFewerThanK() {
+        CenterIndex small = new CenterIndex(new double[] {30, 31}, new double[] {-9, -8}, 2, 0);
+
+        small.findNearest(30, -9, 5, results);
+
+        assertEquals(2, results.size());
+        assertEquals(0, results.getCenter(0));
+        assertEquals(0, results.getDistanceMeters(0), 0);
+    }
+
+    @Test
+    public void findWithinRadius_matchesLinearScan() {
+        index.findWithinRadius(33.57, -7.59, 50_000, results);
+
+        int expected = 0;
+        for (int i = 0; i < COUNT; i++) {
+            if (CenterIndex.haversineMeters(33.57, -7.59, latitudes[i], longitudes[i]) <= 50_000) {
+                expected++;
+            }
+        }
+        assertTrue(expected > 0);
+        assertEquals(expected, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertTrue(results.getDistanceMeters(i) <= 50_000);
+        }
+    }
+
+    @Test
+    public void findInBounds_matchesLinearScan() {
+        BoundingBox bounds = new BoundingBox(30, -9.5, 31.5, -7);
+
+        index.findInBounds(bounds, results);
+
+        int expected = 0;
+        for (int i = 0; i < COUNT; i++) {
+            if (bounds.contains(latitudes[i], longitudes[i])) {
+                expected++;
+            }
+        }
+        assertEquals(expected, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertTrue(bounds.contains(latitudes[results.getCenter(i)], longitudes[results.getCenter(i)]));
+        }
+    }
+
+    private int[] linearNearest(double latitude, double longitude, int k) {
+        Integer[] order = new Integer[COUNT];
+        final double[] distances = new double[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            order[i] = i;
+            distances[i] = CenterIndex.haversineMeters(latitude, longitude, latitudes[i], longitudes[i]);
+        }
+        Arrays.sort(order, (first, second) -> Double.compare(distances[first], distances[second]));
+
+        int[] nearest = new int[k];
+        for (int i = 0; i < k; i++) {
+            nearest[i] = order[i];
+        }
+        return nearest;
+    }
+}
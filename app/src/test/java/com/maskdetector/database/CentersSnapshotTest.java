@@ -0,0 +1,143 @@
+package com.maskdetector.database;
+
+import com.maskdetector.database.models.City;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.*;
+
+public class CentersSnapshotTest {
+    private static final String JSON = "{\"data\": ["
+        + "{\"city_name\": \"AGADIR\", \"id\": 4, \"centers\": ["
+        + "{\"latitude\": \"30.7456\", \"longitude\": \"-9.3279\", \"name\": \"Dispensaire Rural\", \"address\": \"تيقي\"},"
+        + "{\"latitude\": \"bad\", \"longitude\": \"-9.69389\", \"name\": \"Rejected\"},"
+        + "{\"latitude\": \"30.7075\", \"longitude\": \"-9.69389\", \"name\": \"Dispensaire Rural\"}]},"
+        + "{\"id\": 9, \"city_name\": \"AZILAL\", \"centers\": ["
+        + "{\"latitude\": \"31.96\", \"longitude\": \"-6.57\", \"name\": \"CS Azilal\", \"address\": \"تيقي\"}]},"
+        + "{\"id\": 10, \"city_name\": \"EMPTY\", \"centers\": []}"
+        + "]}";
+
+    @Test
+    public void snapshot_roundTripsDataset() throws IOException {
+        CentersSnapshot snapshot = CentersSnapshot.wrap(compile(JSON));
+
+        assertEquals(3, snapshot.getCityCount());
+        assertEquals(3, snapshot.getCenterCount());
+        assertEquals(9, snapshot.getCityId(1));
+        assertEquals("AZILAL", snapshot.getCityName(1));
+        assertEquals(2, snapshot.getFirstCenter(1));
+        assertEquals(1, snapshot.getCityCenterCount(1));
+        assertEquals(31.96, snapshot.getLatitude(2), 0);
+        assertEquals(-9.3279, snapshot.getLongitude(0), 0);
+        assertEquals(30.7075, snapshot.getLatitude(1), 0);
+        assertEquals("تيقي", snapshot.getCenterAddress(0));
+        assertNull(snapshot.getCenterAddress(1));
+    }
+
+    @Test
+    public void snapshot_deduplicatesStrings() throws IOException {
+        CentersSnapshot snapshot = CentersSnapshot.wrap(compile(JSON));
+
+        assertSame(snapshot.getCenterName(0), snapshot.getCenterName(1));
+        assertSame(snapshot.getCenterAddress(0), snapshot.getCenterAddress(2));
+    }
+
+    @Test
+    public void getCities_exposesLazyViews() throws IOException {
+        List<City> cities = CentersSnapshot.wrap(compile(JSON)).getCities();
+
+        assertEquals(3, cities.size());
+        assertSame(cities.get(0), cities.get(0));
+        assertEquals("AGADIR", cities.get(0).getCity_name());
+        assertEquals(Integer.valueOf(4), cities.get(0).getId());
+        assertEquals(2, cities.get(0).getCenters().size());
+        assertEquals("CS Azilal", cities.get(1).getCenters().get(0).getName());
+        assertEquals(30.7456, cities.get(0).getCenters().get(0).getLatitude(), 0);
+        assertTrue(cities.get(2).getCenters().isEmpty());
+    }
+
+    @Test
+    public void getCity_sharesOneInstanceAcrossConcurrentReaders() throws Exception {
+        final CentersSnapshot snapshot = CentersSnapshot.wrap(compile(JSON));
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReferenceArray<City> seen = new AtomicReferenceArray<>(8);
+        Thread[] readers = new Thread[seen.length()];
+        for (int i = 0; i < readers.length; i++) {
+            final int reader = i;
+            readers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException exception) {
+                        return;
+                    }
+                    seen.set(reader, snapshot.getCity(0));
+                }
+            });
+            readers[i].start();
+        }
+
+        start.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        for (int i = 0; i < seen.length(); i++) {
+            assertSame(snapshot.getCity(0), seen.get(i));
+        }
+        assertEquals("AGADIR", seen.get(0).getCity_name());
+    }
+
+    @Test
+    public void getCities_carriesPrecomputedAggregates() throws IOException {
+        List<City> cities = CentersSnapshot.wrap(compile(JSON)).getCities();
+
+        assertEquals((30.7456 + 30.7075) / 2, cities.get(0).getCentroidLatitude(), 1e-9);
+        assertEquals(-9.69389, cities.get(0).getBounds().getMinLongitude(), 0);
+        assertEquals(-9.3279, cities.get(0).getBounds().getMaxLongitude(), 0);
+        assertNull(cities.get(2).getBounds());
+        assertTrue(Double.isNaN(cities.get(2).getCentroidLatitude()));
+    }
+
+    @Test
+    public void getChecksum_isReadFromTheHeaderAndFollowsTheData() throws IOException {
+        ByteBuffer data = compile(JSON);
+        long changed = CentersSnapshot.wrap(compile(JSON.replace("AZILAL", "AZILAX"))).getChecksum();
+
+        assertNotEquals(0, CentersSnapshot.wrap(data).getChecksum());
+        assertEquals(CentersSnapshot.wrap(compile(JSON)).getChecksum(), CentersSnapshot.wrap(data).getChecksum());
+        assertNotEquals(CentersSnapshot.wrap(data).getChecksum(), changed);
+    }
+
+    @Test
+    public void write_reportsRejectedCenters() throws IOException {
+        List<String> rejections = CentersSnapshotWriter.write(
+            new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)),
+            new ByteArrayOutputStream()
+        );
+
+        assertEquals(1, rejections.size());
+        assertTrue(rejections.get(0).contains("Rejected"));
+    }
+
+    @Test(expected = IOException.class)
+    public void wrap_rejectsOtherData() throws IOException {
+        CentersSnapshot.wrap(ByteBuffer.wrap(JSON.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static ByteBuffer compile(String json) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CentersSnapshotWriter.write(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), output);
+        return ByteBuffer.wrap(output.toByteArray());
+    }
+}
@@ -0,0 +1,114 @@
+package com.maskdetector.database;
+
+import com.maskdetector.database.models.City;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CitiesJsonReaderTest {
+    private static final String JSON = "{\"version\": 2, \"data\": ["
+        + "{\"city_name\": \"AGADIR\", \"id\": 0, \"extra\": [1, 2], \"centers\": ["
+        + "{\"latitude\": \"30.7456\", \"longitude\": \"-9.3279\", \"name\": \"Isk Ntiki\", \"address\": \"تيقي\"},"
+        + "{\"latitude\": \"30.7075\", \"longitude\": \"-9.69389\", \"name\": \"Ighallene\", \"address\": null}]},"
+        + "{\"id\": 1, \"city_name\": \"AL HAOUZ\", \"centers\": []},"
+        + "{\"id\": 2, \"city_name\": \"AZILAL\"}"
+        + "]}";
+
+    @Test
+    public void readAll_parsesCitiesAndCenters() throws IOException {
+        List<City> cities = CitiesJsonReader.readAll(stream(JSON));
+
+        assertEquals(3, cities.size());
+        City agadir = cities.get(0);
+        assertEquals(Integer.valueOf(0), agadir.getId());
+        assertEquals("AGADIR", agadir.getCity_name());
+        assertEquals(2, agadir.getCenters().size());
+        assertEquals(-9.3279, agadir.getCenters().get(0).getLongitude(), 0);
+        assertEquals("تيقي", agadir.getCenters().get(0).getAddress());
+        assertNull(agadir.getCenters().get(1).getAddress());
+        assertEquals("AL HAOUZ", cities.get(1).getCity_name());
+        assertTrue(cities.get(2).getCenters().isEmpty());
+    }
+
+    @Test
+    public void readAll_computesCityAggregates() throws IOException {
+        City agadir = CitiesJsonReader.readAll(stream(JSON)).get(0);
+
+        assertEquals(2, agadir.getCenterCount());
+        assertEquals((30.7456 + 30.7075) / 2, agadir.getCentroidLatitude(), 1e-9);
+        assertEquals(-9.69389, agadir.getBounds().getMinLongitude(), 0);
+        assertEquals(30.7456, agadir.getBounds().getMaxLatitude(), 0);
+    }
+
+    @Test
+    public void readAll_rejectsInvalidCoordinates() throws IOException {
+        String json = "{\"data\": [{\"id\": 3, \"city_name\": \"TATA\", \"centers\": ["
+            + "{\"latitude\": \"29.74\", \"longitude\": \"-7.97\", \"name\": \"valid\"},"
+            + "{\"latitude\": \"29,74\", \"longitude\": \"-7.97\", \"name\": \"comma\"},"
+            + "{\"latitude\": \"97.5\", \"longitude\": \"-7.97\", \"name\": \"range\"},"
+            + "{\"latitude\": 29.7, \"longitude\": -7.9, \"name\": \"number\"},"
+            + "{\"longitude\": \"-7.97\", \"name\": \"missing\"}]}]}";
+        List<String> rejections = new ArrayList<>();
+
+        City city = CitiesJsonReader.readAll(stream(json), rejections).get(0);
+
+        assertEquals(2, city.getCenterCount());
+        assertEquals("number", city.getCenters().get(1).getName());
+        assertEquals(3, rejections.size());
+        assertTrue(rejections.get(0).contains("comma"));
+    }
+
+    @Test
+    public void read_deliversCitiesInOrder() throws IOException {
+        final List<Integer> ids = new ArrayList<>();
+        CitiesJsonReader.read(stream(JSON), new CitiesJsonReader.Handler() {
+            @Override
+            public void onCity(City city) {
+                ids.add(city.getId());
+            }
+
+            @Override
+            public void onCenterRejected(String reason) {
+            }
+        });
+
+        assertEquals(3, ids.size());
+        assertEquals(Integer.valueOf(2), ids.get(2));
+    }
+
+    @Test
+    public void read_stopsWhenInterrupted() throws IOException {
+        final List<City> cities = new ArrayList<>();
+        try {
+            CitiesJsonReader.read(stream(JSON), new CitiesJsonReader.Handler() {
+                @Override
+                public void onCity(City city) {
+                    cities.add(city);
+                    Thread.currentThread().interrupt();
+                }
+
+                @Override
+                public void onCenterRejected(String reason) {
+                }
+            });
+            fail();
+        } catch (InterruptedIOException expected) {
+            assertEquals(1, cities.size());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
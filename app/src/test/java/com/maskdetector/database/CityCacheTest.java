@@ -0,0 +1,133 @@
+package com.maskdetector.database;
+
+import com.maskdetector.database.models.City;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CityCacheTest {
+    private final CityCache cache = new CityCache();
+
+    @Test
+    public void get_missesUntilSnapshotIsStored() {
+        assertNull(cache.get(1));
+
+        cache.put(1, cities(3), 1000);
+
+        assertEquals(3, cache.get(1).getCities().size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void get_missesWhenVersionChanges() {
+        cache.put(1, cities(3), 1000);
+
+        assertNull(cache.get(2));
+        cache.put(2, cities(5), 1000);
+
+        assertEquals(5, cache.get(2).getCities().size());
+        assertNull(cache.get(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshot_isImmutable() {
+        List<City> cities = cities(2);
+        CityCache.Snapshot snapshot = cache.put(1, cities, 0);
+        cities.clear();
+
+        assertEquals(2, snapshot.getCities().size());
+        snapshot.getCities().clear();
+    }
+
+    @Test
+    public void getOrLoad_loadsOnceForConcurrentReaders() throws InterruptedException {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] readers = new Thread[8];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException exception) {
+                        return;
+                    }
+                    try {
+                        cache.getOrLoad(7, new CityCache.Loader() {
+                            @Override
+                            public List<City> load() {
+                                loads.incrementAndGet();
+                                return cities(4);
+                            }
+                        });
+                    } catch (IOException exception) {
+                        throw new AssertionError(exception);
+                    }
+                }
+            });
+            readers[i].start();
+        }
+
+        start.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getLoadCount());
+        assertEquals(4, cache.get(7).getCities().size());
+    }
+
+    @Test
+    public void getOrLoad_doesNotCacheAFailedLoad() throws IOException {
+        try {
+            cache.getOrLoad(1, new CityCache.Loader() {
+                @Override
+                public List<City> load() throws IOException {
+                    throw new IOException("Unreadable dataset");
+                }
+            });
+            fail();
+        } catch (IOException expected) {
+        }
+
+        assertNull(cache.get(1));
+        assertEquals(0, cache.getLoadCount());
+        CityCache.Snapshot snapshot = cache.getOrLoad(1, new CityCache.Loader() {
+            @Override
+            public List<City> load() {
+                return cities(2);
+            }
+        });
+        assertEquals(2, snapshot.getCities().size());
+    }
+
+    @Test
+    public void invalidate_dropsSnapshot() {
+        cache.put(1, Collections.<City>emptyList(), 0);
+
+        cache.invalidate();
+
+        assertNull(cache.get(1));
+    }
+
+    private static List<City> cities(int count) {
+        List<City> cities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            City city = new City();
+            city.setId(i);
+            cities.add(city);
+        }
+        return cities;
+    }
+}
@@ -0,0 +1,67 @@
+package com.maskdetector.database;
+
+import com.maskdetector.database.models.City;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ContentHashTest {
+    private static final String JSON = "{\"data\": ["
+        + "{\"id\": 0, \"city_name\": \"AGADIR\", \"centers\": ["
+        + "{\"latitude\": \"30.7456\", \"longitude\": \"-9.3279\", \"name\": \"Isk Ntiki\", \"address\": \"تيقي\"}]},"
+        + "{\"id\": 1, \"city_name\": \"AZILAL\", \"centers\": []}"
+        + "]}";
+
+    @Test
+    public void getContentHash_isEqualForSeparatelyParsedData() throws IOException {
+        List<City> first = parse(JSON);
+        List<City> second = parse(JSON);
+
+        assertNotSame(first.get(0), second.get(0));
+        assertEquals(first.get(0).getContentHash(), second.get(0).getContentHash());
+        assertEquals(first.get(1).getContentHash(), second.get(1).getContentHash());
+        assertNotEquals(first.get(0).getContentHash(), first.get(1).getContentHash());
+    }
+
+    @Test
+    public void getContentHash_changesWithAnyCenterField() throws IOException {
+        City original = parse(JSON).get(0);
+
+        assertNotEquals(original.getContentHash(), parse(JSON.replace("Isk Ntiki", "Isk Ntiky")).get(0).getContentHash());
+        assertNotEquals(original.getContentHash(), parse(JSON.replace("-9.3279", "-9.3278")).get(0).getContentHash());
+        assertNotEquals(original.getContentHash(), parse(JSON.replace("تيقي", "تقي")).get(0).getContentHash());
+    }
+
+    @Test
+    public void getContentHash_isRecomputedAfterChange() throws IOException {
+        City city = parse(JSON).get(0);
+        long hash = city.getContentHash();
+
+        city.setCity_name("AGADIR IDA OUTANANE");
+
+        assertNotEquals(hash, city.getContentHash());
+    }
+
+    @Test
+    public void getContentHash_isStoredInTheSnapshot() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CentersSnapshotWriter.write(new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)), output);
+        List<City> mapped = CentersSnapshot.wrap(ByteBuffer.wrap(output.toByteArray())).getCities();
+        List<City> parsed = parse(JSON);
+
+        assertEquals(parsed.get(0).getContentHash(), mapped.get(0).getContentHash());
+        assertEquals(parsed.get(1).getContentHash(), mapped.get(1).getContentHash());
+    }
+
+    private static List<City> parse(String json) throws IOException {
+        return CitiesJsonReader.readAll(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
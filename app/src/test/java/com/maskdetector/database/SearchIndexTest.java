@@ -0,0 +1,117 @@
+package com.maskdetector.database;
+
+import com.maskdetector.database.models.Center;
+import com.maskdetector.database.models.City;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SearchIndexTest {
+    private final SearchIndex index = SearchIndex.build(Arrays.asList(
+        city("AGADIR IDA OUTANANE", center("Centre de Santé Rural Isk Ntiki", "تيقي"), center("Dispensaire Rural Taghazout", "تَغَازُوت")),
+        city("AL HAOUZ", center("CS Urbain Tahanaout", "تحناوت")),
+        city("TAROUDANNT", center("Hôpital Mokhtar Soussi", "أولاد عيسى"))
+    ));
+    private final SearchIndex.Results results = new SearchIndex.Results();
+
+    @Test
+    public void normalize_foldsCaseDiacriticsAndArabicVariants() {
+        assertEquals("hopital sante", TextNormalizer.normalize("  HÔPITAL, Santé! "));
+        assertEquals("اولاد عيسي", TextNormalizer.normalize("أولاد عيسى"));
+        assertEquals("تغازوت", TextNormalizer.normalize("تَغَازُوت"));
+        assertEquals("مدرسه 12", TextNormalizer.normalize("مدرسة ١٢"));
+    }
+
+    @Test
+    public void search_matchesWordPrefixesOfCityNames() {
+        index.search("agad", results);
+
+        assertEquals(1, results.size());
+        assertEquals(0, results.getCity(0));
+        assertEquals(-1, results.getCenter(0));
+    }
+
+    @Test
+    public void search_matchesCenterNamesAndAddressesIgnoringAccents() {
+        index.search("hopital", results);
+        assertEquals(1, results.size());
+        assertEquals(2, results.getCity(0));
+        assertEquals(0, results.getCenter(0));
+
+        index.search("اولاد", results);
+        assertEquals(1, results.size());
+        assertEquals(2, results.getCity(0));
+
+        index.search("تغازوت", results);
+        assertEquals(1, results.size());
+        assertEquals(1, results.getCenter(0));
+    }
+
+    @Test
+    public void search_requiresEveryWord() {
+        index.search("rural tagh", results);
+
+        assertEquals(1, results.size());
+        assertEquals(0, results.getCity(0));
+        assertEquals(1, results.getCenter(0));
+    }
+
+    @Test
+    public void search_ranksCityNamesAndWholeWordsFirst() {
+        index.search("ta", results);
+
+        assertEquals(3, results.size());
+        // The city name ranks above center name and address prefixes.
+        assertEquals(2, results.getCity(0));
+        assertEquals(-1, results.getCenter(0));
+        assertTrue(results.getScore(0) > results.getScore(1));
+
+        index.search("rural", results);
+        assertEquals(2, results.size());
+        assertEquals(results.getScore(0), results.getScore(1));
+        assertEquals(0, results.getCenter(0));
+    }
+
+    @Test
+    public void search_narrowingMatchesFreshSearch() {
+        String[] queries = {"r", "ru", "rural", "rural t", "rural ta", "rural tx", "c", "cs u"};
+        for (String query : queries) {
+            index.search(query, results);
+            SearchIndex.Results fresh = new SearchIndex.Results();
+            index.search(query, fresh);
+
+            assertEquals(query, fresh.size(), results.size());
+            for (int rank = 0; rank < fresh.size(); rank++) {
+                assertEquals(query, fresh.getCity(rank), results.getCity(rank));
+                assertEquals(query, fresh.getCenter(rank), results.getCenter(rank));
+                assertEquals(query, fresh.getScore(rank), results.getScore(rank));
+            }
+        }
+    }
+
+    @Test
+    public void search_withoutWordsMatchesNothing() {
+        index.search(" ,- ", results);
+
+        assertEquals(0, results.size());
+    }
+
+    private static City city(String name, Center... centers) {
+        City city = new City();
+        city.setCity_name(name);
+        city.setCenters(new ArrayList<>(Arrays.asList(centers)));
+        return city;
+    }
+
+    private static Center center(String name, String address) {
+        Center center = new Center();
+        center.setName(name);
+        center.setAddress(address);
+        return center;
+    }
+}
@@ -0,0 +1,168 @@
+package com.maskdetector.detection.batch;
+
+import com.maskdetector.detection.env.FramePreprocessor;
+import com.maskdetector.detection.face.FaceDetector;
+import com.maskdetector.detection.face.FullFrameFaceDetector;
+import com.maskdetector.detection.inference.InferenceEngine;
+import com.maskdetector.detection.inference.MaskClassifier;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BatchClassifierTest {
+    private static final String[] LABELS = {MaskClassifier.LABEL_WITH_MASK, MaskClassifier.LABEL_WITHOUT_MASK};
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 8;
+    private static final int FRAME_COUNT = 40;
+    private static final int WORKERS = 3;
+    private static final int QUEUE_DEPTH = 2;
+
+    private final AtomicInteger engines = new AtomicInteger();
+    private final AtomicInteger engineRuns = new AtomicInteger();
+    private volatile int failingRun = -1;
+
+    private final BatchClassifier.WorkerFactory workerFactory = new BatchClassifier.WorkerFactory() {
+        @Override
+        public InferenceEngine newEngine() {
+            engines.incrementAndGet();
+            return new InferenceEngine() {
+                @Override
+                public void run(ByteBuffer input, ByteBuffer output, int batchSize) {
+                    if (engineRuns.incrementAndGet() == failingRun) {
+                        throw new IllegalStateException("Engine failure.");
+                    }
+                    // Frames are flat gray, so the first input byte tells which frame this is.
+                    float gray = (input.get(0) & 0xff) / 255f;
+                    output.putFloat(gray).putFloat(1f - gray);
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public FramePreprocessor newFramePreprocessor() {
+            return new FramePreprocessor(4, 4, FramePreprocessor.OutputType.UINT8, 0f, 1f);
+        }
+
+        @Override
+        public FaceDetector newFaceDetector() {
+            return new FullFrameFaceDetector();
+        }
+    };
+
+    private final BatchClassifier classifier = new BatchClassifier(workerFactory, LABELS, WORKERS, QUEUE_DEPTH, 1, 1f);
+
+    @Test
+    public void run_classifiesEveryItemOnceWithAnEnginePerWorker() throws Exception {
+        final List<Long> indices = Collections.synchronizedList(new ArrayList<Long>());
+        final Map<Long, Float> scores = Collections.synchronizedMap(new HashMap<Long, Float>());
+        BatchSink sink = new BatchSink() {
+            @Override
+            public void write(BatchResult result) {
+                indices.add(result.getIndex());
+                scores.put(result.getIndex(), result.getScore(0, 0));
+                assertEquals(1, result.getFaceCount());
+                assertEquals("video#" + result.getIndex(), result.getName());
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        BatchClassifier.Summary summary = classifier.run(newVideo(FRAME_COUNT), sink);
+
+        assertEquals(FRAME_COUNT, summary.getItemCount());
+        assertEquals(FRAME_COUNT, summary.getFaceCount());
+        assertEquals(WORKERS, engines.get());
+        Collections.sort(indices);
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            assertEquals(Long.valueOf(i), indices.get(i));
+        }
+        // Frames get brighter along the video, so each result went to its own item.
+        for (long i = 1; i < FRAME_COUNT; i++) {
+            assertTrue(scores.get(i) > scores.get(i - 1));
+        }
+    }
+
+    @Test
+    public void run_decodesIntoABoundedPoolOfFrames() throws Exception {
+        final RawVideoSource video = newVideo(FRAME_COUNT);
+        final Map<BatchFrame, Boolean> frames = new IdentityHashMap<>();
+        BatchSource source = new BatchSource() {
+            @Override
+            public boolean next(BatchFrame frame) throws IOException {
+                frames.put(frame, true);
+                return video.next(frame);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        classifier.run(source, new JsonLinesBatchSink(new StringWriter()));
+
+        assertTrue(frames.size() <= WORKERS + QUEUE_DEPTH);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void run_rethrowsTheFirstWorkerFailure() throws Exception {
+        failingRun = 5;
+        classifier.run(newVideo(FRAME_COUNT), new JsonLinesBatchSink(new StringWriter()));
+    }
+
+    @Test
+    public void sinks_writeOneRecordPerFace() throws Exception {
+        BatchResult result = new BatchResult(LABELS, 1);
+        result.getFaces()[0].set(0f, 0.25f, 0.5f, 1f);
+        result.getScores()[0] = 0.75f;
+        result.getScores()[1] = 0.25f;
+        result.set("a,b.jpg", 3, 1);
+
+        StringWriter csv = new StringWriter();
+        CsvBatchSink csvSink = new CsvBatchSink(csv);
+        csvSink.write(result);
+        csvSink.close();
+        assertEquals("index,name,face,left,top,right,bottom,label,with_mask,without_mask\n"
+            + "3,\"a,b.jpg\",0,0.0,0.25,0.5,1.0,with_mask,0.75,0.25\n", csv.toString());
+
+        StringWriter jsonLines = new StringWriter();
+        JsonLinesBatchSink jsonSink = new JsonLinesBatchSink(jsonLines);
+        jsonSink.write(result);
+        jsonSink.close();
+        assertEquals("{\"index\":3,\"name\":\"a,b.jpg\",\"faces\":[{\"box\":[0.0,0.25,0.5,1.0],\"label\":\"with_mask\","
+            + "\"scores\":{\"with_mask\":0.75,\"without_mask\":0.25}}]}\n", jsonLines.toString());
+    }
+
+    private static RawVideoSource newVideo(int frameCount) {
+        int frameSize = WIDTH * HEIGHT * 3 / 2;
+        byte[] video = new byte[frameSize * frameCount];
+        for (int frame = 0; frame < frameCount; frame++) {
+            for (int i = 0; i < frameSize; i++) {
+                video[frame * frameSize + i] = (byte) (i < WIDTH * HEIGHT ? lumaOf(frame) : 128);
+            }
+        }
+        return new RawVideoSource(new ByteArrayInputStream(video), "video", WIDTH, HEIGHT, 0);
+    }
+
+    private static int lumaOf(int frame) {
+        return 16 + frame * 5;
+    }
+}
@@ -0,0 +1,82 @@
+package com.maskdetector.detection.env;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class FramePreprocessorTest {
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 2;
+
+    @Test
+    public void process_rotatesClockwise() {
+        // Upright (col, row) maps to sensor (row, HEIGHT - 1 - col) for a 90 degree rotation.
+        int[] upright = process(90, false, HEIGHT, WIDTH);
+
+        for (int row = 0; row < WIDTH; row++) {
+            for (int col = 0; col < HEIGHT; col++) {
+                assertEquals(expectedGray(row, HEIGHT - 1 - col), upright[row * HEIGHT + col]);
+            }
+        }
+    }
+
+    @Test
+    public void process_mirrorsHorizontally() {
+        int[] mirrored = process(0, true, WIDTH, HEIGHT);
+
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                assertEquals(expectedGray(WIDTH - 1 - col, row), mirrored[row * WIDTH + col]);
+            }
+        }
+    }
+
+    @Test
+    public void process_centerCropsToOutputAspect() {
+        // A 4x2 frame squeezed into 2x2 keeps only the two middle columns.
+        int[] cropped = process(0, false, 2, 2);
+
+        assertEquals(expectedGray(1, 0), cropped[0]);
+        assertEquals(expectedGray(2, 0), cropped[1]);
+        assertEquals(expectedGray(1, 1), cropped[2]);
+        assertEquals(expectedGray(2, 1), cropped[3]);
+    }
+
+    private static int[] process(int rotation, boolean mirror, int outputWidth, int outputHeight) {
+        YuvFrame frame = new YuvFrame();
+        frame.setSize(WIDTH, HEIGHT);
+        ByteBuffer luma = ByteBuffer.allocate(WIDTH * HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                luma.put(y * WIDTH + x, lumaAt(x, y));
+            }
+        }
+        ByteBuffer chroma = ByteBuffer.allocate(WIDTH * HEIGHT / 4);
+        for (int i = 0; i < chroma.capacity(); i++) {
+            chroma.put(i, (byte) 128);
+        }
+        frame.setPlane(YuvFrame.PLANE_Y, luma, WIDTH, 1);
+        frame.setPlane(YuvFrame.PLANE_U, chroma, WIDTH / 2, 1);
+        frame.setPlane(YuvFrame.PLANE_V, chroma, WIDTH / 2, 1);
+
+        FramePreprocessor preprocessor = new FramePreprocessor(outputWidth, outputHeight, FramePreprocessor.OutputType.UINT8, 0f, 1f);
+        ByteBuffer output = preprocessor.allocateOutputBuffer();
+        preprocessor.process(frame, rotation, mirror, output);
+
+        int[] red = new int[outputWidth * outputHeight];
+        for (int i = 0; i < red.length; i++) {
+            red[i] = output.get(i * 3) & 0xff;
+        }
+        return red;
+    }
+
+    private static byte lumaAt(int x, int y) {
+        return (byte) (32 + 24 * (y * WIDTH + x));
+    }
+
+    private static int expectedGray(int x, int y) {
+        return (YuvToArgb.toArgb((lumaAt(x, y) & 0xff) - 16, 0, 0) >> 16) & 0xff;
+    }
+}
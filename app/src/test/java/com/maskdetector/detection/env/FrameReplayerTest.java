@@ -0,0 +1,150 @@
+package com.maskdetector.detection.env;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.Assert.*;
+
+public class FrameReplayerTest {
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 4;
+    private static final int ROW_STRIDE = 16;
+
+    @Test
+    public void next_restoresPlanesStridesCropAndRotation() throws IOException {
+        YuvFrame recorded = newFrame(3);
+        recorded.setCrop(2, 0, 6, 4);
+
+        YuvFrame replayed = new YuvFrame();
+        try (FrameReplayer replayer = new FrameReplayer(new ByteArrayInputStream(record(recorded, 90, 1234L)))) {
+            assertTrue(replayer.next(replayed));
+            assertEquals(90, replayer.getRotationDegrees());
+            assertEquals(1234L, replayer.getTimestampNanos());
+            assertFalse(replayer.next(replayed));
+        }
+
+        assertEquals(WIDTH, replayed.getWidth());
+        assertEquals(HEIGHT, replayed.getHeight());
+        assertEquals(2, replayed.getCropLeft());
+        assertEquals(4, replayed.getCropWidth());
+        for (int plane = YuvFrame.PLANE_Y; plane <= YuvFrame.PLANE_V; plane++) {
+            assertEquals(recorded.getRowStride(plane), replayed.getRowStride(plane));
+            assertEquals(recorded.getPixelStride(plane), replayed.getPixelStride(plane));
+            assertEquals(recorded.getBuffer(plane).duplicate().rewind(), replayed.getBuffer(plane));
+        }
+    }
+
+    @Test
+    public void write_recordsPlanesFromTheStartWhateverTheirPosition() throws IOException {
+        YuvFrame recorded = newFrame(5);
+        recorded.getBuffer(YuvFrame.PLANE_Y).position(7);
+
+        YuvFrame replayed = new YuvFrame();
+        try (FrameReplayer replayer = new FrameReplayer(new ByteArrayInputStream(record(recorded, 0, 0)))) {
+            assertTrue(replayer.next(replayed));
+        }
+
+        assertEquals(ROW_STRIDE * HEIGHT, replayed.getBuffer(YuvFrame.PLANE_Y).remaining());
+        assertEquals(5, replayed.getBuffer(YuvFrame.PLANE_Y).get(0));
+    }
+
+    @Test
+    public void replay_deliversEveryFrameInOrder() throws IOException, InterruptedException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (FrameRecorder recorder = new FrameRecorder(output)) {
+            for (int i = 0; i < 5; i++) {
+                recorder.write(newFrame(i), 270, i * 33_000_000L);
+            }
+        }
+
+        final List<Long> timestamps = new ArrayList<>();
+        final List<Byte> firstBytes = new ArrayList<>();
+        int count;
+        try (FrameReplayer replayer = new FrameReplayer(new ByteArrayInputStream(output.toByteArray()))) {
+            count = replayer.replay(new FrameConsumer() {
+                @Override
+                public void onFrame(YuvFrame frame, int rotationDegrees, long timestampNanos) {
+                    assertEquals(270, rotationDegrees);
+                    timestamps.add(timestampNanos);
+                    firstBytes.add(frame.getBuffer(YuvFrame.PLANE_Y).get(0));
+                }
+            }, false);
+        }
+
+        assertEquals(5, count);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i * 33_000_000L, (long) timestamps.get(i));
+            assertEquals(i, (byte) firstBytes.get(i));
+        }
+    }
+
+    @Test
+    public void replay_inRealTimeKeepsTheRecordedSpacing() throws IOException, InterruptedException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (FrameRecorder recorder = new FrameRecorder(output)) {
+            for (int i = 0; i < 3; i++) {
+                recorder.write(newFrame(i), 0, 5_000_000_000L + i * 30_000_000L);
+            }
+        }
+
+        long startNanos = System.nanoTime();
+        try (FrameReplayer replayer = new FrameReplayer(new ByteArrayInputStream(output.toByteArray()))) {
+            replayer.replay(new FrameConsumer() {
+                @Override
+                public void onFrame(YuvFrame frame, int rotationDegrees, long timestampNanos) {
+                }
+            }, true);
+        }
+
+        assertTrue(System.nanoTime() - startNanos >= 60_000_000L);
+    }
+
+    @Test(expected = IOException.class)
+    public void constructor_rejectsOtherFiles() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DeflaterOutputStream deflated = new DeflaterOutputStream(output);
+        deflated.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        deflated.close();
+
+        new FrameReplayer(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    private static byte[] record(YuvFrame frame, int rotationDegrees, long timestampNanos) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (FrameRecorder recorder = new FrameRecorder(output)) {
+            recorder.write(frame, rotationDegrees, timestampNanos);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * A frame with interleaved chroma, its luma starting at {@code seed}.
+     */
+    private static YuvFrame newFrame(int seed) {
+        ByteBuffer luma = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT);
+        for (int i = 0; i < luma.capacity(); i++) {
+            luma.put(i, (byte) (seed + i));
+        }
+        ByteBuffer chroma = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT / 2);
+        for (int i = 0; i < chroma.capacity(); i++) {
+            chroma.put(i, (byte) (seed * 3 + i));
+        }
+        chroma.position(1);
+        ByteBuffer vBuffer = chroma.slice();
+        chroma.position(0);
+
+        YuvFrame frame = new YuvFrame();
+        frame.setSize(WIDTH, HEIGHT);
+        frame.setPlane(YuvFrame.PLANE_Y, luma, ROW_STRIDE, 1);
+        frame.setPlane(YuvFrame.PLANE_U, chroma.slice(), ROW_STRIDE, 2);
+        frame.setPlane(YuvFrame.PLANE_V, vBuffer, ROW_STRIDE, 2);
+        return frame;
+    }
+}
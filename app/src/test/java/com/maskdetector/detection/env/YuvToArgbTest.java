@@ -0,0 +1,19 @@
+package com.maskdetector.detection.env;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class YuvToArgbTest {
+
+    @Test
+    public void toArgb_convertsReferenceColors() {
+        assertEquals(0xff000000, YuvToArgb.toArgb(16 - 16, 0, 0));
+        assertEquals(0xffffffff, YuvToArgb.toArgb(255 - 16, 0, 0));
+
+        int red = YuvToArgb.toArgb(81 - 16, 90 - 128, 240 - 128);
+        assertTrue(((red >> 16) & 0xff) > 250);
+        assertTrue(((red >> 8) & 0xff) < 5);
+        assertTrue((red & 0xff) < 5);
+    }
+}
@@ -0,0 +1,74 @@
+package com.maskdetector.detection.face;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FaceTrackerTest {
+    private final FaceTracker tracker = new FaceTracker(4, 2, 0.3f, 0.6f, 3, 1);
+    private final int[] trackIds = new int[4];
+    private final FaceBox[] boxes = {new FaceBox(), new FaceBox(), new FaceBox(), new FaceBox()};
+    private final float[] scores = new float[8];
+
+    @Test
+    public void update_keepsIdsForOverlappingBoxes() {
+        tracker.update(new FaceBox[] {new FaceBox(0.1f, 0.1f, 0.3f, 0.3f), new FaceBox(0.6f, 0.1f, 0.8f, 0.3f)}, 2);
+        assertEquals(2, tracker.selectForClassification(trackIds, boxes));
+        int firstId = trackIds[0];
+        int secondId = trackIds[1];
+        storeAll(2);
+
+        tracker.update(new FaceBox[] {new FaceBox(0.61f, 0.1f, 0.81f, 0.3f), new FaceBox(0.11f, 0.1f, 0.31f, 0.3f)}, 2);
+
+        assertEquals(2, tracker.copyVisibleTracks(trackIds, boxes, scores));
+        assertEquals(firstId, trackIds[0]);
+        assertEquals(0.11f, boxes[0].getLeft(), 1e-6f);
+        assertEquals(secondId, trackIds[1]);
+    }
+
+    @Test
+    public void selectForClassification_reusesCachedScoresUntilInterval() {
+        FaceBox[] face = {new FaceBox(0.1f, 0.1f, 0.3f, 0.3f)};
+        tracker.update(face, 1);
+        assertEquals(1, tracker.selectForClassification(trackIds, boxes));
+        storeAll(1);
+
+        tracker.update(face, 1);
+        assertEquals(0, tracker.selectForClassification(trackIds, boxes));
+        tracker.update(face, 1);
+        assertEquals(0, tracker.selectForClassification(trackIds, boxes));
+        tracker.update(face, 1);
+        assertEquals(1, tracker.selectForClassification(trackIds, boxes));
+    }
+
+    @Test
+    public void selectForClassification_reclassifiesMovedFaces() {
+        tracker.update(new FaceBox[] {new FaceBox(0.1f, 0.1f, 0.3f, 0.3f)}, 1);
+        tracker.selectForClassification(trackIds, boxes);
+        storeAll(1);
+
+        tracker.update(new FaceBox[] {new FaceBox(0.15f, 0.1f, 0.35f, 0.3f)}, 1);
+
+        assertEquals(1, tracker.selectForClassification(trackIds, boxes));
+    }
+
+    @Test
+    public void update_expiresTracksAfterMissedFrames() {
+        tracker.update(new FaceBox[] {new FaceBox(0.1f, 0.1f, 0.3f, 0.3f)}, 1);
+        tracker.selectForClassification(trackIds, boxes);
+        storeAll(1);
+
+        tracker.update(boxes, 0);
+        assertEquals(1, tracker.getActiveTrackCount());
+        assertEquals(0, tracker.copyVisibleTracks(trackIds, boxes, scores));
+
+        tracker.update(boxes, 0);
+        assertEquals(0, tracker.getActiveTrackCount());
+    }
+
+    private void storeAll(int count) {
+        for (int i = 0; i < count; i++) {
+            tracker.storeScores(trackIds[i], new float[] {0.9f, 0.1f}, 0);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.maskdetector.detection.inference;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DelegateSelectorTest {
+    private static final DelegateConfig GPU = new DelegateConfig(DelegateConfig.Backend.GPU, 1);
+    private static final DelegateConfig NNAPI = new DelegateConfig(DelegateConfig.Backend.NNAPI, 1);
+    private static final DelegateConfig CPU = new DelegateConfig(DelegateConfig.Backend.CPU, 2);
+
+    private static final byte INVALID_INPUT = 1;
+
+    private final FakeFactory factory = new FakeFactory();
+    private final MemoryStore store = new MemoryStore();
+
+    @Test
+    public void run_benchmarksOnceAndStoresFastestConfig() {
+        factory.delays.put(GPU, 2_000_000L);
+        factory.delays.put(NNAPI, 100_000L);
+        factory.delays.put(CPU, 1_000_000L);
+
+        newEngine().run(input(), output(), 1);
+
+        assertEquals(NNAPI, store.config);
+        assertEquals(Arrays.asList(GPU, NNAPI, CPU, NNAPI), factory.created);
+    }
+
+    @Test
+    public void run_skipsBenchmarkWhenConfigIsStored() {
+        store.config = CPU;
+
+        newEngine().run(input(), output(), 1);
+
+        assertEquals(Arrays.asList(CPU), factory.created);
+    }
+
+    @Test
+    public void run_skipsConfigsThatFailToOpen() {
+        factory.failingToOpen.add(GPU);
+        factory.delays.put(NNAPI, 2_000_000L);
+
+        newEngine().run(input(), output(), 1);
+
+        assertEquals(CPU, store.config);
+    }
+
+    @Test
+    public void run_fallsBackWhenEngineFailsAtRuntime() {
+        store.config = GPU;
+        factory.failingToRun.add(GPU);
+        factory.delays.put(NNAPI, 2_000_000L);
+
+        InferenceEngine engine = newEngine();
+        engine.run(input(), output(), 1);
+        engine.run(input(), output(), 1);
+
+        assertEquals(CPU, store.config);
+        assertEquals(Arrays.asList(GPU, GPU, NNAPI, CPU, CPU), factory.created);
+    }
+
+    @Test
+    public void run_keepsTheConfigOnErrorsOtherThanDelegateFailures() {
+        store.config = GPU;
+        ByteBuffer invalidInput = input();
+        invalidInput.put(0, INVALID_INPUT);
+
+        InferenceEngine engine = newEngine();
+        try {
+            engine.run(invalidInput, output(), 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        engine.run(input(), output(), 1);
+
+        assertEquals(GPU, store.config);
+        assertEquals(Arrays.asList(GPU), factory.created);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void close_fromAnotherThreadThanTheRunsFails() throws Exception {
+        store.config = GPU;
+        final InferenceEngine engine = newEngine();
+        Thread runner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                engine.run(input(), output(), 1);
+            }
+        });
+        runner.start();
+        runner.join();
+
+        engine.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void run_throwsWhenNothingWorks() {
+        factory.failingToOpen.addAll(Arrays.asList(GPU, NNAPI, CPU));
+
+        newEngine().run(input(), output(), 1);
+    }
+
+    private InferenceEngine newEngine() {
+        return new DelegateSelector(factory, Arrays.asList(GPU, NNAPI, CPU), store, 4, 4, 0, 1).newEngine();
+    }
+
+    private static ByteBuffer input() {
+        return ByteBuffer.allocate(4);
+    }
+
+    private static ByteBuffer output() {
+        return ByteBuffer.allocate(4);
+    }
+
+    private static final class MemoryStore implements DelegateSelector.Store {
+        DelegateConfig config;
+
+        @Override
+        public DelegateConfig load() {
+            return config;
+        }
+
+        @Override
+        public void save(DelegateConfig config) {
+            this.config = config;
+        }
+    }
+
+    private static final class FakeFactory implements DelegateSelector.EngineFactory {
+        final Map<DelegateConfig, Long> delays = new HashMap<>();
+        final Set<DelegateConfig> failingToOpen = new HashSet<>();
+        final Set<DelegateConfig> failingToRun = new HashSet<>();
+        final List<DelegateConfig> created = new ArrayList<>();
+
+        @Override
+        public InferenceEngine create(final DelegateConfig config) {
+            created.add(config);
+            if (failingToOpen.contains(config)) {
+                throw new IllegalArgumentException("Unsupported delegate " + config);
+            }
+
+            return new InferenceEngine() {
+                @Override
+                public void run(ByteBuffer input, ByteBuffer output, int batchSize) {
+                    if (failingToRun.contains(config)) {
+                        throw new DelegateException("Delegate " + config + " failed", null);
+                    }
+                    if (input.get(0) == INVALID_INPUT) {
+                        throw new IllegalArgumentException("Invalid input");
+                    }
+                    Long delay = delays.get(config);
+                    long end = System.nanoTime() + (delay != null ? delay : 0L);
+                    while (System.nanoTime() < end) {
+                        Thread.yield();
+                    }
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
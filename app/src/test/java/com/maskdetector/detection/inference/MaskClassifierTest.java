@@ -0,0 +1,111 @@
+package com.maskdetector.detection.inference;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class MaskClassifierTest {
+    private static final String[] LABELS = {MaskClassifier.LABEL_WITH_MASK, MaskClassifier.LABEL_WITHOUT_MASK};
+    private static final int INPUT_SIZE = 16;
+
+    private static final class FixedScoresEngine implements InferenceEngine {
+        private int runs;
+
+        @Override
+        public void run(ByteBuffer input, ByteBuffer output, int batchSize) {
+            runs++;
+            for (int i = 0; i < batchSize; i++) {
+                // Echo the first input byte of each crop so the batch layout can be checked.
+                float marker = input.get(i * INPUT_SIZE);
+                output.putFloat(0.25f + marker).putFloat(0.75f);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void classify_writesScoresInLabelOrder() throws Exception {
+        MaskClassifier classifier = new MaskClassifier(new FixedScoresEngine(), LABELS, INPUT_SIZE, 2);
+        float[] scores = new float[classifier.getClassCount()];
+
+        MaskClassifier.Slot slot = classifier.acquire();
+        classifier.classify(slot, scores);
+        classifier.release(slot);
+
+        assertArrayEquals(new float[] {0.25f, 0.75f}, scores, 0f);
+        assertEquals(1, classifier.indexOf(MaskClassifier.LABEL_WITHOUT_MASK));
+    }
+
+    @Test
+    public void classify_runsAllFacesInOneBatch() throws Exception {
+        FixedScoresEngine engine = new FixedScoresEngine();
+        MaskClassifier classifier = new MaskClassifier(engine, LABELS, INPUT_SIZE, 1, 3);
+        float[] scores = new float[3 * classifier.getClassCount()];
+
+        MaskClassifier.Slot slot = classifier.acquire();
+        for (int face = 0; face < 3; face++) {
+            slot.getInputBuffer(face).put(0, (byte) face);
+        }
+        slot.setFaceCount(3);
+        classifier.classify(slot, scores);
+
+        assertEquals(1, engine.runs);
+        assertArrayEquals(new float[] {0.25f, 0.75f, 1.25f, 0.75f, 2.25f, 0.75f}, scores, 0f);
+    }
+
+    @Test
+    public void classify_skipsEngineWithoutFaces() throws Exception {
+        FixedScoresEngine engine = new FixedScoresEngine();
+        MaskClassifier classifier = new MaskClassifier(engine, LABELS, INPUT_SIZE, 1, 3);
+
+        MaskClassifier.Slot slot = classifier.acquire();
+        slot.setFaceCount(0);
+        classifier.classify(slot, new float[0]);
+
+        assertEquals(0, engine.runs);
+        assertEquals(1, classifier.getFrameCount());
+    }
+
+    @Test
+    public void tryAcquire_returnsNullWhenPoolIsExhausted() {
+        MaskClassifier classifier = new MaskClassifier(new FixedScoresEngine(), LABELS, INPUT_SIZE, 2);
+
+        assertNotNull(classifier.tryAcquire());
+        assertNotNull(classifier.tryAcquire());
+        assertNull(classifier.tryAcquire());
+    }
+
+    @Test
+    public void classify_doesNotAllocateInSteadyState() throws Exception {
+        MaskClassifier classifier = new MaskClassifier(new FixedScoresEngine(), LABELS, INPUT_SIZE, 2);
+        float[] scores = new float[classifier.getClassCount()];
+        for (int i = 0; i < 10_000; i++) {
+            classifyOnce(classifier, scores);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10_000; i++) {
+            classifyOnce(classifier, scores);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static void classifyOnce(MaskClassifier classifier, float[] scores) throws InterruptedException {
+        MaskClassifier.Slot slot = classifier.acquire();
+        try {
+            classifier.classify(slot, scores);
+        } finally {
+            classifier.release(slot);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.maskdetector.detection.pipeline;
+
+import com.maskdetector.detection.inference.InferenceEngine;
+import com.maskdetector.detection.inference.MaskClassifier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class AnalysisPipelineTest {
+    private static final String[] LABELS = {MaskClassifier.LABEL_WITH_MASK, MaskClassifier.LABEL_WITHOUT_MASK};
+    private static final int INPUT_SIZE = 8;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final CountDownLatch inferenceStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseInference = new CountDownLatch(1);
+    private final CountDownLatch engineClosed = new CountDownLatch(1);
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean closedWhileRunning = new AtomicBoolean();
+    private final AtomicReference<String> closingThread = new AtomicReference<>();
+    private final AtomicInteger results = new AtomicInteger();
+
+    private final InferenceEngine engine = new InferenceEngine() {
+        @Override
+        public void run(ByteBuffer input, ByteBuffer output, int batchSize) {
+            running.set(true);
+            inferenceStarted.countDown();
+            // Like a native interpreter, a slow run does not notice interrupts.
+            while (true) {
+                try {
+                    releaseInference.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    break;
+                } catch (InterruptedException ignored) {
+                }
+            }
+            output.putFloat(0.9f).putFloat(0.1f);
+            running.set(false);
+        }
+
+        @Override
+        public void close() {
+            closedWhileRunning.set(running.get());
+            closingThread.set(Thread.currentThread().getName());
+            engineClosed.countDown();
+        }
+    };
+    private final MaskClassifier classifier = new MaskClassifier(engine, LABELS, INPUT_SIZE, 2);
+    private final AnalysisPipeline pipeline = new AnalysisPipeline(classifier, 1, AnalysisPipeline.DropPolicy.DROP_NEWEST,
+        new AnalysisPipeline.Listener() {
+            @Override
+            public void onResult(FrameResult result) {
+                results.incrementAndGet();
+            }
+
+            @Override
+            public void onError(RuntimeException exception) {
+            }
+        });
+
+    @After
+    public void tearDown() {
+        releaseInference.countDown();
+        pipeline.stop();
+    }
+
+    @Test
+    public void stop_waitsForTheRunningInference() throws Exception {
+        startInference();
+
+        Thread stopper = new Thread(pipeline::stop);
+        stopper.start();
+        stopper.join(200);
+        assertTrue(stopper.isAlive());
+
+        releaseInference.countDown();
+        stopper.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(stopper.isAlive());
+        assertFalse(running.get());
+        // Stopped while classifying, so the result is not delivered.
+        assertEquals(0, results.get());
+    }
+
+    @Test
+    public void close_closesTheClassifierOnTheInferenceThreadAfterItsRun() throws Exception {
+        startInference();
+
+        pipeline.close();
+        assertFalse(engineClosed.await(200, TimeUnit.MILLISECONDS));
+
+        releaseInference.countDown();
+        assertTrue(engineClosed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(closedWhileRunning.get());
+        assertEquals("mask-inference", closingThread.get());
+    }
+
+    @Test
+    public void close_withoutInferenceThreadClosesRightAway() {
+        pipeline.close();
+
+        assertEquals(0, engineClosed.getCount());
+        assertEquals(Thread.currentThread().getName(), closingThread.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void start_afterCloseFails() {
+        pipeline.close();
+        pipeline.start();
+    }
+
+    private void startInference() throws InterruptedException {
+        pipeline.start();
+        MaskClassifier.Slot slot = pipeline.acquireSlot();
+        slot.setFaceCount(1);
+        pipeline.enqueue(slot, 0);
+        assertTrue(inferenceStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+}
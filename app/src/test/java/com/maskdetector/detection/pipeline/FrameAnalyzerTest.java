@@ -0,0 +1,192 @@
+package com.maskdetector.detection.pipeline;
+
+import com.maskdetector.detection.env.FramePreprocessor;
+import com.maskdetector.detection.env.FrameRecorder;
+import com.maskdetector.detection.env.FrameReplayer;
+import com.maskdetector.detection.env.YuvFrame;
+import com.maskdetector.detection.face.FaceCropper;
+import com.maskdetector.detection.face.FaceTracker;
+import com.maskdetector.detection.face.FullFrameFaceDetector;
+import com.maskdetector.detection.inference.InferenceEngine;
+import com.maskdetector.detection.inference.MaskClassifier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class FrameAnalyzerTest {
+    private static final String[] LABELS = {MaskClassifier.LABEL_WITH_MASK, MaskClassifier.LABEL_WITHOUT_MASK};
+    private static final int INPUT_SIZE = 8;
+    private static final int MAX_FACES = 2;
+    private static final int FRAME_COUNT = 12;
+    private static final long FRAME_INTERVAL_NANOS = 33_000_000L;
+    // The queue can hold every slot, so blocking on a free slot never drops a frame.
+    private static final int POOL_SIZE = 2;
+
+    private final AtomicInteger engineRuns = new AtomicInteger();
+    private final InferenceEngine engine = new InferenceEngine() {
+        @Override
+        public void run(ByteBuffer input, ByteBuffer output, int batchSize) {
+            engineRuns.incrementAndGet();
+            for (int i = 0; i < batchSize; i++) {
+                output.putFloat(0.9f).putFloat(0.1f);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+    private final CountDownLatch results = new CountDownLatch(FRAME_COUNT);
+    private final AtomicInteger maskedResults = new AtomicInteger();
+    // Errors arrive on the inference thread, where a failed assertion would go unnoticed.
+    private final AtomicReference<RuntimeException> pipelineError = new AtomicReference<>();
+    private final PipelineMetrics metrics = new PipelineMetrics(null);
+    private final MaskClassifier classifier = new MaskClassifier(
+        engine, LABELS, new FramePreprocessor(INPUT_SIZE, INPUT_SIZE, FramePreprocessor.OutputType.UINT8, 0f, 1f)
+            .getOutputSizeInBytes(), POOL_SIZE, MAX_FACES);
+    private final FaceTracker faceTracker = new FaceTracker(MAX_FACES * 2, LABELS.length, 0.3f, 0.6f, 5, 3);
+    private final AnalysisPipeline pipeline = new AnalysisPipeline(classifier, faceTracker, POOL_SIZE, AnalysisPipeline.DropPolicy.BLOCK,
+        new AnalysisPipeline.Listener() {
+            @Override
+            public void onResult(FrameResult result) {
+                if (result.getFaceCount() == 1 && result.getScore(0, 0) > 0.5f) {
+                    maskedResults.incrementAndGet();
+                }
+                results.countDown();
+            }
+
+            @Override
+            public void onError(RuntimeException exception) {
+                pipelineError.compareAndSet(null, exception);
+            }
+        });
+
+    public FrameAnalyzerTest() {
+        pipeline.setMetrics(metrics);
+        pipeline.start();
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.stop();
+        assertNull(pipelineError.get());
+    }
+
+    @Test
+    public void replay_runsEveryRecordedFrameThroughThePipeline() throws Exception {
+        FrameAnalyzer analyzer = new FrameAnalyzer(
+            new FrameScheduler(1f, 1000f),
+            new FullFrameFaceDetector(),
+            faceTracker,
+            new FaceCropper(new FramePreprocessor(INPUT_SIZE, INPUT_SIZE, FramePreprocessor.OutputType.UINT8, 0f, 1f), 1.2f),
+            pipeline,
+            metrics,
+            MAX_FACES,
+            true
+        );
+        int replayed;
+        try (FrameReplayer replayer = new FrameReplayer(new ByteArrayInputStream(recording()))) {
+            replayed = replayer.replay(analyzer, false);
+        }
+
+        assertEquals(FRAME_COUNT, replayed);
+        assertTrue(results.await(5, TimeUnit.SECONDS));
+        assertEquals(FRAME_COUNT, maskedResults.get());
+        assertEquals(FRAME_COUNT, metrics.getProcessedFrames());
+        assertEquals(0, metrics.getDroppedFrames());
+        assertEquals(FRAME_COUNT, metrics.getHistogram(PipelineMetrics.Stage.DETECTION).snapshot().getCount());
+        // The face stays put, so the tracker only sends it back to the classifier now and then.
+        assertTrue(engineRuns.get() >= 1 && engineRuns.get() < FRAME_COUNT);
+        assertEquals(engineRuns.get(), metrics.getHistogram(PipelineMetrics.Stage.INFERENCE).snapshot().getCount());
+    }
+
+    @Test
+    public void onFrame_releasesEveryFrameOnce() {
+        FrameAnalyzer analyzer = new FrameAnalyzer(
+            new FrameScheduler(1f, 1000f),
+            new FullFrameFaceDetector(),
+            faceTracker,
+            new FaceCropper(new FramePreprocessor(INPUT_SIZE, INPUT_SIZE, FramePreprocessor.OutputType.UINT8, 0f, 1f), 1.2f),
+            pipeline,
+            metrics,
+            MAX_FACES,
+            false
+        );
+        final AtomicInteger releases = new AtomicInteger();
+        Runnable release = new Runnable() {
+            @Override
+            public void run() {
+                releases.incrementAndGet();
+            }
+        };
+
+        YuvFrame frame = new YuvFrame();
+        frame.setSize(64, 48);
+        frame.setPlane(YuvFrame.PLANE_Y, filled(64 * 48, 100), 64, 1);
+        frame.setPlane(YuvFrame.PLANE_U, filled(64 * 48 / 4, 128), 32, 1);
+        frame.setPlane(YuvFrame.PLANE_V, filled(64 * 48 / 4, 128), 32, 1);
+        analyzer.onFrame(frame, 0, FRAME_INTERVAL_NANOS, release);
+        // Too close to the previous frame, skipped but still released.
+        analyzer.onFrame(frame, 0, FRAME_INTERVAL_NANOS, release);
+
+        assertEquals(2, releases.get());
+        assertEquals(1, pipeline.getSubmittedFrames());
+    }
+
+    @Test
+    public void onFrame_skipsFramesTheSchedulerRejects() throws Exception {
+        FrameAnalyzer analyzer = new FrameAnalyzer(
+            new FrameScheduler(1f, 10f),
+            new FullFrameFaceDetector(),
+            faceTracker,
+            new FaceCropper(new FramePreprocessor(INPUT_SIZE, INPUT_SIZE, FramePreprocessor.OutputType.UINT8, 0f, 1f), 1.2f),
+            pipeline,
+            metrics,
+            MAX_FACES,
+            false
+        );
+
+        try (FrameReplayer replayer = new FrameReplayer(new ByteArrayInputStream(recording()))) {
+            replayer.replay(analyzer, false);
+        }
+
+        // At most 10 fps out of 30: frames 0, 4 and 8 are 132ms apart, the others too close.
+        assertEquals(3, metrics.getHistogram(PipelineMetrics.Stage.DETECTION).snapshot().getCount());
+    }
+
+    private static byte[] recording() throws IOException {
+        int width = 64;
+        int height = 48;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (FrameRecorder recorder = new FrameRecorder(output)) {
+            for (int i = 0; i < FRAME_COUNT; i++) {
+                YuvFrame frame = new YuvFrame();
+                frame.setSize(width, height);
+                frame.setPlane(YuvFrame.PLANE_Y, filled(width * height, i), width, 1);
+                frame.setPlane(YuvFrame.PLANE_U, filled(width * height / 4, 128), width / 2, 1);
+                frame.setPlane(YuvFrame.PLANE_V, filled(width * height / 4, 128), width / 2, 1);
+                recorder.write(frame, 270, i * FRAME_INTERVAL_NANOS);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static ByteBuffer filled(int size, int value) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        for (int i = 0; i < size; i++) {
+            buffer.put(i, (byte) value);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,57 @@
+package com.maskdetector.detection.pipeline;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FrameSchedulerTest {
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void shouldAnalyze_keepsFramesAtMaxRate() {
+        FrameScheduler scheduler = new FrameScheduler(1f, 10f);
+
+        assertTrue(scheduler.shouldAnalyze(0));
+        assertFalse(scheduler.shouldAnalyze(33 * MILLIS));
+        assertFalse(scheduler.shouldAnalyze(66 * MILLIS));
+        assertTrue(scheduler.shouldAnalyze(100 * MILLIS));
+    }
+
+    @Test
+    public void recordInferenceLatency_lowersRateForSlowInference() {
+        FrameScheduler scheduler = new FrameScheduler(1f, 10f);
+
+        scheduler.recordInferenceLatency(200 * MILLIS);
+
+        assertEquals(4f, scheduler.getTargetRate(), 0.01f);
+    }
+
+    @Test
+    public void setPowerScale_neverGoesBelowMinRate() {
+        FrameScheduler scheduler = new FrameScheduler(2f, 10f);
+        float[] reported = new float[1];
+        scheduler.setOnRateChangedListener(rate -> reported[0] = rate);
+
+        scheduler.setPowerScale(0.1f);
+
+        assertEquals(2f, scheduler.getTargetRate(), 0f);
+        assertEquals(2f, reported[0], 0f);
+    }
+
+    @Test
+    public void setPowerScale_reportsGradualDriftOnceItAddsUp() {
+        FrameScheduler scheduler = new FrameScheduler(1f, 10f);
+        float[] reported = {-1f};
+        scheduler.setOnRateChangedListener(rate -> reported[0] = rate);
+
+        // Each step moves the rate by 0.1 fps, below the reporting threshold.
+        scheduler.setPowerScale(0.99f);
+        scheduler.setPowerScale(0.98f);
+        assertEquals(-1f, reported[0], 0f);
+
+        scheduler.setPowerScale(0.97f);
+        assertEquals(9.7f, reported[0], 0.001f);
+    }
+}
@@ -0,0 +1,80 @@
+package com.maskdetector.detection.pipeline;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void bucketOf_boundsEveryValueWithinOneEighth() {
+        for (long nanos = 1024; nanos < 1L << 34; nanos = nanos * 17 / 16 + 1) {
+            int bucket = LatencyHistogram.bucketOf(nanos);
+            long upperBound = LatencyHistogram.upperBoundOf(bucket);
+
+            assertTrue(nanos < upperBound);
+            assertTrue(upperBound <= nanos + nanos / 8 + 1);
+            assertTrue(bucket == 0 || LatencyHistogram.upperBoundOf(bucket - 1) <= nanos);
+        }
+    }
+
+    @Test
+    public void bucketOf_clampsOutOfRangeValues() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(0, LatencyHistogram.bucketOf(-5));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void snapshot_reportsPercentilesOfUniformValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(millis * 1_000_000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(50_500_000L, snapshot.getMeanNanos());
+        assertEquals(100_000_000L, snapshot.getMaxNanos());
+        assertBetween(50_000_000L, 50_000_000L * 9 / 8, snapshot.getPercentileNanos(50));
+        assertBetween(95_000_000L, 100_000_000L, snapshot.getPercentileNanos(95));
+        assertBetween(99_000_000L, 100_000_000L, snapshot.getPercentileNanos(99));
+    }
+
+    @Test
+    public void record_countsEveryValueFromConcurrentThreads() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int value = 0; value < 10_000; value++) {
+                        histogram.record(value * 1000L);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40_000, histogram.snapshot().getCount());
+        assertEquals(9_999_000L, histogram.snapshot().getMaxNanos());
+    }
+
+    @Test
+    public void reset_clearsCounts() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5000);
+        histogram.reset();
+
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getPercentileNanos(50));
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual + " < " + min, actual >= min);
+        assertTrue(actual + " > " + max, actual <= max);
+    }
+}
@@ -0,0 +1,131 @@
+package com.maskdetector.detection.pipeline;
+
+import com.maskdetector.detection.env.YuvFrame;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class MotionGateTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final int BLOCK_SIZE = 16;
+    private static final long FRAME_INTERVAL_NANOS = 33_000_000L;
+    private static final long REFRESH_INTERVAL_NANOS = 100 * FRAME_INTERVAL_NANOS;
+
+    // 4 x 3 blocks, two of which must change.
+    private final MotionGate motionGate = new MotionGate(BLOCK_SIZE, 10, 0.15f, REFRESH_INTERVAL_NANOS);
+    private final YuvFrame frame = new YuvFrame();
+    private final ByteBuffer luma = ByteBuffer.allocateDirect(WIDTH * HEIGHT);
+    private long timestampNanos;
+
+    public MotionGateTest() {
+        ByteBuffer chroma = ByteBuffer.allocateDirect(WIDTH * HEIGHT / 4);
+        frame.setSize(WIDTH, HEIGHT);
+        frame.setPlane(YuvFrame.PLANE_Y, luma, WIDTH, 1);
+        frame.setPlane(YuvFrame.PLANE_U, chroma, WIDTH / 2, 1);
+        frame.setPlane(YuvFrame.PLANE_V, chroma, WIDTH / 2, 1);
+        fill(0, 0, WIDTH, HEIGHT, 100);
+    }
+
+    @Test
+    public void shouldAnalyze_skipsAStaticSceneAfterTheFirstFrame() {
+        assertTrue(nextFrame());
+        for (int i = 0; i < 10; i++) {
+            assertFalse(nextFrame());
+        }
+
+        assertEquals(1, motionGate.getPassedFrames());
+        assertEquals(10, motionGate.getSkippedFrames());
+    }
+
+    @Test
+    public void shouldAnalyze_ignoresChangesBelowTheThresholdOrInTooFewBlocks() {
+        nextFrame();
+
+        fill(0, 0, WIDTH, HEIGHT, 108);
+        assertFalse(nextFrame());
+
+        fill(0, 0, BLOCK_SIZE, BLOCK_SIZE, 200);
+        assertFalse(nextFrame());
+    }
+
+    @Test
+    public void shouldAnalyze_passesWhenEnoughBlocksMoveThenSettles() {
+        nextFrame();
+
+        fill(0, 0, BLOCK_SIZE * 2, BLOCK_SIZE, 200);
+        assertTrue(nextFrame());
+
+        // Someone standing still fades into the background.
+        int frames = 0;
+        while (nextFrame()) {
+            frames++;
+            assertTrue(frames < 30);
+        }
+    }
+
+    @Test
+    public void shouldAnalyze_refreshesAStaticScenePeriodically() {
+        nextFrame();
+        int skipped = 0;
+        while (!nextFrame()) {
+            skipped++;
+        }
+
+        assertEquals(REFRESH_INTERVAL_NANOS / FRAME_INTERVAL_NANOS - 1, skipped);
+    }
+
+    @Test
+    public void shouldAnalyze_passesAfterResetOrResize() {
+        nextFrame();
+
+        motionGate.reset();
+        assertTrue(nextFrame());
+
+        frame.setCrop(0, 0, WIDTH / 2, HEIGHT / 2);
+        assertTrue(nextFrame());
+        assertFalse(nextFrame());
+    }
+
+    @Test
+    public void shouldAnalyze_staysInsideBlocksOfOddSizes() {
+        for (int blockSize : new int[]{5, 9, 13, 15}) {
+            // Exactly 4 x 3 blocks, so the last block ends on the last pixel.
+            int width = blockSize * 4;
+            int height = blockSize * 3;
+            ByteBuffer tightLuma = ByteBuffer.allocateDirect(width * height);
+            for (int i = 0; i < width * height; i++) {
+                tightLuma.put(i, (byte) 100);
+            }
+            YuvFrame tightFrame = new YuvFrame();
+            tightFrame.setSize(width, height);
+            tightFrame.setPlane(YuvFrame.PLANE_Y, tightLuma, width, 1);
+            MotionGate gate = new MotionGate(blockSize, 10, 0.15f, REFRESH_INTERVAL_NANOS);
+
+            assertTrue(gate.shouldAnalyze(tightFrame, FRAME_INTERVAL_NANOS));
+            assertFalse(gate.shouldAnalyze(tightFrame, 2 * FRAME_INTERVAL_NANOS));
+            for (int y = height - blockSize; y < height; y++) {
+                for (int x = width - 2 * blockSize; x < width; x++) {
+                    tightLuma.put(y * width + x, (byte) 200);
+                }
+            }
+            assertTrue(gate.shouldAnalyze(tightFrame, 3 * FRAME_INTERVAL_NANOS));
+        }
+    }
+
+    private boolean nextFrame() {
+        timestampNanos += FRAME_INTERVAL_NANOS;
+        return motionGate.shouldAnalyze(frame, timestampNanos);
+    }
+
+    private void fill(int left, int top, int right, int bottom, int value) {
+        for (int y = top; y < bottom; y++) {
+            for (int x = left; x < right; x++) {
+                luma.put(y * WIDTH + x, (byte) value);
+            }
+        }
+    }
+}
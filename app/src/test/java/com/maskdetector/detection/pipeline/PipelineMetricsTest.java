@@ -0,0 +1,46 @@
+package com.maskdetector.detection.pipeline;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class PipelineMetricsTest {
+    private final PipelineMetrics metrics = new PipelineMetrics(null);
+
+    @Test
+    public void dump_leavesTheReportRateWindowAlone() throws IOException {
+        metrics.recordProcessedFrame();
+        StringWriter dump = new StringWriter();
+
+        metrics.dump(dump);
+
+        assertTrue(dump.toString().startsWith("1 frames, 0 dropped, 0 static\n"));
+        // The dump did not start a rate window, so the first report still has no rate.
+        assertFalse(metrics.report().contains("fps"));
+        assertTrue(metrics.report().contains("fps"));
+    }
+
+    @Test
+    public void report_showsTheTargetRateOnceKnown() {
+        assertFalse(metrics.report().contains("target"));
+
+        metrics.setTargetRate(12.5f);
+
+        assertTrue(metrics.report().contains("target 12.5 fps, "));
+        assertTrue(metrics.summary().startsWith("target 12.5 fps, 0 frames"));
+    }
+
+    @Test
+    public void recordDelivered_measuresTheLatestPublishedResultOnce() {
+        metrics.recordPublished(System.nanoTime());
+
+        metrics.recordDelivered();
+        metrics.recordDelivered();
+
+        assertEquals(1, metrics.getHistogram(PipelineMetrics.Stage.UI_POST).snapshot().getCount());
+        assertEquals(1, metrics.getHistogram(PipelineMetrics.Stage.END_TO_END).snapshot().getCount());
+    }
+}
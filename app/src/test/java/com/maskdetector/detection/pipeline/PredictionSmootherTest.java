@@ -0,0 +1,43 @@
+package com.maskdetector.detection.pipeline;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PredictionSmootherTest {
+
+    @Test
+    public void update_ignoresSingleFrameFlicker() {
+        PredictionSmoother smoother = PredictionSmoother.exponential(0.3f, 0.65f, 0.35f);
+        for (int i = 0; i < 10; i++) {
+            smoother.update(0.9f);
+        }
+        assertTrue(smoother.isPositive());
+
+        assertTrue(smoother.update(0.1f));
+        assertTrue(smoother.update(0.9f));
+    }
+
+    @Test
+    public void update_flipsOnceEvidenceIsStable() {
+        PredictionSmoother smoother = PredictionSmoother.window(4, 0.65f, 0.35f);
+        for (int i = 0; i < 4; i++) {
+            smoother.update(0.9f);
+        }
+
+        assertTrue(smoother.update(0.1f));
+        assertTrue(smoother.update(0.1f));
+        assertFalse(smoother.update(0.1f));
+        assertEquals(0.3f, smoother.getSmoothedProbability(), 1e-6f);
+    }
+
+    @Test
+    public void update_holdsLabelInsideHysteresisBand() {
+        PredictionSmoother smoother = PredictionSmoother.window(1, 0.65f, 0.35f);
+
+        assertFalse(smoother.update(0.5f));
+        assertTrue(smoother.update(0.7f));
+        assertTrue(smoother.update(0.5f));
+        assertFalse(smoother.update(0.3f));
+    }
+}
@@ -0,0 +1,85 @@
+package com.maskdetector.detection.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+
+public class ResultPublisherTest {
+    private final Queue<Runnable> uiQueue = new ArrayDeque<>();
+    private final List<String> rendered = new ArrayList<>();
+    private final ResultPublisher publisher = new ResultPublisher(
+        uiQueue::add,
+        5,
+        new ResultPublisher.Renderer() {
+            @Override
+            public void render(boolean isMaskOn, int percent) {
+                rendered.add(isMaskOn + ":" + percent);
+            }
+
+            @Override
+            public void renderNoFace() {
+                rendered.add("none");
+            }
+        }
+    );
+
+    @Test
+    public void publish_conflatesToLatestResult() {
+        publisher.publish(true, 0.70f);
+        publisher.publish(false, 0.80f);
+        publisher.publish(true, 0.95f);
+
+        assertEquals(1, uiQueue.size());
+        drain();
+        assertEquals(1, rendered.size());
+        assertEquals("true:95", rendered.get(0));
+    }
+
+    @Test
+    public void publish_skipsUnchangedBucket() {
+        publisher.publish(true, 0.91f);
+        drain();
+        publisher.publish(true, 0.93f);
+        drain();
+        publisher.publish(false, 0.93f);
+        drain();
+
+        assertEquals(2, rendered.size());
+        assertEquals("false:93", rendered.get(1));
+    }
+
+    @Test
+    public void publishNoFace_rendersOnceUntilFaceReturns() {
+        publisher.publishNoFace();
+        drain();
+        publisher.publishNoFace();
+        drain();
+        publisher.publish(true, 0.91f);
+        drain();
+
+        assertEquals(2, rendered.size());
+        assertEquals("none", rendered.get(0));
+        assertEquals("true:91", rendered.get(1));
+    }
+
+    @Test
+    public void close_dropsPendingDelivery() {
+        publisher.publish(true, 0.91f);
+        publisher.close();
+        drain();
+
+        assertTrue(rendered.isEmpty());
+    }
+
+    private void drain() {
+        Runnable runnable;
+        while ((runnable = uiQueue.poll()) != null) {
+            runnable.run();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.maskdetector.map;
+
+import com.maskdetector.database.models.BoundingBox;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CenterClustererTest {
+    // Two centers a few hundred meters apart in Agadir and one in Tangier.
+    private final double[] latitudes = {30.420, 30.422, 35.760};
+    private final double[] longitudes = {-9.590, -9.592, -5.830};
+    private final CenterClusterer clusterer = new CenterClusterer(latitudes, longitudes, 3, 64);
+    private final BoundingBox morocco = new BoundingBox(27, -14, 36, -1);
+
+    @Test
+    public void cluster_mergesNearbyCentersWhenZoomedOut() {
+        List<CenterClusterer.Cluster> clusters = clusterer.cluster(8, morocco);
+
+        assertEquals(2, clusters.size());
+        CenterClusterer.Cluster agadir = clusters.get(0).getSize() == 2 ? clusters.get(0) : clusters.get(1);
+        assertEquals(-1, agadir.getCenter());
+        assertEquals(30.421, agadir.getLatitude(), 1e-9);
+    }
+
+    @Test
+    public void cluster_splitsCentersWhenZoomedIn() {
+        List<CenterClusterer.Cluster> clusters = clusterer.cluster(18.5, morocco);
+
+        assertEquals(3, clusters.size());
+        for (CenterClusterer.Cluster cluster : clusters) {
+            assertEquals(1, cluster.getSize());
+            assertEquals(CenterClusterer.centerKey(cluster.getCenter()), cluster.getKey());
+        }
+    }
+
+    @Test
+    public void cluster_culledToViewport() {
+        List<CenterClusterer.Cluster> clusters = clusterer.cluster(12, new BoundingBox(35.7, -5.9, 35.8, -5.8));
+
+        assertEquals(1, clusters.size());
+        assertEquals(2, clusters.get(0).getCenter());
+    }
+
+    @Test
+    public void cluster_keepsKeysWithinZoomLevel() {
+        long key = clusterer.cluster(8.1, morocco).get(0).getKey();
+
+        assertEquals(key, clusterer.cluster(8.9, new BoundingBox(29, -11, 31, -8)).get(0).getKey());
+    }
+}
@@ -0,0 +1,196 @@
+package com.maskdetector.batch;
+
+import com.maskdetector.detection.batch.BatchClassifier;
+import com.maskdetector.detection.batch.BatchSink;
+import com.maskdetector.detection.batch.BatchSource;
+import com.maskdetector.detection.batch.CsvBatchSink;
+import com.maskdetector.detection.batch.JsonLinesBatchSink;
+import com.maskdetector.detection.batch.RawVideoSource;
+import com.maskdetector.detection.batch.RecordingSource;
+import com.maskdetector.detection.env.FramePreprocessor;
+import com.maskdetector.detection.face.FaceDetector;
+import com.maskdetector.detection.face.FullFrameFaceDetector;
+import com.maskdetector.detection.inference.InferenceEngine;
+import com.maskdetector.detection.inference.MaskClassifier;
+import com.maskdetector.detection.pipeline.LatencyHistogram;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Classifies a folder of images, a frame recording or a raw video headless, writing one result
+ * per item to CSV or JSON lines:
+ * <pre>
+ * batch --model face_mask_detection.tflite --input photos/ --output results.csv
+ * ffmpeg -i video.mp4 -f rawvideo -pix_fmt yuv420p - | batch --model ... --input - --size 1280x720 --output results.jsonl
+ * </pre>
+ * Without the app's face detector, every item is classified on its centered square, like the
+ * camera's fallback.
+ */
+public final class BatchMain {
+    private static final String USAGE = "Usage: batch --model <file.tflite> --input <directory|file.mdfr|file.yuv|-> "
+        + "[--size <width>x<height>] [--rotation <degrees>] [--output <file.csv|file.jsonl>] [--workers <count>] "
+        + "[--queue <depth>] [--mean <value>] [--std <value>] [--labels <a,b>]";
+
+    // Same as the camera path.
+    private static final int MAX_FACES = 1;
+    private static final float FACE_CROP_MARGIN = 1.2f;
+
+    private BatchMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options;
+        final float mean;
+        final float std;
+        String[] labels;
+        int workers;
+        int queueDepth;
+        int[] videoSize = null;
+        int rotation;
+        try {
+            options = parse(args);
+            if (!options.containsKey("model") || !options.containsKey("input")) {
+                throw new IllegalArgumentException("--model and --input are required.");
+            }
+            mean = parseFloat(options, "mean", 0f);
+            std = parseFloat(options, "std", 1f);
+            labels = get(options, "labels", MaskClassifier.LABEL_WITH_MASK + "," + MaskClassifier.LABEL_WITHOUT_MASK).split(",");
+            workers = parseInt(options, "workers", Runtime.getRuntime().availableProcessors());
+            queueDepth = parseInt(options, "queue", workers * 2);
+            rotation = parseInt(options, "rotation", 0);
+            if (isRawVideo(options.get("input"))) {
+                videoSize = parseSize(options.get("size"));
+            }
+        } catch (IllegalArgumentException exception) {
+            System.err.println(exception.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        final File modelFile = new File(options.get("model"));
+        // The classifier input follows the model, like MaskModel does on the device.
+        final int inputWidth;
+        final int inputHeight;
+        final FramePreprocessor.OutputType inputType;
+        TfLiteCpuEngine probe = TfLiteCpuEngine.open(modelFile);
+        try {
+            inputWidth = probe.getInputWidth();
+            inputHeight = probe.getInputHeight();
+            inputType = probe.getInputType();
+        } finally {
+            probe.close();
+        }
+
+        BatchClassifier classifier = new BatchClassifier(new BatchClassifier.WorkerFactory() {
+            @Override
+            public InferenceEngine newEngine() throws IOException {
+                return TfLiteCpuEngine.open(modelFile);
+            }
+
+            @Override
+            public FramePreprocessor newFramePreprocessor() {
+                return new FramePreprocessor(inputWidth, inputHeight, inputType, mean, std);
+            }
+
+            @Override
+            public FaceDetector newFaceDetector() {
+                return new FullFrameFaceDetector();
+            }
+        }, labels, workers, queueDepth, MAX_FACES, FACE_CROP_MARGIN);
+
+        BatchClassifier.Summary summary;
+        try (BatchSource source = openSource(options.get("input"), videoSize, rotation);
+             BatchSink sink = openSink(get(options, "output", "-"))) {
+            summary = classifier.run(source, sink);
+        }
+
+        LatencyHistogram.Snapshot latency = summary.getItemLatency();
+        System.err.println(String.format(Locale.US,
+            "%d items, %d faces in %.1f s: %.1f items/s with %d workers, per item p50 %.1f ms, p99 %.1f ms",
+            summary.getItemCount(), summary.getFaceCount(), summary.getElapsedNanos() / 1e9, summary.getItemsPerSecond(),
+            workers, latency.getPercentileNanos(50) / 1e6, latency.getPercentileNanos(99) / 1e6));
+    }
+
+    private static boolean isRawVideo(String input) {
+        return input.equals("-") || (!new File(input).isDirectory() && !input.endsWith(".mdfr"));
+    }
+
+    private static BatchSource openSource(String input, int[] videoSize, int rotation) throws IOException {
+        File file = new File(input);
+        if (!input.equals("-") && file.isDirectory()) {
+            return new ImageDirectorySource(file.toPath());
+        }
+
+        InputStream inputStream = input.equals("-") ? System.in : new BufferedInputStream(new FileInputStream(file));
+        String name = input.equals("-") ? "stdin" : file.getName();
+        if (input.endsWith(".mdfr")) {
+            return new RecordingSource(inputStream, name);
+        }
+        return new RawVideoSource(inputStream, name, videoSize[0], videoSize[1], rotation);
+    }
+
+    private static BatchSink openSink(String output) throws IOException {
+        OutputStream outputStream = output.equals("-") ? System.out : new FileOutputStream(output);
+        Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        return output.endsWith(".jsonl") ? new JsonLinesBatchSink(writer) : new CsvBatchSink(writer);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i] + ".");
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static int[] parseSize(String size) {
+        String[] dimensions = size != null ? size.split("x") : new String[0];
+        if (dimensions.length != 2) {
+            throw new IllegalArgumentException("Raw video needs --size <width>x<height>.");
+        }
+        try {
+            return new int[]{Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1])};
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid --size " + size + ".");
+        }
+    }
+
+    private static int parseInt(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid --" + name + " " + value + ".");
+        }
+    }
+
+    private static float parseFloat(Map<String, String> options, String name, float defaultValue) {
+        String value = options.get(name);
+        try {
+            return value != null ? Float.parseFloat(value) : defaultValue;
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid --" + name + " " + value + ".");
+        }
+    }
+
+    private static String get(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,133 @@
+package com.maskdetector.batch;
+
+import com.maskdetector.detection.batch.BatchFrame;
+import com.maskdetector.detection.batch.BatchSource;
+import com.maskdetector.detection.env.YuvFrame;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Every image ImageIO can read under a directory, in path order, converted to planar I420 with
+ * the BT.601 limited range matrix the app decodes camera frames with. Odd sizes lose their last
+ * row or column. Unreadable files are reported and skipped.
+ */
+final class ImageDirectorySource implements BatchSource {
+    private final Path directory;
+    private final Iterator<Path> paths;
+    private int[] rows = new int[0];
+
+    ImageDirectorySource(Path directory) throws IOException {
+        Set<String> suffixes = new HashSet<>();
+        for (String suffix : ImageIO.getReaderFileSuffixes()) {
+            suffixes.add(suffix.toLowerCase(Locale.US));
+        }
+
+        List<Path> images = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(directory)) {
+            Iterator<Path> iterator = walk.iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                String fileName = path.getFileName().toString();
+                int dot = fileName.lastIndexOf('.');
+                if (dot > 0 && suffixes.contains(fileName.substring(dot + 1).toLowerCase(Locale.US)) && Files.isRegularFile(path)) {
+                    images.add(path);
+                }
+            }
+        }
+        Collections.sort(images);
+
+        this.directory = directory;
+        this.paths = images.iterator();
+    }
+
+    @Override
+    public boolean next(BatchFrame batchFrame) throws IOException {
+        while (paths.hasNext()) {
+            Path path = paths.next();
+            BufferedImage image;
+            try {
+                image = ImageIO.read(path.toFile());
+            } catch (IOException exception) {
+                image = null;
+            }
+            int width = image != null ? image.getWidth() & ~1 : 0;
+            int height = image != null ? image.getHeight() & ~1 : 0;
+            if (width == 0 || height == 0) {
+                System.err.println("Skipping unreadable image " + path + ".");
+                continue;
+            }
+
+            convert(image, width, height, batchFrame);
+            batchFrame.setName(directory.relativize(path).toString());
+            batchFrame.setRotationDegrees(0);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void convert(BufferedImage image, int width, int height, BatchFrame batchFrame) {
+        int chromaWidth = width / 2;
+        int chromaSize = chromaWidth * (height / 2);
+        ByteBuffer yBuffer = batchFrame.getPlaneBuffer(YuvFrame.PLANE_Y, width * height);
+        ByteBuffer uBuffer = batchFrame.getPlaneBuffer(YuvFrame.PLANE_U, chromaSize);
+        ByteBuffer vBuffer = batchFrame.getPlaneBuffer(YuvFrame.PLANE_V, chromaSize);
+        if (rows.length < width * 2) {
+            rows = new int[width * 2];
+        }
+
+        // Two rows at a time, so each chroma sample averages its 2x2 block.
+        for (int y = 0; y < height; y += 2) {
+            image.getRGB(0, y, width, 2, rows, 0, width);
+            for (int x = 0; x < width; x++) {
+                yBuffer.put(y * width + x, luma(rows[x]));
+                yBuffer.put((y + 1) * width + x, luma(rows[width + x]));
+            }
+            for (int x = 0; x < width; x += 2) {
+                int topLeft = rows[x];
+                int topRight = rows[x + 1];
+                int bottomLeft = rows[width + x];
+                int bottomRight = rows[width + x + 1];
+                int r = (((topLeft >> 16) & 0xff) + ((topRight >> 16) & 0xff) + ((bottomLeft >> 16) & 0xff) + ((bottomRight >> 16) & 0xff)) >> 2;
+                int g = (((topLeft >> 8) & 0xff) + ((topRight >> 8) & 0xff) + ((bottomLeft >> 8) & 0xff) + ((bottomRight >> 8) & 0xff)) >> 2;
+                int b = ((topLeft & 0xff) + (topRight & 0xff) + (bottomLeft & 0xff) + (bottomRight & 0xff)) >> 2;
+                int chroma = (y / 2) * chromaWidth + x / 2;
+                uBuffer.put(chroma, (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128));
+                vBuffer.put(chroma, (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128));
+            }
+        }
+        yBuffer.limit(width * height);
+        uBuffer.limit(chromaSize);
+        vBuffer.limit(chromaSize);
+
+        YuvFrame frame = batchFrame.getFrame();
+        frame.setSize(width, height);
+        frame.setPlane(YuvFrame.PLANE_Y, yBuffer, width, 1);
+        frame.setPlane(YuvFrame.PLANE_U, uBuffer, chromaWidth, 1);
+        frame.setPlane(YuvFrame.PLANE_V, vBuffer, chromaWidth, 1);
+    }
+
+    private static byte luma(int pixel) {
+        int r = (pixel >> 16) & 0xff;
+        int g = (pixel >> 8) & 0xff;
+        int b = pixel & 0xff;
+        return (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16);
+    }
+}
@@ -0,0 +1,124 @@
+package com.maskdetector.batch;
+
+import com.maskdetector.detection.env.FramePreprocessor;
+import com.maskdetector.detection.inference.InferenceEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A single-threaded CPU interpreter from the TensorFlow Lite Java API. TensorFlow Lite is only
+ * published as an Android archive, so a desktop build of its Java API (and native library) is
+ * put on the classpath at run time and reached by reflection; see the module's build file.
+ */
+final class TfLiteCpuEngine implements InferenceEngine {
+    private static final String INTERPRETER_CLASS = "org.tensorflow.lite.Interpreter";
+    private static final String OPTIONS_CLASS = "org.tensorflow.lite.Interpreter$Options";
+
+    private final Object interpreter;
+    private final Method runMethod;
+    private final Method resizeInputMethod;
+    private final Method closeMethod;
+    private final int[] inputShape;
+    private final int inputWidth;
+    private final int inputHeight;
+    private final FramePreprocessor.OutputType inputType;
+
+    private TfLiteCpuEngine(Object interpreter, Method runMethod, Method resizeInputMethod, Method closeMethod,
+                            int[] inputShape, FramePreprocessor.OutputType inputType) {
+        this.interpreter = interpreter;
+        this.runMethod = runMethod;
+        this.resizeInputMethod = resizeInputMethod;
+        this.closeMethod = closeMethod;
+        this.inputShape = inputShape;
+        this.inputHeight = inputShape[1];
+        this.inputWidth = inputShape[2];
+        this.inputType = inputType;
+    }
+
+    static TfLiteCpuEngine open(File modelFile) throws IOException {
+        try {
+            Class<?> interpreterClass = Class.forName(INTERPRETER_CLASS);
+            Class<?> optionsClass = Class.forName(OPTIONS_CLASS);
+            Object options = optionsClass.getConstructor().newInstance();
+            // Workers already spread over the cores, each interpreter keeps to one.
+            optionsClass.getMethod("setNumThreads", int.class).invoke(options, 1);
+            Object interpreter = interpreterClass.getConstructor(File.class, optionsClass).newInstance(modelFile, options);
+            Method closeMethod = interpreterClass.getMethod("close");
+
+            // Same checks as the app's MaskModel: one RGB image in, as floats or bytes.
+            Object inputTensor = interpreterClass.getMethod("getInputTensor", int.class).invoke(interpreter, 0);
+            int[] inputShape = (int[]) inputTensor.getClass().getMethod("shape").invoke(inputTensor);
+            String dataType = ((Enum<?>) inputTensor.getClass().getMethod("dataType").invoke(inputTensor)).name();
+            FramePreprocessor.OutputType inputType = null;
+            if (dataType.equals("FLOAT32")) {
+                inputType = FramePreprocessor.OutputType.FLOAT32;
+            } else if (dataType.equals("UINT8")) {
+                inputType = FramePreprocessor.OutputType.UINT8;
+            }
+            if (inputShape.length != 4 || inputShape[3] != 3 || inputType == null) {
+                closeMethod.invoke(interpreter);
+                throw new IOException("Unsupported input " + dataType + " " + Arrays.toString(inputShape) + " in " + modelFile + ".");
+            }
+
+            return new TfLiteCpuEngine(
+                interpreter,
+                interpreterClass.getMethod("run", Object.class, Object.class),
+                interpreterClass.getMethod("resizeInput", int.class, int[].class),
+                closeMethod,
+                inputShape,
+                inputType
+            );
+        } catch (ClassNotFoundException exception) {
+            throw new IOException("The TensorFlow Lite Java API is not on the classpath.", exception);
+        } catch (InvocationTargetException exception) {
+            throw new IOException("Could not open " + modelFile + ".", exception.getCause());
+        } catch (ReflectiveOperationException exception) {
+            throw new IOException("Unsupported TensorFlow Lite Java API.", exception);
+        }
+    }
+
+    int getInputWidth() {
+        return inputWidth;
+    }
+
+    int getInputHeight() {
+        return inputHeight;
+    }
+
+    FramePreprocessor.OutputType getInputType() {
+        return inputType;
+    }
+
+    @Override
+    public void run(ByteBuffer input, ByteBuffer output, int batchSize) {
+        if (inputShape[0] != batchSize) {
+            inputShape[0] = batchSize;
+            invoke(resizeInputMethod, 0, inputShape);
+        }
+        invoke(runMethod, input, output);
+    }
+
+    @Override
+    public void close() {
+        invoke(closeMethod);
+    }
+
+    private void invoke(Method method, Object... arguments) {
+        try {
+            method.invoke(interpreter, arguments);
+        } catch (InvocationTargetException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
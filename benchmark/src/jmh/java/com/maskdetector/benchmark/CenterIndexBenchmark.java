@@ -0,0 +1,149 @@
+package com.maskdetector.benchmark;
+
+import com.maskdetector.database.CenterIndex;
+import com.maskdetector.database.models.BoundingBox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the grid index with a linear scan over the same coordinate arrays, for the shipped
+ * dataset size and a national dataset 100 times larger.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CenterIndexBenchmark {
+    private static final int NEAREST = 5;
+    private static final double RADIUS_METERS = 20_000;
+    private static final int QUERIES = 1024;
+
+    @Param({"3000", "300000"})
+    public int centers;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private CenterIndex index;
+    private CenterIndex.Results results;
+    private double[] queryLatitudes;
+    private double[] queryLongitudes;
+    private int[] nearest;
+    private double[] nearestDistances;
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(7);
+        latitudes = new double[centers];
+        longitudes = new double[centers];
+        for (int i = 0; i < centers; i++) {
+            latitudes[i] = randomLatitude(random);
+            longitudes[i] = randomLongitude(random);
+        }
+        queryLatitudes = new double[QUERIES];
+        queryLongitudes = new double[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queryLatitudes[i] = randomLatitude(random);
+            queryLongitudes[i] = randomLongitude(random);
+        }
+
+        index = new CenterIndex(latitudes, longitudes, centers, 0);
+        results = new CenterIndex.Results();
+        nearest = new int[NEAREST];
+        nearestDistances = new double[NEAREST];
+    }
+
+    @Benchmark
+    public int indexNearest() {
+        int i = nextQuery();
+        index.findNearest(queryLatitudes[i], queryLongitudes[i], NEAREST, results);
+        return results.getCenter(0);
+    }
+
+    @Benchmark
+    public int linearNearest() {
+        int i = nextQuery();
+        int found = 0;
+        for (int center = 0; center < centers; center++) {
+            double distance = CenterIndex.haversineMeters(queryLatitudes[i], queryLongitudes[i], latitudes[center], longitudes[center]);
+            if (found == NEAREST && distance >= nearestDistances[NEAREST - 1]) {
+                continue;
+            }
+            int position = found < NEAREST ? found++ : NEAREST - 1;
+            while (position > 0 && nearestDistances[position - 1] > distance) {
+                nearest[position] = nearest[position - 1];
+                nearestDistances[position] = nearestDistances[position - 1];
+                position--;
+            }
+            nearest[position] = center;
+            nearestDistances[position] = distance;
+        }
+        return nearest[0];
+    }
+
+    @Benchmark
+    public int indexRadius() {
+        int i = nextQuery();
+        index.findWithinRadius(queryLatitudes[i], queryLongitudes[i], RADIUS_METERS, results);
+        return results.size();
+    }
+
+    @Benchmark
+    public int linearRadius() {
+        int i = nextQuery();
+        int found = 0;
+        for (int center = 0; center < centers; center++) {
+            if (CenterIndex.haversineMeters(queryLatitudes[i], queryLongitudes[i], latitudes[center], longitudes[center]) <= RADIUS_METERS) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int indexBounds() {
+        int i = nextQuery();
+        index.findInBounds(viewport(i), results);
+        return results.size();
+    }
+
+    @Benchmark
+    public int linearBounds() {
+        BoundingBox bounds = viewport(nextQuery());
+        int found = 0;
+        for (int center = 0; center < centers; center++) {
+            if (bounds.contains(latitudes[center], longitudes[center])) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private BoundingBox viewport(int i) {
+        // Roughly a phone screen at city zoom.
+        return new BoundingBox(queryLatitudes[i] - 0.1, queryLongitudes[i] - 0.05, queryLatitudes[i] + 0.1, queryLongitudes[i] + 0.05);
+    }
+
+    private int nextQuery() {
+        query = (query + 1) & (QUERIES - 1);
+        return query;
+    }
+
+    private static double randomLatitude(Random random) {
+        return 27.6 + random.nextDouble() * 8.3;
+    }
+
+    private static double randomLongitude(Random random) {
+        return -13.2 + random.nextDouble() * 12.2;
+    }
+}
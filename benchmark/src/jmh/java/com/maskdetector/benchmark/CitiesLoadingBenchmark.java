@@ -0,0 +1,62 @@
+package com.maskdetector.benchmark;
+
+import com.maskdetector.database.CentersSnapshot;
+import com.maskdetector.database.CentersSnapshotWriter;
+import com.maskdetector.database.CitiesJsonReader;
+import com.maskdetector.database.models.City;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the shipped dataset the two ways {@code CityRepository} can: parsing the JSON asset,
+ * and opening the compiled snapshot and reading every city as the list does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CitiesLoadingBenchmark {
+    private byte[] json;
+    private ByteBuffer snapshot;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        json = Datasets.readCentersJson();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CentersSnapshotWriter.write(new ByteArrayInputStream(json), output);
+        // Direct like the memory mapped asset.
+        snapshot = ByteBuffer.allocateDirect(output.size());
+        snapshot.put(output.toByteArray());
+        snapshot.rewind();
+    }
+
+    @Benchmark
+    public List<City> parseJson() throws IOException {
+        return CitiesJsonReader.readAll(new ByteArrayInputStream(json));
+    }
+
+    @Benchmark
+    public int openSnapshot() throws IOException {
+        List<City> cities = CentersSnapshot.wrap(snapshot).getCities();
+        int centers = 0;
+        for (int i = 0; i < cities.size(); i++) {
+            City city = cities.get(i);
+            centers += city.getCity_name().length() + city.getCenterCount();
+        }
+        return centers;
+    }
+}
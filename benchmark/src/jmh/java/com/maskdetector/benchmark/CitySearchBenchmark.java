@@ -0,0 +1,60 @@
+package com.maskdetector.benchmark;
+
+import com.maskdetector.adapter.CityFilter;
+import com.maskdetector.database.CitiesJsonReader;
+import com.maskdetector.database.models.City;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The search box over the shipped dataset: the index behind {@link CityFilter} against the
+ * substring scan over city names that the adapter used to run on the main thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CitySearchBenchmark {
+    @Param({"a", "casa", "centre sante", "الرباط"})
+    public String query;
+
+    private List<City> cities;
+    private CityFilter.Searcher searcher;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        cities = CitiesJsonReader.readAll(new ByteArrayInputStream(Datasets.readCentersJson()));
+        searcher = CityFilter.newIndexSearcher();
+        // Builds the index, which the app does once per data set.
+        searcher.search(cities, query);
+    }
+
+    @Benchmark
+    public List<City> indexSearch() {
+        return searcher.search(cities, query);
+    }
+
+    @Benchmark
+    public List<City> nameScan() {
+        List<City> filtered = new ArrayList<>();
+        for (City city : cities) {
+            if (city.getCity_name().toLowerCase().contains(query.toLowerCase())) {
+                filtered.add(city);
+            }
+        }
+        return filtered;
+    }
+}
@@ -0,0 +1,22 @@
+package com.maskdetector.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * The centers dataset shipped with the app, located through the {@code maskdetector.dataset}
+ * property set by the build.
+ */
+final class Datasets {
+    private Datasets() {
+    }
+
+    static byte[] readCentersJson() throws IOException {
+        String path = System.getProperty("maskdetector.dataset");
+        if (path == null) {
+            throw new IOException("The maskdetector.dataset property is not set.");
+        }
+        return Files.readAllBytes(new File(path).toPath());
+    }
+}
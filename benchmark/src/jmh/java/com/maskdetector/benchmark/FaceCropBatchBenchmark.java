@@ -0,0 +1,104 @@
+package com.maskdetector.benchmark;
+
+import com.maskdetector.detection.env.FramePreprocessor;
+import com.maskdetector.detection.env.YuvFrame;
+import com.maskdetector.detection.face.FaceBox;
+import com.maskdetector.detection.face.FaceCropper;
+import com.maskdetector.detection.face.FaceDetector;
+import com.maskdetector.detection.inference.InferenceEngine;
+import com.maskdetector.detection.inference.MaskClassifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the detect -> crop -> batch path with a stub detector and a no-op engine, i.e. the
+ * Java-side cost the face stage adds on top of the model itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FaceCropBatchBenchmark {
+    private static final int INPUT_SIZE = 224;
+    private static final int MAX_FACES = 4;
+    private static final String[] LABELS = {MaskClassifier.LABEL_WITH_MASK, MaskClassifier.LABEL_WITHOUT_MASK};
+
+    @Param({"0", "1", "4"})
+    public int faces;
+
+    private YuvFrame frame;
+    private FaceDetector detector;
+    private FaceCropper cropper;
+    private MaskClassifier classifier;
+    private float[] scores;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        frame = SyntheticFrames.create(1280, 720);
+        detector = new GridFaceDetector(faces);
+
+        FramePreprocessor preprocessor = new FramePreprocessor(INPUT_SIZE, INPUT_SIZE, FramePreprocessor.OutputType.FLOAT32, 127.5f, 127.5f);
+        cropper = new FaceCropper(preprocessor, 1.2f);
+        classifier = new MaskClassifier(new NoOpEngine(), LABELS, preprocessor.getOutputSizeInBytes(), 1, MAX_FACES);
+        scores = new float[MAX_FACES * LABELS.length];
+    }
+
+    @Benchmark
+    public float[] detectCropAndClassify() throws InterruptedException {
+        MaskClassifier.Slot slot = classifier.acquire();
+        try {
+            FaceBox[] boxes = slot.getFaces();
+            int count = detector.detect(frame, 90, false, boxes);
+            for (int i = 0; i < count; i++) {
+                cropper.crop(frame, 90, false, boxes[i], slot.getInputBuffer(i));
+            }
+            slot.setFaceCount(count);
+            classifier.classify(slot, scores);
+        } finally {
+            classifier.release(slot);
+        }
+        return scores;
+    }
+
+    private static final class GridFaceDetector implements FaceDetector {
+        private final int faces;
+
+        GridFaceDetector(int faces) {
+            this.faces = faces;
+        }
+
+        @Override
+        public int detect(YuvFrame frame, int rotationDegrees, boolean mirror, FaceBox[] boxes) {
+            int count = Math.min(faces, boxes.length);
+            for (int i = 0; i < count; i++) {
+                float left = 0.05f + 0.22f * i;
+                boxes[i].set(left, 0.3f, left + 0.2f, 0.45f);
+            }
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class NoOpEngine implements InferenceEngine {
+        @Override
+        public void run(ByteBuffer input, ByteBuffer output, int batchSize) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.maskdetector.benchmark;
+
+import com.maskdetector.detection.env.FramePreprocessor;
+import com.maskdetector.detection.env.YuvFrame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FramePreprocessorBenchmark {
+    @Param({"640x480", "1280x720"})
+    public String resolution;
+
+    @Param({"0", "90", "270"})
+    public int rotation;
+
+    @Param({"UINT8", "FLOAT32"})
+    public FramePreprocessor.OutputType outputType;
+
+    private YuvFrame frame;
+    private FramePreprocessor preprocessor;
+    private ByteBuffer output;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int[] size = SyntheticFrames.parseResolution(resolution);
+        frame = SyntheticFrames.create(size[0], size[1]);
+        preprocessor = new FramePreprocessor(224, 224, outputType, 127.5f, 127.5f);
+        output = preprocessor.allocateOutputBuffer();
+    }
+
+    @Benchmark
+    public ByteBuffer process() {
+        preprocessor.process(frame, rotation, false, output);
+        return output;
+    }
+}
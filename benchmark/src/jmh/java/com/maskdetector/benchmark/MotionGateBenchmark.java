@@ -0,0 +1,50 @@
+package com.maskdetector.benchmark;
+
+import com.maskdetector.detection.env.YuvFrame;
+import com.maskdetector.detection.pipeline.MotionGate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a static frame costs on the camera thread once the motion gate sits in front of the
+ * conversion, to compare with {@link FramePreprocessorBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MotionGateBenchmark {
+    private static final long FRAME_INTERVAL_NANOS = 33_000_000L;
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"16", "32", "64"})
+    public int blockSize;
+
+    private YuvFrame frame;
+    private MotionGate motionGate;
+    private long timestampNanos;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int[] size = SyntheticFrames.parseResolution(resolution);
+        frame = SyntheticFrames.create(size[0], size[1]);
+        motionGate = new MotionGate(blockSize, 12, 0.02f, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public boolean shouldAnalyze() {
+        timestampNanos += FRAME_INTERVAL_NANOS;
+        return motionGate.shouldAnalyze(frame, timestampNanos);
+    }
+}
@@ -0,0 +1,76 @@
+package com.maskdetector.benchmark;
+
+import com.maskdetector.detection.env.YuvFrame;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Builds YUV_420_888 frames laid out the way most camera HALs deliver them: a padded luma plane
+ * and interleaved chroma planes (pixel stride 2) sharing one buffer. The planar layout, with
+ * separate padded chroma planes (pixel stride 1), is what some older HALs and emulators deliver.
+ */
+final class SyntheticFrames {
+    static final int ROW_ALIGNMENT = 64;
+
+    private SyntheticFrames() {
+    }
+
+    static int[] parseResolution(String resolution) {
+        String[] parts = resolution.split("x");
+        return new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    static YuvFrame create(int width, int height) {
+        Random random = new Random(42);
+        int rowStride = align(width);
+
+        ByteBuffer yBuffer = ByteBuffer.allocateDirect(rowStride * height);
+        fill(yBuffer, random);
+
+        ByteBuffer chroma = ByteBuffer.allocateDirect(rowStride * height / 2);
+        fill(chroma, random);
+        chroma.position(0);
+        ByteBuffer uBuffer = chroma.slice();
+        chroma.position(1);
+        ByteBuffer vBuffer = chroma.slice();
+
+        YuvFrame frame = new YuvFrame();
+        frame.setSize(width, height);
+        frame.setPlane(YuvFrame.PLANE_Y, yBuffer, rowStride, 1);
+        frame.setPlane(YuvFrame.PLANE_U, uBuffer, rowStride, 2);
+        frame.setPlane(YuvFrame.PLANE_V, vBuffer, rowStride, 2);
+        return frame;
+    }
+
+    static YuvFrame createPlanar(int width, int height) {
+        Random random = new Random(42);
+        int rowStride = align(width);
+        int chromaRowStride = align(width / 2);
+
+        ByteBuffer yBuffer = ByteBuffer.allocateDirect(rowStride * height);
+        fill(yBuffer, random);
+        ByteBuffer uBuffer = ByteBuffer.allocateDirect(chromaRowStride * height / 2);
+        fill(uBuffer, random);
+        ByteBuffer vBuffer = ByteBuffer.allocateDirect(chromaRowStride * height / 2);
+        fill(vBuffer, random);
+
+        YuvFrame frame = new YuvFrame();
+        frame.setSize(width, height);
+        frame.setPlane(YuvFrame.PLANE_Y, yBuffer, rowStride, 1);
+        frame.setPlane(YuvFrame.PLANE_U, uBuffer, chromaRowStride, 1);
+        frame.setPlane(YuvFrame.PLANE_V, vBuffer, chromaRowStride, 1);
+        return frame;
+    }
+
+    private static int align(int rowLength) {
+        return (rowLength + ROW_ALIGNMENT - 1) / ROW_ALIGNMENT * ROW_ALIGNMENT;
+    }
+
+    private static void fill(ByteBuffer buffer, Random random) {
+        byte[] bytes = new byte[buffer.capacity()];
+        random.nextBytes(bytes);
+        buffer.put(bytes);
+        buffer.rewind();
+    }
+}